@@ -19,14 +19,29 @@
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
+import java.util.concurrent.TimeUnit;
+
 import play.Application;
 import play.GlobalSettings;
 import play.api.mvc.EssentialFilter;
 import play.filters.gzip.GzipFilter;
+import play.libs.Akka;
+
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
 
+import data.analysis.CorrelationEngine;
+import data.api.HTTP;
+import data.api.PageFetcher;
+import data.api.ResponseCache;
+import data.store.ColumnStore;
+import data.store.RegionCube;
+import data.store.SeriesCache;
+import data.tasks.BulkImportTask;
 import data.tasks.CountryPopulateTask;
 import data.tasks.IndicatorPopulateTask;
-import data.tasks.TaskUtils;
+import data.tasks.IndicatorRefreshTask;
+import data.tasks.TaskScheduler;
 
 import controllers.ServerConf;
 
@@ -41,9 +56,65 @@ public class Global extends GlobalSettings {
         // Configure RPC mechanism
         ServerConf.configureRPC();
 
+        // Configure shared HTTP client used by the World Bank API
+        HTTP.Settings.configure(app.configuration().getConfig("wbi.http"));
+        PageFetcher.Settings.configure(
+            app.configuration().getConfig("wbi.fetch"));
+        ResponseCache.Settings.configure(
+            app.configuration().getConfig("wbi.cache"));
+
+        // Configure scheduler running ingestion tasks
+        TaskScheduler.Settings.configure(
+            app.configuration().getConfig("wbi.tasks"));
+        IndicatorRefreshTask.Settings.configure(
+            app.configuration().getConfig("wbi.refresh"));
+        BulkImportTask.Settings.configure(
+            app.configuration().getConfig("wbi.import"));
+
+        // Configure in-memory stores
+        SeriesCache.Settings.configure(
+            app.configuration().getConfig("wbi.store.series"));
+        ColumnStore.Settings.configure(
+            app.configuration().getConfig("wbi.store.columns"));
+        RegionCube.Settings.configure(
+            app.configuration().getConfig("wbi.store.cube"));
+
+        // Configure analyses over loaded indicators
+        CorrelationEngine.Settings.configure(
+            app.configuration().getConfig("wbi.correlation"));
+
         // Run tasks for populating the database when the application starts
-        TaskUtils.runTask(new CountryPopulateTask());
-        TaskUtils.runTask(new IndicatorPopulateTask());
+        TaskScheduler.submit(
+            new CountryPopulateTask(), TaskScheduler.Priority.BACKGROUND);
+        TaskScheduler.submit(
+            new IndicatorPopulateTask(), TaskScheduler.Priority.BACKGROUND);
+
+        // Periodically refresh the most recent years of ready indicators
+        if (IndicatorRefreshTask.Settings.INTERVAL > 0) {
+            FiniteDuration interval = Duration.create(
+                IndicatorRefreshTask.Settings.INTERVAL, TimeUnit.MINUTES);
+
+            Akka.system().scheduler().schedule(
+                interval, interval, new Runnable() {
+                    @Override
+                    public void run() {
+                        TaskScheduler.submit(
+                            IndicatorRefreshTask.Cycle.KEY,
+                            new IndicatorRefreshTask.Cycle(),
+                            TaskScheduler.Priority.BACKGROUND);
+                    }
+                }, Akka.system().dispatcher());
+        }
+    }
+
+    @Override
+    public void onStop(Application app) {
+        TaskScheduler.shutdown();
+        CorrelationEngine.shutdown();
+        PageFetcher.shutdown();
+        HTTP.shutdown();
+
+        super.onStop(app);
     }
 
     @SuppressWarnings("unchecked")
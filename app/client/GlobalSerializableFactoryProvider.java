@@ -26,12 +26,18 @@ import rpc.shared.data.Type;
 import rpc.shared.data.factory.SerializableFactory;
 import rpc.shared.data.factory.SerializableFactoryProvider;
 
+import models.Correlation;
+import models.CorrelationSearch;
 import models.Country;
 import models.Indicator;
 import models.Point;
 import models.Region;
+import models.RegionAggregate;
 import models.Series;
+import models.SeriesFilter;
+import models.SeriesMatrix;
 import models.Source;
+import models.Statistics;
 import models.Topic;
 
 import client.managers.history.HistoryState;
@@ -71,6 +77,22 @@ public class GlobalSerializableFactoryProvider
             }
         });
 
+        addFactory(Type.get(Correlation.class), new SerializableFactory() {
+            @Override
+            public Serializable make() {
+                return new Correlation();
+            }
+        });
+
+        addFactory(
+            Type.get(CorrelationSearch.class),
+            new SerializableFactory() {
+                @Override
+                public Serializable make() {
+                    return new CorrelationSearch();
+                }
+            });
+
         addFactory(Type.get(Indicator.class), new SerializableFactory() {
             @Override
             public Serializable make() {
@@ -92,6 +114,36 @@ public class GlobalSerializableFactoryProvider
             }
         });
 
+        addFactory(Type.get(Statistics.class), new SerializableFactory() {
+            @Override
+            public Serializable make() {
+                return new Statistics();
+            }
+        });
+
+        addFactory(
+            Type.get(RegionAggregate.class),
+            new SerializableFactory() {
+                @Override
+                public Serializable make() {
+                    return new RegionAggregate();
+                }
+            });
+
+        addFactory(Type.get(SeriesFilter.class), new SerializableFactory() {
+            @Override
+            public Serializable make() {
+                return new SeriesFilter();
+            }
+        });
+
+        addFactory(Type.get(SeriesMatrix.class), new SerializableFactory() {
+            @Override
+            public Serializable make() {
+                return new SeriesMatrix();
+            }
+        });
+
         addFactory(
             Type.get(HistoryState.class),
             new SerializableFactory() {
@@ -109,6 +161,9 @@ public class GlobalSerializableFactoryProvider
                     return new HistoryStateData();
                 }
             });
+
+        addCodec(Point.class, new Point.Codec());
+        addCodec(Series.class, new Series.Codec());
     }
 
     /*
@@ -26,9 +26,14 @@ import java.util.List;
 import rpc.client.ClientRequest;
 import rpc.shared.data.Type;
 
+import models.CorrelationSearch;
 import models.Country;
 import models.Indicator;
+import models.RegionAggregate;
 import models.Series;
+import models.SeriesFilter;
+import models.SeriesMatrix;
+import models.Statistics;
 
 import client.managers.history.HistoryState;
 import client.managers.history.HistoryStateData;
@@ -56,6 +61,21 @@ public class WBIExplorationService {
             .send();
     }
 
+    /**
+     * @see services.WBIExplorationService#queryIndicatorListByFacets
+     */
+    public static ClientRequest<List<Indicator>> queryIndicatorListByFacets(
+            String query, Long topicId, Long sourceId,
+            ClientRequest.Listener<List<Indicator>> listener) {
+
+        return new ClientRequest<List<Indicator>>(
+                CLASS_NAME, "queryIndicatorListByFacets")
+            .setArguments(query, topicId, sourceId)
+            .setExpected(Type.get(List.class, Type.get(Indicator.class)))
+            .addListener(listener)
+            .send();
+    }
+
     /**
      * @see services.WBIExplorationService#queryCountryList
      */
@@ -83,6 +103,116 @@ public class WBIExplorationService {
             .send();
     }
 
+    /**
+     * @see services.WBIExplorationService#queryFilteredSeriesList
+     */
+    public static ClientRequest<List<Series>> queryFilteredSeriesList(
+            Long indicatorId, Integer startYear, Integer endYear,
+            SeriesFilter filter,
+            ClientRequest.Listener<List<Series>> listener) {
+
+        return new ClientRequest<List<Series>>(
+                CLASS_NAME, "queryFilteredSeriesList")
+            .setArguments(indicatorId, startYear, endYear, filter)
+            .setExpected(Type.get(List.class, Type.get(Series.class)))
+            .addListener(listener)
+            .send();
+    }
+
+    /**
+     * @see services.WBIExplorationService#querySeriesMatrix
+     */
+    public static ClientRequest<SeriesMatrix> querySeriesMatrix(
+            List<Long> indicatorIds, List<String> countryISOList,
+            Integer startYear, Integer endYear,
+            ClientRequest.Listener<SeriesMatrix> listener) {
+
+        return new ClientRequest<SeriesMatrix>(
+                CLASS_NAME, "querySeriesMatrix")
+            .setArguments(indicatorIds, countryISOList, startYear, endYear)
+            .setExpected(Type.get(SeriesMatrix.class))
+            .addListener(listener)
+            .send();
+    }
+
+    /**
+     * @see services.WBIExplorationService#queryRegionAggregateList
+     */
+    public static ClientRequest<List<RegionAggregate>>
+            queryRegionAggregateList(
+                Long indicatorId, Integer startYear, Integer endYear,
+                ClientRequest.Listener<List<RegionAggregate>> listener) {
+
+        return new ClientRequest<List<RegionAggregate>>(
+                CLASS_NAME, "queryRegionAggregateList")
+            .setArguments(indicatorId, startYear, endYear)
+            .setExpected(
+                Type.get(List.class, Type.get(RegionAggregate.class)))
+            .addListener(listener)
+            .send();
+    }
+
+    /**
+     * @see services.WBIExplorationService#startCorrelationSearch
+     */
+    public static ClientRequest<CorrelationSearch> startCorrelationSearch(
+            Long indicatorId, Integer startYear, Integer endYear,
+            Integer limit,
+            ClientRequest.Listener<CorrelationSearch> listener) {
+
+        return new ClientRequest<CorrelationSearch>(
+                CLASS_NAME, "startCorrelationSearch")
+            .setArguments(indicatorId, startYear, endYear, limit)
+            .setExpected(Type.get(CorrelationSearch.class))
+            .addListener(listener)
+            .send();
+    }
+
+    /**
+     * @see services.WBIExplorationService#getCorrelationSearch
+     */
+    public static ClientRequest<CorrelationSearch> getCorrelationSearch(
+            String ident,
+            ClientRequest.Listener<CorrelationSearch> listener) {
+
+        return new ClientRequest<CorrelationSearch>(
+                CLASS_NAME, "getCorrelationSearch")
+            .setArguments(ident)
+            .setExpected(Type.get(CorrelationSearch.class))
+            .addListener(listener)
+            .send();
+    }
+
+    /**
+     * @see services.WBIExplorationService#cancelCorrelationSearch
+     */
+    public static ClientRequest<CorrelationSearch> cancelCorrelationSearch(
+            String ident,
+            ClientRequest.Listener<CorrelationSearch> listener) {
+
+        return new ClientRequest<CorrelationSearch>(
+                CLASS_NAME, "cancelCorrelationSearch")
+            .setArguments(ident)
+            .setExpected(Type.get(CorrelationSearch.class))
+            .addListener(listener)
+            .send();
+    }
+
+    /**
+     * @see services.WBIExplorationService#queryStatisticsList
+     */
+    public static ClientRequest<List<Statistics>> queryStatisticsList(
+            Long indicatorId, Integer startYear, Integer endYear,
+            ClientRequest.Listener<List<Statistics>> listener) {
+
+        return new ClientRequest<List<Statistics>>(
+                CLASS_NAME, "queryStatisticsList")
+            .setArguments(indicatorId, startYear, endYear)
+            .setExpected(Type.get(List.class, Type.get(Statistics.class)))
+            .addListener(listener)
+            .send();
+    }
+
     /**
      * @see services.WBIExplorationService#getStateData
      */
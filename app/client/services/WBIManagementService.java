@@ -76,4 +76,17 @@ public class WBIManagementService {
             .addListener(listener)
             .send();
     }
+
+    /**
+     * @see services.WBIManagementService#importArchive
+     */
+    public static ClientRequest<Boolean> importArchive(
+            ClientRequest.Listener<Boolean> listener) {
+
+        return new ClientRequest<Boolean>(CLASS_NAME, "importArchive")
+            .setArguments()
+            .setExpected(Type.get(Boolean.class))
+            .addListener(listener)
+            .send();
+    }
 }
@@ -26,17 +26,52 @@ import play.mvc.Http.Request;
 import rpc.server.GlobalHandler;
 import rpc.server.data.JSONSerializer;
 import rpc.server.invoke.Invoker;
+import rpc.server.registry.Registry;
+import rpc.server.registry.RegistryException;
+import rpc.shared.data.Serializable;
 import rpc.shared.data.Serializer;
 
+import models.Model;
+
+import data.store.ReferenceCatalog;
+
+import services.WBIExplorationService;
+import services.WBIManagementService;
+
 import client.ClientConf;
 import client.GlobalSerializableFactoryProvider;
 
 public class ServerConf {
-    public static Serializer defaultSerializer =
-        new JSONSerializer(GlobalSerializableFactoryProvider.get());
+    public static Serializer defaultSerializer = createSerializer();
+
+    private static Serializer createSerializer() {
+        JSONSerializer serializer =
+            new JSONSerializer(GlobalSerializableFactoryProvider.get());
+
+        // Resolve references sent by clients to the catalog instances
+        serializer.setResolver(new JSONSerializer.Resolver() {
+            @Override
+            public Serializable resolve(Serializable object) {
+                if (object instanceof Model) {
+                    return ReferenceCatalog.get().resolve((Model) object);
+                }
+                return object;
+            }
+        });
+
+        return serializer;
+    }
 
     public static void configureRPC() {
         GlobalHandler.setDefaultInvoker(new Invoker(defaultSerializer));
+
+        try {
+            Registry.get().register(WBIExplorationService.class);
+            Registry.get().register(WBIManagementService.class);
+        } catch (RegistryException exception) {
+            // A broken service must not leave the application running
+            throw new IllegalStateException(exception);
+        }
     }
 
     private static ClientConf.Configuration loadConfiguration(Request request) {
@@ -21,9 +21,12 @@
 
 package controllers.rpc;
 
+import play.mvc.BodyParser;
+
 import rpc.server.controllers.play.BaseHTTPController;
 
 public class HTTPController extends BaseHTTPController {
+    @BodyParser.Of(BodyParser.TolerantText.class)
     public static play.mvc.Result call() {
         return BaseHTTPController.call();
     }
@@ -0,0 +1,675 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import play.Configuration;
+
+import models.Correlation;
+import models.CorrelationSearch;
+import models.Indicator;
+import models.Series;
+
+import data.store.CatalogIndex;
+import data.store.ColumnStore;
+import data.store.SearchIndex;
+import data.store.SeriesStore;
+import data.tasks.ColumnStoreTask;
+import data.tasks.TaskScheduler;
+
+/**
+ * Search for the loaded indicators whose values move with those of an
+ * indicator.
+ *
+ * For every candidate indicator, Pearson and Spearman correlations are
+ * computed per country over the years both indicators have values for,
+ * then averaged over countries. Candidates are read from the column store,
+ * skipping and counting those not in it yet, and compared in parallel on a
+ * fork-join pool, with each leaf task comparing a slice of the candidates
+ * against a matrix of the searched indicator, whose means and ranks are
+ * computed once per search. Searches run asynchronously, report their
+ * progress and can be cancelled, and at most
+ * {@link Settings#MAX_SEARCHES} run at once.
+ */
+public class CorrelationEngine {
+    public static class Settings {
+        /**
+         * Number of threads comparing indicators.
+         */
+        public static int PARALLELISM =
+            Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Minimum number of years with values in both indicators for a
+         * country to be taken into account.
+         */
+        public static int MIN_OVERLAP = 5;
+
+        /**
+         * Maximum number of candidates compared by a single task.
+         */
+        public static int THRESHOLD = 16;
+
+        /**
+         * Milliseconds a finished search is kept for retrieval.
+         */
+        public static long RETENTION = 600000;
+
+        /**
+         * Maximum number of searches running at once.
+         */
+        public static int MAX_SEARCHES = 2;
+
+        public static void configure(Configuration configuration) {
+            if (configuration == null) {
+                return;
+            }
+
+            PARALLELISM = configuration.getInt("parallelism", PARALLELISM);
+            MIN_OVERLAP = configuration.getInt("minOverlap", MIN_OVERLAP);
+            THRESHOLD = configuration.getInt("threshold", THRESHOLD);
+            RETENTION = configuration.getLong("retention", RETENTION);
+            MAX_SEARCHES = configuration.getInt(
+                "maxSearches", MAX_SEARCHES);
+        }
+    }
+
+    /**
+     * Search in progress or finished.
+     */
+    private static class Search {
+        private final String ident = UUID.randomUUID().toString();
+        private final long created = System.currentTimeMillis();
+
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private volatile int total;
+
+        private volatile boolean cancelled;
+        private volatile CorrelationSearch.Status status =
+            CorrelationSearch.Status.RUNNING;
+
+        private volatile List<Correlation> correlations;
+
+        private volatile long finished;
+
+        private void finish(
+                CorrelationSearch.Status status,
+                List<Correlation> correlations) {
+
+            this.correlations = correlations;
+            this.finished = System.currentTimeMillis();
+            this.status = status;
+        }
+
+        private CorrelationSearch getState() {
+            return new CorrelationSearch(
+                ident, status, completed.get(), total, skipped.get(),
+                correlations);
+        }
+    }
+
+    private static ForkJoinPool pool;
+
+    private static ConcurrentMap<String, Search> searches =
+        new ConcurrentHashMap<String, Search>();
+
+    /**
+     * Number of searches running.
+     */
+    private static AtomicInteger running = new AtomicInteger();
+
+    private static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(Math.max(1, Settings.PARALLELISM));
+        }
+
+        return pool;
+    }
+
+    /**
+     * Values of the searched indicator aligned on the compared interval in
+     * a row-major matrix with {@code NaN} for missing years, along with the
+     * mean and ranks of the values of every row, which are reused for every
+     * candidate.
+     */
+    private static class Target {
+        private final int startYear;
+        private final int years;
+
+        private final Map<Long, Integer> rows = new HashMap<Long, Integer>();
+
+        private final double[] values;
+        private final int[] counts;
+        private final double[] means;
+        private final double[][] ranks;
+
+        public Target(List<Series> seriesList, int startYear, int endYear) {
+            // Narrow the interval to the years the searched indicator has
+            // values for
+            int dataStartYear = Integer.MAX_VALUE;
+            int dataEndYear = Integer.MIN_VALUE;
+
+            for (Series series : seriesList) {
+                dataStartYear = Math.min(
+                    dataStartYear, series.getBaseYear());
+                dataEndYear = Math.max(
+                    dataEndYear,
+                    series.getBaseYear() + series.getValues().length - 1);
+            }
+
+            this.startYear = Math.max(startYear, dataStartYear);
+            this.years = Math.max(
+                0, Math.min(endYear, dataEndYear) - this.startYear + 1);
+
+            for (Series series : seriesList) {
+                if (series.getCountry() != null) {
+                    rows.put(series.getCountry().getId(), rows.size());
+                }
+            }
+
+            values = new double[rows.size() * years];
+            Arrays.fill(values, Double.NaN);
+
+            counts = new int[rows.size()];
+            means = new double[rows.size()];
+            ranks = new double[rows.size()][];
+
+            for (Series series : seriesList) {
+                if (series.getCountry() == null) {
+                    continue;
+                }
+
+                int row = rows.get(series.getCountry().getId());
+
+                double[] seriesValues = series.getValues();
+                int offset = series.getBaseYear() - this.startYear;
+
+                for (int i = 0; i < seriesValues.length; i++) {
+                    if (offset + i >= 0 && offset + i < years) {
+                        values[row * years + offset + i] = seriesValues[i];
+                    }
+                }
+            }
+
+            double[] rowValues = new double[years];
+
+            for (int row = 0; row < counts.length; row++) {
+                int n = 0;
+                double sum = 0;
+
+                for (int i = 0; i < years; i++) {
+                    double value = values[row * years + i];
+                    if (!Double.isNaN(value)) {
+                        rowValues[n++] = value;
+                        sum += value;
+                    }
+                }
+
+                counts[row] = n;
+                means[row] = n == 0 ? 0 : sum / n;
+                ranks[row] = rank(rowValues, n);
+            }
+        }
+    }
+
+    private static double pearson(double[] x, double[] y, int n) {
+        double sumX = 0;
+        double sumY = 0;
+
+        for (int i = 0; i < n; i++) {
+            sumX += x[i];
+            sumY += y[i];
+        }
+
+        double meanX = sumX / n;
+        double meanY = sumY / n;
+
+        double sumXX = 0;
+        double sumYY = 0;
+        double sumXY = 0;
+
+        for (int i = 0; i < n; i++) {
+            double dx = x[i] - meanX;
+            double dy = y[i] - meanY;
+
+            sumXX += dx * dx;
+            sumYY += dy * dy;
+            sumXY += dx * dy;
+        }
+
+        if (sumXX == 0 || sumYY == 0) {
+            return Double.NaN;
+        }
+
+        return sumXY / Math.sqrt(sumXX * sumYY);
+    }
+
+    /**
+     * Rank values, giving tied values the mean of their ranks.
+     */
+    private static double[] rank(final double[] values, int n) {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(values[a], values[b]);
+            }
+        });
+
+        double[] ranks = new double[n];
+
+        int i = 0;
+        while (i < n) {
+            int j = i;
+            while (j + 1 < n && values[order[j + 1]] == values[order[i]]) {
+                j++;
+            }
+
+            double rank = (i + j) / 2.0 + 1;
+            for (int k = i; k <= j; k++) {
+                ranks[order[k]] = rank;
+            }
+
+            i = j + 1;
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Correlate a candidate indicator with the searched indicator.
+     *
+     * @param x Buffer of at least {@code target.years} values.
+     * @param y Buffer of at least {@code target.years} values.
+     * @return Correlation, or {@code null} if no country has enough
+     *         years with values in both indicators.
+     */
+    private static Correlation correlate(
+            Indicator indicator, Target target, ColumnStore.Matrix candidate,
+            double[] x, double[] y) {
+
+        int years = target.years;
+
+        // Candidate column of the first compared year
+        int shift = target.startYear - candidate.getBaseYear();
+
+        int first = Math.max(0, -shift);
+        int last = Math.min(years, candidate.getYears() - shift);
+
+        double sumPearson = 0;
+        double sumSpearman = 0;
+        double sumStrength = 0;
+        int count = 0;
+
+        for (int row = 0; row < candidate.getRows(); row++) {
+            Integer targetRow = target.rows.get(candidate.getCountryId(row));
+
+            if (targetRow == null || target.counts[targetRow] <
+                    Settings.MIN_OVERLAP) {
+                continue;
+            }
+
+            int targetOffset = targetRow * years;
+
+            // Sums are taken around the target mean and the first candidate
+            // value to avoid cancellation on large values
+            double meanX = target.means[targetRow];
+            double firstY = Double.NaN;
+
+            double sumX = 0;
+            double sumY = 0;
+            double sumXX = 0;
+            double sumYY = 0;
+            double sumXY = 0;
+
+            int n = 0;
+
+            for (int i = first; i < last; i++) {
+                double targetValue = target.values[targetOffset + i];
+                if (Double.isNaN(targetValue)) {
+                    continue;
+                }
+
+                double candidateValue = candidate.getValue(row, i + shift);
+                if (Double.isNaN(candidateValue)) {
+                    continue;
+                }
+
+                if (n == 0) {
+                    firstY = candidateValue;
+                }
+
+                double dx = targetValue - meanX;
+                double dy = candidateValue - firstY;
+
+                sumX += dx;
+                sumY += dy;
+                sumXX += dx * dx;
+                sumYY += dy * dy;
+                sumXY += dx * dy;
+
+                x[n] = targetValue;
+                y[n] = candidateValue;
+                n++;
+            }
+
+            if (n < Settings.MIN_OVERLAP) {
+                continue;
+            }
+
+            double varianceX = sumXX - sumX * sumX / n;
+            double varianceY = sumYY - sumY * sumY / n;
+
+            if (varianceX <= 0 || varianceY <= 0) {
+                continue;
+            }
+
+            double r = (sumXY - sumX * sumY / n) /
+                Math.sqrt(varianceX * varianceY);
+
+            // Ranks of the searched values are reused when the candidate
+            // has values for every year the searched country has
+            double[] rankX = n == target.counts[targetRow] ?
+                target.ranks[targetRow] : rank(x, n);
+
+            double rho = pearson(rankX, rank(y, n), n);
+
+            sumPearson += r;
+            sumSpearman += Double.isNaN(rho) ? 0 : rho;
+            sumStrength += Math.abs(r);
+            count++;
+        }
+
+        if (count == 0) {
+            return null;
+        }
+
+        return new Correlation(
+            indicator, sumPearson / count, sumSpearman / count,
+            sumStrength / count, count);
+    }
+
+    /**
+     * Task comparing a slice of the candidates.
+     */
+    @SuppressWarnings("serial")
+    private static class CompareTask
+        extends RecursiveTask<List<Correlation>> {
+
+        private final Search search;
+        private final Target target;
+        private final List<Indicator> candidates;
+        private final int from;
+        private final int to;
+
+        public CompareTask(
+                Search search, Target target,
+                List<Indicator> candidates, int from, int to) {
+
+            this.search = search;
+            this.target = target;
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Correlation> compute() {
+            List<Correlation> correlations = new ArrayList<Correlation>();
+
+            if (to - from > Settings.THRESHOLD) {
+                int middle = (from + to) >>> 1;
+
+                CompareTask left = new CompareTask(
+                    search, target, candidates, from, middle);
+                CompareTask right = new CompareTask(
+                    search, target, candidates, middle, to);
+
+                left.fork();
+                correlations.addAll(right.compute());
+                correlations.addAll(left.join());
+
+                return correlations;
+            }
+
+            double[] x = new double[target.years];
+            double[] y = new double[target.years];
+
+            for (int i = from; i < to && !search.cancelled; i++) {
+                Indicator indicator = candidates.get(i);
+
+                // Candidates are read from the mapped files only. Those not
+                // in the store yet are skipped and their files are built
+                // for later searches, rather than querying the database
+                ColumnStore.Matrix matrix =
+                    ColumnStore.getMatrix(indicator.getId());
+
+                if (matrix != null) {
+                    Correlation correlation = correlate(
+                        indicator, target, matrix, x, y);
+
+                    if (correlation != null) {
+                        correlations.add(correlation);
+                    }
+                } else {
+                    TaskScheduler.submit(
+                        ColumnStoreTask.getKey(indicator.getId()),
+                        new ColumnStoreTask(indicator.getId()),
+                        TaskScheduler.Priority.BACKGROUND);
+
+                    search.skipped.incrementAndGet();
+                }
+
+                search.completed.incrementAndGet();
+            }
+
+            return correlations;
+        }
+    }
+
+    /**
+     * Discard finished searches past their retention.
+     */
+    private static void purge() {
+        long now = System.currentTimeMillis();
+
+        Iterator<Search> iterator = searches.values().iterator();
+        while (iterator.hasNext()) {
+            Search search = iterator.next();
+
+            if (search.finished > 0 &&
+                    now - search.finished > Settings.RETENTION) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Start a search.
+     *
+     * @param indicatorId ID of the searched indicator.
+     * @param startYear Start year of the compared interval.
+     * @param endYear End year of the compared interval.
+     * @param limit Maximum number of correlations in the result, or
+     *              {@code null} for every correlation.
+     * @return Initial state of the search, failed if the interval is
+     *         invalid, the column store is disabled or too many searches
+     *         are running.
+     */
+    public static CorrelationSearch start(
+            Long indicatorId, Integer startYear, Integer endYear,
+            Integer limit) {
+
+        purge();
+
+        final Search search = new Search();
+        searches.put(search.ident, search);
+
+        if (indicatorId == null || startYear == null || endYear == null ||
+                startYear > endYear || !ColumnStore.Settings.ENABLED) {
+            search.finish(CorrelationSearch.Status.FAILED, null);
+            return search.getState();
+        }
+
+        if (running.incrementAndGet() > Settings.MAX_SEARCHES) {
+            running.decrementAndGet();
+            search.finish(CorrelationSearch.Status.FAILED, null);
+            return search.getState();
+        }
+
+        final Long targetId = indicatorId;
+        final int searchStartYear = startYear;
+        final int searchEndYear = endYear;
+        final int searchLimit = limit == null ? -1 : limit;
+
+        List<Indicator> candidates = new ArrayList<Indicator>();
+
+        SearchIndex<Indicator> index = CatalogIndex.getIndicatorIndex();
+        if (index != null) {
+            for (Indicator indicator : index.getItems()) {
+                if (indicator.isReady() && !indicatorId.equals(
+                        indicator.getId())) {
+                    candidates.add(indicator);
+                }
+            }
+        }
+
+        final List<Indicator> searchCandidates = candidates;
+        search.total = candidates.size();
+
+        getPool().execute(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                try {
+                    List<Series> seriesList = SeriesStore.get(
+                        targetId, searchStartYear, searchEndYear);
+
+                    if (seriesList == null) {
+                        search.finish(CorrelationSearch.Status.FAILED, null);
+                        return;
+                    }
+
+                    Target target = new Target(
+                        seriesList, searchStartYear, searchEndYear);
+
+                    List<Correlation> correlations = new CompareTask(
+                        search, target, searchCandidates,
+                        0, searchCandidates.size()).invoke();
+
+                    if (search.cancelled) {
+                        search.finish(
+                            CorrelationSearch.Status.CANCELLED, null);
+                        return;
+                    }
+
+                    Collections.sort(
+                        correlations, new Comparator<Correlation>() {
+                            @Override
+                            public int compare(
+                                    Correlation a, Correlation b) {
+                                return b.getStrength().compareTo(
+                                    a.getStrength());
+                            }
+                        });
+
+                    if (searchLimit >= 0 &&
+                            correlations.size() > searchLimit) {
+                        correlations = new ArrayList<Correlation>(
+                            correlations.subList(0, searchLimit));
+                    }
+
+                    search.finish(
+                        CorrelationSearch.Status.DONE, correlations);
+
+                } catch (RuntimeException exception) {
+                    exception.printStackTrace();
+                    search.finish(CorrelationSearch.Status.FAILED, null);
+
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        });
+
+        return search.getState();
+    }
+
+    /**
+     * Get the state of a search.
+     *
+     * @param ident Identifier of the search.
+     * @return State, or {@code null} if the search is unknown.
+     */
+    public static CorrelationSearch get(String ident) {
+        Search search = searches.get(ident);
+        return search == null ? null : search.getState();
+    }
+
+    /**
+     * Cancel a search.
+     *
+     * @param ident Identifier of the search.
+     * @return State, or {@code null} if the search is unknown.
+     */
+    public static CorrelationSearch cancel(String ident) {
+        Search search = searches.get(ident);
+
+        if (search == null) {
+            return null;
+        }
+
+        search.cancelled = true;
+        return search.getState();
+    }
+
+    /**
+     * Stop the pool, abandoning running searches.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Analyses over the data of loaded indicators.
+ */
+
+package data.analysis;
@@ -21,17 +21,31 @@
 
 package data.api;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 
+import play.Configuration;
+
 public class HTTP {
     public static class URL {
         public static URI get(URI uri, String[][] params)
@@ -65,24 +79,179 @@ public class HTTP {
         }
     } 
 
-    public static String get(String url) {
-        String response = null;
+    public static class Settings {
+        public static int MAX_TOTAL = 32;
+        public static int MAX_PER_ROUTE = 16;
 
-        try {
-            CloseableHttpClient client = HttpClients.createDefault();
-            HttpEntity entity = client.execute(new HttpGet(url)).getEntity();
+        public static int CONNECT_TIMEOUT = 10000;
+        public static int SOCKET_TIMEOUT = 60000;
+        public static int CONNECTION_REQUEST_TIMEOUT = 60000;
+
+        public static long KEEP_ALIVE = 30000;
+
+        public static void configure(Configuration configuration) {
+            if (configuration == null) {
+                return;
+            }
+
+            MAX_TOTAL = configuration.getInt(
+                "maxTotal", MAX_TOTAL);
+            MAX_PER_ROUTE = configuration.getInt(
+                "maxPerRoute", MAX_PER_ROUTE);
+
+            CONNECT_TIMEOUT = configuration.getInt(
+                "connectTimeout", CONNECT_TIMEOUT);
+            SOCKET_TIMEOUT = configuration.getInt(
+                "socketTimeout", SOCKET_TIMEOUT);
+            CONNECTION_REQUEST_TIMEOUT = configuration.getInt(
+                "connectionRequestTimeout", CONNECTION_REQUEST_TIMEOUT);
+
+            KEEP_ALIVE = configuration.getLong(
+                "keepAlive", KEEP_ALIVE);
+        }
+    }
+
+    public interface ResponseHandler<T> {
+        T handle(InputStream stream) throws IOException;
+    }
+
+    private static PoolingHttpClientConnectionManager connectionManager;
+    private static CloseableHttpClient client;
+
+    private static ConnectionKeepAliveStrategy keepAliveStrategy =
+        new DefaultConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(
+                    HttpResponse response, HttpContext context) {
 
-            if (entity != null) {
-                response = EntityUtils.toString(entity);
+                long duration = super.getKeepAliveDuration(response, context);
+
+                if (duration < 0 || duration > Settings.KEEP_ALIVE) {
+                    return Settings.KEEP_ALIVE;
+                }
+
+                return duration;
             }
+        };
+
+    public static synchronized CloseableHttpClient getClient() {
+        if (client == null) {
+            connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(Settings.MAX_TOTAL);
+            connectionManager.setDefaultMaxPerRoute(Settings.MAX_PER_ROUTE);
+
+            RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(Settings.CONNECT_TIMEOUT)
+                .setSocketTimeout(Settings.SOCKET_TIMEOUT)
+                .setConnectionRequestTimeout(
+                    Settings.CONNECTION_REQUEST_TIMEOUT)
+                .setStaleConnectionCheckEnabled(true)
+                .build();
+
+            client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .build();
+        }
+
+        return client;
+    }
 
+    public static synchronized void shutdown() {
+        if (client == null) {
+            return;
+        }
+
+        try {
             client.close();
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
+
+        client = null;
+        connectionManager = null;
+    }
+
+    public static boolean isSuccess(int status) {
+        return status >= HttpStatus.SC_OK &&
+            status < HttpStatus.SC_MULTIPLE_CHOICES;
+    }
+
+    /**
+     * Fail on statuses other than 2xx so that callers retry instead of
+     * handing an error page to the response handler.
+     */
+    static void checkStatus(HttpResponse response) throws IOException {
+        StatusLine statusLine = response.getStatusLine();
+
+        if (!isSuccess(statusLine.getStatusCode())) {
+            EntityUtils.consume(response.getEntity());
+
+            throw new HttpResponseException(
+                statusLine.getStatusCode(), statusLine.getReasonPhrase());
+        }
+    }
+
+    public static String get(String url) {
+        return get(url, new ResponseHandler<String>() {
+            @Override
+            public String handle(InputStream stream) throws IOException {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+
+                int length;
+                while ((length = stream.read(buffer)) != -1) {
+                    output.write(buffer, 0, length);
+                }
+
+                return output.toString("UTF-8");
+            }
+        });
+    }
+
+    public static <T> T get(String url, ResponseHandler<T> handler) {
+        if (ResponseCache.isEnabled()) {
+            try {
+                return ResponseCache.get(url, handler);
+            } catch (IOException exception) {
+                exception.printStackTrace();
+                return null;
+            }
+        }
+
+        T result = null;
+
+        try {
+            CloseableHttpResponse response =
+                getClient().execute(new HttpGet(url));
+
+            try {
+                checkStatus(response);
+
+                HttpEntity entity = response.getEntity();
+
+                if (entity != null) {
+                    InputStream stream = entity.getContent();
+
+                    try {
+                        result = handler.handle(stream);
+                    } finally {
+                        // Closing the content stream consumes what is left
+                        // of the entity and releases the connection back to
+                        // the pool for reuse
+                        stream.close();
+                    }
+                }
+            } finally {
+                response.close();
+            }
 
         } catch (IOException exception) {
             exception.printStackTrace();
             return null;
         }
 
-        return response;
+        return result;
     }
 }
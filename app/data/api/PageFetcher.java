@@ -0,0 +1,215 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import play.Configuration;
+
+public class PageFetcher {
+    public static class Settings {
+        public static String PAGE = "page";
+
+        public static int THREADS = 4;
+
+        public static int MAX_ATTEMPTS = 4;
+        public static long BACKOFF = 500;
+
+        public static double RATE = 10.0;
+        public static double BURST = 10.0;
+
+        public static void configure(Configuration configuration) {
+            if (configuration == null) {
+                return;
+            }
+
+            THREADS = configuration.getInt("threads", THREADS);
+
+            MAX_ATTEMPTS = configuration.getInt("maxAttempts", MAX_ATTEMPTS);
+            BACKOFF = configuration.getLong("backoff", BACKOFF);
+
+            RATE = configuration.getDouble("rate", RATE);
+            BURST = configuration.getDouble("burst", BURST);
+        }
+    }
+
+    public static class Page<T> {
+        private int pages;
+        private T content;
+
+        public Page(int pages, T content) {
+            this.pages = pages;
+            this.content = content;
+        }
+
+        public int getPages() {
+            return pages;
+        }
+
+        public T getContent() {
+            return content;
+        }
+    }
+
+    public interface PageReader<T> {
+        Page<T> read(InputStream stream) throws IOException;
+    }
+
+    private static ExecutorService executor;
+    private static RateLimiter rateLimiter;
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(
+                Settings.THREADS, new ThreadFactory() {
+                    private AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(
+                            runnable,
+                            "wbi-fetch-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        }
+
+        return executor;
+    }
+
+    private static synchronized RateLimiter getRateLimiter() {
+        if (rateLimiter == null) {
+            rateLimiter = new RateLimiter(Settings.RATE, Settings.BURST);
+        }
+
+        return rateLimiter;
+    }
+
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+
+        rateLimiter = null;
+    }
+
+    private static <T> Page<T> fetchPage(
+            String url, int page, PageReader<T> reader)
+        throws InterruptedException {
+
+        final PageReader<T> pageReader = reader;
+
+        String pageURL = HTTP.URL.get(url, new String[][] {
+            {Settings.PAGE, Integer.toString(page)}
+        }).toString();
+
+        for (int attempt = 0; attempt < Settings.MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                Thread.sleep(Settings.BACKOFF << (attempt - 1));
+            }
+
+            getRateLimiter().acquire();
+
+            Page<T> result = HTTP.get(
+                pageURL, new HTTP.ResponseHandler<Page<T>>() {
+                    @Override
+                    public Page<T> handle(InputStream stream)
+                        throws IOException {
+
+                        return pageReader.read(stream);
+                    }
+                });
+
+            if (result != null) {
+                return result;
+            }
+        }
+
+        return null;
+    }
+
+    public static <T> List<T> fetch(String url, PageReader<T> reader) {
+        final String fetchURL = url;
+        final PageReader<T> fetchReader = reader;
+
+        List<Future<Page<T>>> futures = new ArrayList<Future<Page<T>>>();
+
+        try {
+            Page<T> first = fetchPage(fetchURL, 1, fetchReader);
+            if (first == null) {
+                return null;
+            }
+
+            // Remaining pages share the executor and the rate limiter with
+            // every other fetch in progress
+            for (int page = 2; page <= first.getPages(); page++) {
+                final int fetchPage = page;
+
+                futures.add(getExecutor().submit(new Callable<Page<T>>() {
+                    @Override
+                    public Page<T> call() throws Exception {
+                        return fetchPage(fetchURL, fetchPage, fetchReader);
+                    }
+                }));
+            }
+
+            List<T> contents = new ArrayList<T>();
+            contents.add(first.getContent());
+
+            for (Future<Page<T>> future : futures) {
+                Page<T> page = future.get();
+                if (page == null) {
+                    return null;
+                }
+
+                contents.add(page.getContent());
+            }
+
+            return contents;
+
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return null;
+
+        } catch (ExecutionException exception) {
+            exception.printStackTrace();
+            return null;
+
+        } finally {
+            for (Future<Page<T>> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.api;
+
+import java.util.concurrent.TimeUnit;
+
+public class RateLimiter {
+    private final double rate;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill;
+
+    public RateLimiter(double rate, double capacity) {
+        this.rate = rate;
+        this.capacity = capacity;
+
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsed =
+            (now - lastRefill) / (double) TimeUnit.SECONDS.toNanos(1);
+
+        tokens = Math.min(capacity, tokens + elapsed * rate);
+        lastRefill = now;
+    }
+
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long wait;
+
+            synchronized (this) {
+                refill();
+
+                if (tokens >= 1.0) {
+                    tokens -= 1.0;
+                    return;
+                }
+
+                wait = (long) Math.ceil(
+                    (1.0 - tokens) / rate * TimeUnit.SECONDS.toMillis(1));
+            }
+
+            Thread.sleep(Math.max(wait, 1));
+        }
+    }
+}
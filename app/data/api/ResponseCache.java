@@ -0,0 +1,515 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.api;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+
+import play.Configuration;
+
+public class ResponseCache {
+    public static class Settings {
+        public static boolean ENABLED = true;
+
+        public static String DIRECTORY = "cache/http";
+
+        public static long TTL = TimeUnit.HOURS.toSeconds(12);
+        public static long MAX_SIZE = 1L << 30;
+
+        public static void configure(Configuration configuration) {
+            if (configuration == null) {
+                return;
+            }
+
+            ENABLED = configuration.getBoolean("enabled", ENABLED);
+
+            DIRECTORY = configuration.getString("directory", DIRECTORY);
+
+            TTL = configuration.getLong("ttl", TTL);
+            MAX_SIZE = configuration.getLong("maxSize", MAX_SIZE);
+        }
+    }
+
+    public static class Metrics {
+        private long hits;
+        private long misses;
+        private long revalidations;
+        private long evictions;
+        private long entries;
+        private long size;
+
+        private Metrics() {
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getRevalidations() {
+            return revalidations;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getEntries() {
+            return entries;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public double getHitRate() {
+            long total = hits + revalidations + misses;
+            if (total == 0) {
+                return 0;
+            }
+            return (hits + revalidations) / (double) total;
+        }
+    }
+
+    private static class Entry {
+        private static String URL = "url";
+        private static String ETAG = "etag";
+        private static String LAST_MODIFIED = "lastModified";
+        private static String FETCHED = "fetched";
+        private static String SIZE = "size";
+
+        private String key;
+        private String url;
+        private String etag;
+        private String lastModified;
+        private volatile long fetched;
+        private long size;
+
+        public Entry(String key, String url) {
+            this.key = key;
+            this.url = url;
+        }
+
+        public boolean isFresh() {
+            return System.currentTimeMillis() - fetched <
+                TimeUnit.SECONDS.toMillis(Settings.TTL);
+        }
+
+        public Path getBodyPath() {
+            return getDirectory().resolve(key + ".gz");
+        }
+
+        public Path getMetaPath() {
+            return getDirectory().resolve(key + ".properties");
+        }
+
+        public void writeMeta() throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty(URL, url);
+            if (etag != null) {
+                properties.setProperty(ETAG, etag);
+            }
+            if (lastModified != null) {
+                properties.setProperty(LAST_MODIFIED, lastModified);
+            }
+            properties.setProperty(FETCHED, Long.toString(fetched));
+            properties.setProperty(SIZE, Long.toString(size));
+
+            Path temp = Files.createTempFile(getDirectory(), key, ".tmp");
+
+            OutputStream stream = Files.newOutputStream(temp);
+            try {
+                properties.store(stream, null);
+            } finally {
+                stream.close();
+            }
+
+            Files.move(temp, getMetaPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        public static Entry readMeta(Path path) throws IOException {
+            Properties properties = new Properties();
+
+            InputStream stream = Files.newInputStream(path);
+            try {
+                properties.load(stream);
+            } finally {
+                stream.close();
+            }
+
+            String fileName = path.getFileName().toString();
+
+            Entry entry = new Entry(
+                fileName.substring(0, fileName.lastIndexOf('.')),
+                properties.getProperty(URL));
+            entry.etag = properties.getProperty(ETAG);
+            entry.lastModified = properties.getProperty(LAST_MODIFIED);
+
+            try {
+                entry.fetched = Long.valueOf(properties.getProperty(FETCHED));
+                entry.size = Long.valueOf(properties.getProperty(SIZE));
+            } catch (NumberFormatException exception) {
+                return null;
+            }
+
+            return entry;
+        }
+
+        public void delete() {
+            try {
+                Files.deleteIfExists(getBodyPath());
+                Files.deleteIfExists(getMetaPath());
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+        }
+    }
+
+    private static Charset CHARSET = Charset.forName("UTF-8");
+
+    private static int BUFFER_SIZE = 1 << 16;
+
+    private static Map<String, Entry> index;
+    private static long size;
+
+    private static AtomicLong hits = new AtomicLong();
+    private static AtomicLong misses = new AtomicLong();
+    private static AtomicLong revalidations = new AtomicLong();
+    private static AtomicLong evictions = new AtomicLong();
+
+    public static boolean isEnabled() {
+        return Settings.ENABLED;
+    }
+
+    private static Path getDirectory() {
+        return Paths.get(Settings.DIRECTORY);
+    }
+
+    private static String getKey(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(url.getBytes(CHARSET));
+
+            StringBuilder builder = new StringBuilder(hash.length * 2);
+            for (byte value : hash) {
+                builder.append(String.format("%02x", value));
+            }
+            return builder.toString();
+
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Get the index of cached entries in least recently used order, reading
+     * it from the cache directory the first time.
+     */
+    private static Map<String, Entry> getIndex() throws IOException {
+        if (index != null) {
+            return index;
+        }
+
+        Path directory = getDirectory();
+        Files.createDirectories(directory);
+
+        List<Entry> entries = new ArrayList<Entry>();
+
+        DirectoryStream<Path> paths =
+            Files.newDirectoryStream(directory, "*.properties");
+        try {
+            for (Path path : paths) {
+                Entry entry = Entry.readMeta(path);
+                if (entry != null && Files.exists(entry.getBodyPath())) {
+                    entries.add(entry);
+                } else {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } finally {
+            paths.close();
+        }
+
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return Long.compare(a.fetched, b.fetched);
+            }
+        });
+
+        index = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+        size = 0;
+
+        for (Entry entry : entries) {
+            index.put(entry.key, entry);
+            size += entry.size;
+        }
+
+        return index;
+    }
+
+    private static synchronized Entry lookup(String key) throws IOException {
+        return getIndex().get(key);
+    }
+
+    private static synchronized void put(Entry entry) throws IOException {
+        Entry previous = getIndex().put(entry.key, entry);
+        if (previous != null) {
+            size -= previous.size;
+        }
+
+        size += entry.size;
+
+        Iterator<Entry> iterator = index.values().iterator();
+        while (size > Settings.MAX_SIZE && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            if (eldest == entry) {
+                continue;
+            }
+
+            iterator.remove();
+            eldest.delete();
+
+            size -= eldest.size;
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Remove an entry and its files unless it was already replaced by a
+     * newer entry for the same URL.
+     */
+    private static synchronized void remove(Entry entry) {
+        if (index == null || index.get(entry.key) != entry) {
+            return;
+        }
+
+        index.remove(entry.key);
+        entry.delete();
+
+        size -= entry.size;
+        evictions.incrementAndGet();
+    }
+
+    private static synchronized void revalidate(Entry entry)
+        throws IOException {
+
+        entry.fetched = System.currentTimeMillis();
+        entry.writeMeta();
+    }
+
+    private static <T> T read(Entry entry, HTTP.ResponseHandler<T> handler)
+        throws IOException {
+
+        InputStream stream;
+
+        try {
+            stream = new GZIPInputStream(new BufferedInputStream(
+                Files.newInputStream(entry.getBodyPath()), BUFFER_SIZE));
+        } catch (NoSuchFileException exception) {
+            remove(entry);
+            throw exception;
+        }
+
+        T result = null;
+
+        try {
+            result = handler.handle(stream);
+            return result;
+        } finally {
+            stream.close();
+
+            // Do not serve a body the handler could not read (such as an
+            // API error page) again on the next attempt
+            if (result == null) {
+                remove(entry);
+            }
+        }
+    }
+
+    private static String getHeader(
+            CloseableHttpResponse response, String name) {
+
+        Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
+    public static <T> T get(String url, HTTP.ResponseHandler<T> handler)
+        throws IOException {
+
+        String key = getKey(url);
+
+        Entry entry = lookup(key);
+        if (entry != null && entry.isFresh()) {
+            hits.incrementAndGet();
+            return read(entry, handler);
+        }
+
+        HttpGet request = new HttpGet(url);
+
+        if (entry != null) {
+            if (entry.etag != null) {
+                request.setHeader(HttpHeaders.IF_NONE_MATCH, entry.etag);
+            }
+            if (entry.lastModified != null) {
+                request.setHeader(
+                    HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified);
+            }
+        }
+
+        CloseableHttpResponse response = HTTP.getClient().execute(request);
+
+        try {
+            int status = response.getStatusLine().getStatusCode();
+
+            if (status == HttpStatus.SC_NOT_MODIFIED && entry != null) {
+                revalidations.incrementAndGet();
+
+                revalidate(entry);
+
+                return read(entry, handler);
+            }
+
+            misses.incrementAndGet();
+
+            HTTP.checkStatus(response);
+
+            HttpEntity httpEntity = response.getEntity();
+            if (httpEntity == null) {
+                return null;
+            }
+
+            InputStream stream = httpEntity.getContent();
+
+            // Successful responses other than 200 are handed over without
+            // caching
+            if (status != HttpStatus.SC_OK) {
+                try {
+                    return handler.handle(stream);
+                } finally {
+                    stream.close();
+                }
+            }
+
+            Entry newEntry = new Entry(key, url);
+            newEntry.etag = getHeader(response, HttpHeaders.ETAG);
+            newEntry.lastModified =
+                getHeader(response, HttpHeaders.LAST_MODIFIED);
+            newEntry.fetched = System.currentTimeMillis();
+
+            Path temp = Files.createTempFile(getDirectory(), key, ".tmp");
+
+            try {
+                OutputStream output = new GZIPOutputStream(
+                    Files.newOutputStream(temp), BUFFER_SIZE);
+
+                try {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+
+                    int length;
+                    while ((length = stream.read(buffer)) != -1) {
+                        output.write(buffer, 0, length);
+                    }
+                } finally {
+                    output.close();
+                    stream.close();
+                }
+
+                newEntry.size = Files.size(temp);
+
+                Files.move(temp, newEntry.getBodyPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            newEntry.writeMeta();
+            put(newEntry);
+
+            return read(newEntry, handler);
+
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Forget the index so that it is read again from the cache directory,
+     * such as after the directory changes.
+     */
+    static synchronized void reset() {
+        index = null;
+        size = 0;
+    }
+
+    public static synchronized Metrics getMetrics() {
+        Metrics metrics = new Metrics();
+
+        metrics.hits = hits.get();
+        metrics.misses = misses.get();
+        metrics.revalidations = revalidations.get();
+        metrics.evictions = evictions.get();
+
+        if (index != null) {
+            metrics.entries = index.size();
+            metrics.size = size;
+        }
+
+        return metrics;
+    }
+}
@@ -21,11 +21,17 @@
 
 package data.api;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -47,10 +53,14 @@ public class WorldBank {
 
         public static String PER_PAGE = "per_page";
         public static int PER_PAGE_MAX = 15000;
+        public static int PER_PAGE_FETCH = 2000;
+
+        public static String DATE = "date";
     }
 
     public static class Schema {
         public static String ID = "id";
+        public static String PAGES = "pages";
 
         public static String NAMESPACE = "http://www.worldbank.org";
 
@@ -71,12 +81,84 @@ public class WorldBank {
         public static String SOURCE_NOTE = "sourceNote";
         public static String SOURCE_ORGANIZATION = "sourceOrganization";
 
+        public static String ERROR = "error";
+        public static String FAULT = "fault";
+
         public static String DATA = "data";
         public static String DATE = "date";
         public static String VALUE = "value";
         public static String DECIMAL = "decimal";
     }
 
+    private static int getPages(String pages) {
+        try {
+            return Integer.valueOf(pages);
+        } catch (NumberFormatException exception) {
+            return 1;
+        }
+    }
+
+    private static boolean isError(String name) {
+        return Schema.ERROR.equals(name) || Schema.FAULT.equals(name);
+    }
+
+    /*
+     * The API reports errors such as rate limiting with a regular response
+     * whose root element is an error or a fault; failing the page makes the
+     * fetcher retry it.
+     */
+    private static void checkError(Element element) throws IOException {
+        if (isError(element.getLocalName())) {
+            throw new IOException(
+                "API error: " + element.getTextContent().trim());
+        }
+    }
+
+    private static void checkError(XMLStreamReader reader)
+        throws XMLStreamException, IOException {
+
+        if (!isError(reader.getLocalName())) {
+            return;
+        }
+
+        StringBuilder message = new StringBuilder();
+
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.CHARACTERS) {
+                message.append(reader.getText());
+            }
+        }
+
+        throw new IOException("API error: " + message.toString().trim());
+    }
+
+    private static PageFetcher.PageReader<Document> documentReader =
+        new PageFetcher.PageReader<Document>() {
+            @Override
+            public PageFetcher.Page<Document> read(InputStream stream)
+                throws IOException {
+
+                Document document = XML.getDocument(stream);
+                if (document == null) {
+                    return null;
+                }
+
+                checkError(document.getDocumentElement());
+
+                return new PageFetcher.Page<Document>(
+                    getPages(document.getDocumentElement().getAttribute(
+                        Schema.PAGES)),
+                    document);
+            }
+        };
+
     private Map<String, Indicator> indicatorMap;
     private Map<Integer, Topic> topicMap;
     private Map<Integer, Source> sourceMap;
@@ -119,23 +201,32 @@ public class WorldBank {
 
     public WorldBank fetchIndicatorList() {
         String[][] params = new String[][] {
-            {API.PER_PAGE, Integer.toString(API.PER_PAGE_MAX)}
+            {API.PER_PAGE, Integer.toString(API.PER_PAGE_FETCH)}
         };
         String url = HTTP.URL.get(
             API.BASE, API.PATH_INDICATORS, params).toString();
 
-        String response = HTTP.get(url);
+        List<Document> documents = PageFetcher.fetch(url, documentReader);
+        if (documents == null) {
+            return this;
+        }
 
-        Document document = XML.getDocument(response);
+        indicatorMap = new HashMap<String, Indicator>();
+        topicMap = new HashMap<Integer, Topic>();
+        sourceMap = new HashMap<Integer, Source>();
+
+        for (Document document : documents) {
+            readIndicatorList(document);
+        }
 
+        return this;
+    }
+
+    private void readIndicatorList(Document document) {
         NodeList nodeList = document.getElementsByTagNameNS(
             Schema.NAMESPACE, Schema.INDICATOR);
         int nodeListLength = nodeList.getLength();
 
-        indicatorMap = new HashMap<String, Indicator>();
-        topicMap = new HashMap<Integer, Topic>();
-        sourceMap = new HashMap<Integer, Source>();
-
         for (int i = 0; i < nodeListLength; i++) {
             Element indicatorElement = (Element) nodeList.item(i);
 
@@ -189,27 +280,35 @@ public class WorldBank {
             indicatorMap.put(indicatorIdent, new Indicator(
                 indicatorIdent, nameElement.getTextContent(), topics, source));
         }
-
-        return this;
     }
 
     public WorldBank fetchCountryList() {
         String[][] params = new String[][] {
-            {API.PER_PAGE, Integer.toString(API.PER_PAGE_MAX)}
+            {API.PER_PAGE, Integer.toString(API.PER_PAGE_FETCH)}
         };
         String url = HTTP.URL.get(
             API.BASE, API.PATH_COUNTRIES, params).toString();
 
-        String response = HTTP.get(url);
-        Document document = XML.getDocument(response);
+        List<Document> documents = PageFetcher.fetch(url, documentReader);
+        if (documents == null) {
+            return this;
+        }
+
+        regionMap = new HashMap<String, Region>();
+        countryMap = new HashMap<String, Country>();
+
+        for (Document document : documents) {
+            readCountryList(document);
+        }
 
+        return this;
+    }
+
+    private void readCountryList(Document document) {
         NodeList nodeList = document.getElementsByTagNameNS(
             Schema.NAMESPACE, Schema.COUNTRY);
         int nodeListLength = nodeList.getLength();
 
-        regionMap = new HashMap<String, Region>();
-        countryMap = new HashMap<String, Country>();
-
         for (int i = 0; i < nodeListLength; i++) {
             Element countryElement = (Element) nodeList.item(i);
 
@@ -242,67 +341,180 @@ public class WorldBank {
             countryMap.put(countryISO, new Country(
                 countryISO, nameElement.getTextContent(), region));
         }
-
-        return this;
     }
 
     public WorldBank fetchSeries(
             Indicator indicator, List<Country> countryList) {
 
-        countryMap = new HashMap<String, Country>();
-        for (Country country : countryList) {
-            countryMap.put(country.getISO(), country);
-        }
+        String[][] params = new String[][] {
+            {API.PER_PAGE, Integer.toString(API.PER_PAGE_FETCH)}
+        };
+
+        return fetchSeries(indicator, countryList, params);
+    }
+
+    public WorldBank fetchSeries(
+            Indicator indicator, List<Country> countryList,
+            int startYear, int endYear) {
 
         String[][] params = new String[][] {
-            {API.PER_PAGE, Integer.toString(API.PER_PAGE_MAX)}
+            {API.PER_PAGE, Integer.toString(API.PER_PAGE_FETCH)},
+            {API.DATE, startYear + ":" + endYear}
         };
+
+        return fetchSeries(indicator, countryList, params);
+    }
+
+    private WorldBank fetchSeries(
+            Indicator indicator, List<Country> countryList,
+            String[][] params) {
+
+        prepareSeries(countryList);
+
         String url = HTTP.URL.get(
             API.BASE,
             API.PATH_INDICATOR.replace(":ident", indicator.getIdent()),
             params).toString();
 
-        String response = HTTP.get(url);
-        Document document = XML.getDocument(response);
+        final Indicator seriesIndicator = indicator;
 
-        NodeList nodeList = document.getElementsByTagNameNS(
-            Schema.NAMESPACE, Schema.DATA);
-        int nodeListLength = nodeList.getLength();
+        List<List<Point>> pages = PageFetcher.fetch(
+            url, new PageFetcher.PageReader<List<Point>>() {
+                @Override
+                public PageFetcher.Page<List<Point>> read(InputStream stream)
+                    throws IOException {
+
+                    return readSeries(stream, seriesIndicator);
+                }
+            });
+
+        if (pages == null) {
+            seriesMap = null;
+            return this;
+        }
+
+        int pointCount = 0;
+        for (List<Point> page : pages) {
+            pointCount += page.size();
+        }
+
+        pointList = new ArrayList<Point>(pointCount);
+        for (List<Point> page : pages) {
+            pointList.addAll(page);
+        }
+
+        return this;
+    }
+
+    void prepareSeries(List<Country> countryList) {
+        countryMap = new HashMap<String, Country>();
+        for (Country country : countryList) {
+            countryMap.put(country.getISO(), country);
+        }
 
         seriesMap = new HashMap<Country, Series>();
-        pointList = new ArrayList<Point>();
+    }
 
-        for (int i = 0; i < nodeListLength; i++) {
-            Element dataElement = (Element) nodeList.item(i);
+    PageFetcher.Page<List<Point>> readSeries(
+            InputStream stream, Indicator indicator) throws IOException {
 
-            Element countryElement =
-                (Element) dataElement.getElementsByTagNameNS(
-                    Schema.NAMESPACE, Schema.COUNTRY).item(0);
-            Element dateElement =
-                (Element) dataElement.getElementsByTagNameNS(
-                    Schema.NAMESPACE, Schema.DATE).item(0);
-            Element valueElement =
-                (Element) dataElement.getElementsByTagNameNS(
-                    Schema.NAMESPACE, Schema.VALUE).item(0);
+        try {
+            XMLStreamReader reader = XML.getStreamReader(stream);
 
-            String countryISO = countryElement.getAttribute(Schema.ID);
-            Country country = countryMap.get(countryISO);
+            try {
+                return readSeries(reader, indicator);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException exception) {
+            throw new IOException(exception);
+        }
+    }
 
+    private Series getSeries(Indicator indicator, Country country) {
+        synchronized (seriesMap) {
             Series series = seriesMap.get(country);
             if (series == null) {
                 series = new Series(indicator, country);
                 seriesMap.put(country, series);
             }
 
-            try {
-                pointList.add(new Point(
-                    series, Integer.valueOf(dateElement.getTextContent()),
-                    Double.valueOf(valueElement.getTextContent())));
-            } catch (NumberFormatException exception) {
-                continue;
+            return series;
+        }
+    }
+
+    private PageFetcher.Page<List<Point>> readSeries(
+            XMLStreamReader reader, Indicator indicator)
+        throws XMLStreamException, IOException {
+
+        int pages = 1;
+        List<Point> points = new ArrayList<Point>();
+
+        int depth = 0;
+
+        String countryISO = null;
+        String date = null;
+        String value = null;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+
+                if (depth == 1) {
+                    checkError(reader);
+
+                    pages = getPages(
+                        reader.getAttributeValue(null, Schema.PAGES));
+                }
+
+                if (depth != 3 ||
+                        !Schema.NAMESPACE.equals(reader.getNamespaceURI())) {
+                    continue;
+                }
+
+                String name = reader.getLocalName();
+
+                if (name.equals(Schema.COUNTRY)) {
+                    countryISO = reader.getAttributeValue(null, Schema.ID);
+                } else if (name.equals(Schema.DATE)) {
+                    date = reader.getElementText();
+                    depth--;
+                } else if (name.equals(Schema.VALUE)) {
+                    value = reader.getElementText();
+                    depth--;
+                }
+
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+
+                if (depth != 1 ||
+                        !Schema.NAMESPACE.equals(reader.getNamespaceURI()) ||
+                        !reader.getLocalName().equals(Schema.DATA)) {
+                    continue;
+                }
+
+                Series series = getSeries(
+                    indicator, countryMap.get(countryISO));
+
+                // Years without data come with an empty value
+                if (date != null && value != null && !value.isEmpty()) {
+                    try {
+                        points.add(new Point(
+                            series,
+                            Integer.valueOf(date), Double.valueOf(value)));
+                    } catch (NumberFormatException exception) {
+                        exception.printStackTrace();
+                    }
+                }
+
+                countryISO = null;
+                date = null;
+                value = null;
             }
         }
 
-        return this;
+        return new PageFetcher.Page<List<Point>>(pages, points);
     }
 }
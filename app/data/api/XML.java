@@ -23,26 +23,43 @@ package data.api;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 public class XML {
-    private static DocumentBuilderFactory factory =
-        DocumentBuilderFactory.newInstance();
+    /*
+     * Parser factories are not thread-safe and pages are read in parallel,
+     * so each thread configures its own.
+     */
+    private static ThreadLocal<DocumentBuilderFactory> factory =
+        new ThreadLocal<DocumentBuilderFactory>() {
+            @Override
+            protected DocumentBuilderFactory initialValue() {
+                DocumentBuilderFactory documentBuilderFactory =
+                    DocumentBuilderFactory.newInstance();
+                documentBuilderFactory.setNamespaceAware(true);
+                return documentBuilderFactory;
+            }
+        };
 
     public static Document getDocument(String response) {
-        factory.setNamespaceAware(true);
+        return getDocument(new ByteArrayInputStream(response.getBytes()));
+    }
 
+    public static Document getDocument(InputStream stream) {
         try {
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            DocumentBuilder builder = factory.get().newDocumentBuilder();
 
-            Document document = builder.parse(
-                new ByteArrayInputStream(response.getBytes()));
+            Document document = builder.parse(stream);
 
             document.getDocumentElement().normalize();
             return document;
@@ -60,4 +77,26 @@ public class XML {
             return null;
         }
     }
+
+    private static ThreadLocal<XMLInputFactory> inputFactory =
+        new ThreadLocal<XMLInputFactory>() {
+            @Override
+            protected XMLInputFactory initialValue() {
+                XMLInputFactory xmlInputFactory =
+                    XMLInputFactory.newInstance();
+                xmlInputFactory.setProperty(
+                    XMLInputFactory.IS_NAMESPACE_AWARE, true);
+                xmlInputFactory.setProperty(
+                    XMLInputFactory.IS_COALESCING, true);
+                xmlInputFactory.setProperty(
+                    XMLInputFactory.SUPPORT_DTD, false);
+                return xmlInputFactory;
+            }
+        };
+
+    public static XMLStreamReader getStreamReader(InputStream stream)
+        throws XMLStreamException {
+
+        return inputFactory.get().createXMLStreamReader(stream);
+    }
 }
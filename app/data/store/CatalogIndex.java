@@ -0,0 +1,199 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.store;
+
+import java.util.Collection;
+
+import models.Country;
+import models.Indicator;
+import models.Topic;
+
+/**
+ * Search indexes over the {@link Indicator} and {@link Country} catalogs.
+ *
+ * Each index is an immutable snapshot replaced atomically when the catalog
+ * is repopulated. Indexes are {@code null} until first built.
+ */
+public class CatalogIndex {
+    private static volatile SearchIndex<Indicator> indicatorIndex;
+    private static volatile SearchIndex<Country> countryIndex;
+
+    private static SearchIndex.Namer<Indicator> indicatorNamer =
+        new SearchIndex.Namer<Indicator>() {
+            @Override
+            public String getName(Indicator indicator) {
+                return indicator.getName();
+            }
+        };
+
+    private static SearchIndex.Namer<Country> countryNamer =
+        new SearchIndex.Namer<Country>() {
+            @Override
+            public String getName(Country country) {
+                return country.getName();
+            }
+        };
+
+    public static SearchIndex<Indicator> getIndicatorIndex() {
+        return indicatorIndex;
+    }
+
+    public static SearchIndex<Country> getCountryIndex() {
+        return countryIndex;
+    }
+
+    /**
+     * Rebuild the indicator index from the specified indicators, which must
+     * have their source and topics loaded.
+     *
+     * @param indicators Indicators.
+     */
+    public static synchronized void rebuildIndicators(
+            Collection<Indicator> indicators) {
+
+        indicatorIndex = new SearchIndex<Indicator>(
+            indicators, indicatorNamer);
+    }
+
+    /**
+     * Rebuild the indicator index from the database.
+     */
+    public static void rebuildIndicators() {
+        rebuildIndicators(Indicator.objects
+            .fetch("source")
+            .fetch("topics")
+            .findList());
+    }
+
+    /**
+     * Rebuild the country index from the specified countries, which must
+     * have their region loaded.
+     *
+     * @param countries Countries.
+     */
+    public static void rebuildCountries(Collection<Country> countries) {
+        countryIndex = new SearchIndex<Country>(countries, countryNamer);
+    }
+
+    /**
+     * Rebuild the country index from the {@link ReferenceCatalog}.
+     */
+    public static void rebuildCountries() {
+        rebuildCountries(ReferenceCatalog.get().getCountries());
+    }
+
+    /**
+     * Reflect a status change of an {@link Indicator} in the index.
+     *
+     * Indexed indicators are shared with readers of the current snapshot,
+     * so a copy with the new status is published in a new snapshot instead
+     * of modifying them.
+     *
+     * @param indicatorId Indicator ID.
+     * @param status New status.
+     */
+    public static synchronized void updateIndicatorStatus(
+            Long indicatorId, Indicator.Status status) {
+
+        SearchIndex<Indicator> index = indicatorIndex;
+        if (index == null) {
+            return;
+        }
+
+        Indicator indicator = index.get(indicatorId);
+        if (indicator == null || indicator.getStatus() == status) {
+            return;
+        }
+
+        Indicator updated = new Indicator(
+            indicator.getIdent(), indicator.getName(), status,
+            indicator.getTopics(), indicator.getSource());
+        updated.set(Indicator.FIELD_ID, indicator.getId());
+
+        indicatorIndex = index.replace(updated);
+    }
+
+    /**
+     * Check whether an {@link Indicator} is {@code READY}, reading its
+     * status from the database until the index is built.
+     *
+     * @param indicatorId Indicator ID.
+     * @return Whether the indicator exists and is ready.
+     */
+    public static boolean isIndicatorReady(Long indicatorId) {
+        SearchIndex<Indicator> index = indicatorIndex;
+
+        Indicator indicator;
+
+        if (index == null) {
+            indicator = Indicator.objects
+                .select("status")
+                .where()
+                    .idEq(indicatorId)
+                .findUnique();
+        } else {
+            indicator = index.get(indicatorId);
+        }
+
+        return indicator != null && indicator.isReady();
+    }
+
+    /**
+     * Get a filter accepting indicators of the specified topic and source.
+     *
+     * @param topicId Topic ID, or {@code null} for any topic.
+     * @param sourceId Source ID, or {@code null} for any source.
+     * @return Filter, or {@code null} if no facet is specified.
+     */
+    public static SearchIndex.Filter<Indicator> getIndicatorFilter(
+            Long topicId, Long sourceId) {
+
+        if (topicId == null && sourceId == null) {
+            return null;
+        }
+
+        final Long filterTopicId = topicId;
+        final Long filterSourceId = sourceId;
+
+        return new SearchIndex.Filter<Indicator>() {
+            @Override
+            public boolean accept(Indicator indicator) {
+                if (filterSourceId != null && (indicator.getSource() == null ||
+                        !filterSourceId.equals(
+                            indicator.getSource().getId()))) {
+                    return false;
+                }
+
+                if (filterTopicId != null) {
+                    for (Topic topic : indicator.getTopics()) {
+                        if (filterTopicId.equals(topic.getId())) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+
+                return true;
+            }
+        };
+    }
+}
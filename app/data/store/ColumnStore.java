@@ -0,0 +1,470 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.store;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import play.Configuration;
+import play.db.DB;
+
+import models.Country;
+import models.Model;
+import models.Series;
+
+/**
+ * File-backed columnar store of the series of loaded indicators.
+ *
+ * Each indicator is written to its own file, holding a header, an index
+ * of series and country IDs and a dense row-major matrix of values with
+ * {@code NaN} for missing years. Files are memory-mapped, so values stay
+ * off the heap and hot indicators are kept resident by the OS page cache.
+ * The database remains the source of truth: files are deleted whenever the
+ * data of their indicator changes and rebuilt from it.
+ */
+public class ColumnStore {
+    public static class Settings {
+        /**
+         * Whether series are served from the store.
+         */
+        public static boolean ENABLED = true;
+
+        /**
+         * Directory holding one file per indicator.
+         */
+        public static String DIRECTORY = "store/series";
+
+        public static void configure(Configuration configuration) {
+            if (configuration == null) {
+                return;
+            }
+
+            ENABLED = configuration.getBoolean("enabled", ENABLED);
+            DIRECTORY = configuration.getString("directory", DIRECTORY);
+        }
+    }
+
+    private static final int MAGIC = 0x57424943;
+    private static final int VERSION = 1;
+
+    /**
+     * Header size in bytes: magic, version, base year, year count, row
+     * count and padding keeping the matrix 8-byte aligned.
+     */
+    private static final int HEADER_SIZE = 24;
+
+    /**
+     * Index entry size in bytes: series ID and country ID.
+     */
+    private static final int INDEX_ENTRY_SIZE = 16;
+
+    private static ConcurrentMap<Long, MappedByteBuffer> buffers =
+        new ConcurrentHashMap<Long, MappedByteBuffer>();
+
+    private static ConcurrentMap<Long, Object> locks =
+        new ConcurrentHashMap<Long, Object>();
+
+    private static Object getLock(Long indicatorId) {
+        Object lock = locks.get(indicatorId);
+
+        if (lock == null) {
+            Object newLock = new Object();
+            lock = locks.putIfAbsent(indicatorId, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
+        }
+
+        return lock;
+    }
+
+    private static File getFile(Long indicatorId) {
+        return new File(Settings.DIRECTORY, indicatorId + ".col");
+    }
+
+    /**
+     * Packed series read from the database.
+     */
+    private static class Row {
+        private long seriesId;
+        private long countryId;
+        private int baseYear;
+        private Double[] values;
+    }
+
+    private static List<Row> readRows(Long indicatorId) throws SQLException {
+        List<Row> rows = new ArrayList<Row>();
+
+        Connection connection = DB.getConnection();
+
+        try {
+            PreparedStatement statement = connection.prepareStatement(
+                "SELECT id, country_id, base_year, point_values " +
+                "FROM series " +
+                "WHERE indicator_id = ? " +
+                    "AND base_year IS NOT NULL " +
+                "ORDER BY country_id");
+
+            try {
+                statement.setLong(1, indicatorId);
+
+                ResultSet resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+                    Row row = new Row();
+                    row.seriesId = resultSet.getLong(1);
+                    row.countryId = resultSet.getLong(2);
+                    row.baseYear = resultSet.getInt(3);
+                    row.values = (Double[]) resultSet.getArray(4).getArray();
+                    rows.add(row);
+                }
+
+                resultSet.close();
+            } finally {
+                statement.close();
+            }
+        } finally {
+            connection.close();
+        }
+
+        return rows;
+    }
+
+    /**
+     * Rebuild the file of the specified indicator from the database.
+     *
+     * @param indicatorId ID of the indicator.
+     * @return Whether a file was written.
+     */
+    public static boolean write(Long indicatorId) {
+        if (!Settings.ENABLED) {
+            return false;
+        }
+
+        synchronized (getLock(indicatorId)) {
+            List<Row> rows;
+
+            try {
+                rows = readRows(indicatorId);
+            } catch (SQLException exception) {
+                exception.printStackTrace();
+                return false;
+            }
+
+            if (rows.isEmpty()) {
+                return false;
+            }
+
+            int baseYear = Integer.MAX_VALUE;
+            int endYear = Integer.MIN_VALUE;
+
+            for (Row row : rows) {
+                baseYear = Math.min(baseYear, row.baseYear);
+                endYear = Math.max(
+                    endYear, row.baseYear + row.values.length - 1);
+            }
+
+            int years = endYear - baseYear + 1;
+
+            File file = getFile(indicatorId);
+            File temporaryFile = new File(
+                file.getParentFile(), file.getName() + ".tmp");
+
+            file.getParentFile().mkdirs();
+
+            try {
+                DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(
+                        new FileOutputStream(temporaryFile)));
+
+                try {
+                    output.writeInt(MAGIC);
+                    output.writeInt(VERSION);
+                    output.writeInt(baseYear);
+                    output.writeInt(years);
+                    output.writeInt(rows.size());
+                    output.writeInt(0);
+
+                    for (Row row : rows) {
+                        output.writeLong(row.seriesId);
+                        output.writeLong(row.countryId);
+                    }
+
+                    for (Row row : rows) {
+                        int offset = row.baseYear - baseYear;
+
+                        for (int i = 0; i < years; i++) {
+                            int index = i - offset;
+                            Double value = index < 0 ||
+                                index >= row.values.length ?
+                                    null : row.values[index];
+
+                            output.writeDouble(
+                                value == null ? Double.NaN : value);
+                        }
+                    }
+                } finally {
+                    output.close();
+                }
+            } catch (IOException exception) {
+                exception.printStackTrace();
+                temporaryFile.delete();
+                return false;
+            }
+
+            buffers.remove(indicatorId);
+            file.delete();
+
+            if (!temporaryFile.renameTo(file)) {
+                temporaryFile.delete();
+                return false;
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Delete the file of the specified indicator.
+     *
+     * @param indicatorId ID of the indicator.
+     */
+    public static void invalidate(Long indicatorId) {
+        synchronized (getLock(indicatorId)) {
+            buffers.remove(indicatorId);
+            getFile(indicatorId).delete();
+        }
+    }
+
+    /**
+     * Get the mapped file of the specified indicator.
+     *
+     * @param indicatorId ID of the indicator.
+     * @return Mapped buffer, or {@code null} if there is no valid file.
+     */
+    private static MappedByteBuffer getBuffer(Long indicatorId) {
+        MappedByteBuffer buffer = buffers.get(indicatorId);
+
+        if (buffer != null) {
+            return buffer;
+        }
+
+        synchronized (getLock(indicatorId)) {
+            buffer = buffers.get(indicatorId);
+
+            if (buffer != null) {
+                return buffer;
+            }
+
+            File file = getFile(indicatorId);
+
+            if (!file.isFile()) {
+                return null;
+            }
+
+            try {
+                RandomAccessFile randomAccessFile =
+                    new RandomAccessFile(file, "r");
+
+                try {
+                    FileChannel channel = randomAccessFile.getChannel();
+                    buffer = channel.map(
+                        FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                } finally {
+                    randomAccessFile.close();
+                }
+            } catch (IOException exception) {
+                exception.printStackTrace();
+                return null;
+            }
+
+            if (buffer.capacity() < HEADER_SIZE ||
+                    buffer.getInt(0) != MAGIC ||
+                    buffer.getInt(4) != VERSION) {
+                return null;
+            }
+
+            buffers.put(indicatorId, buffer);
+            return buffer;
+        }
+    }
+
+    /**
+     * Read-only view of the values of an indicator, reading the mapped file
+     * directly without copying them.
+     */
+    public static class Matrix {
+        private final ByteBuffer buffer;
+
+        private final int baseYear;
+        private final int years;
+        private final int rows;
+
+        private final int matrixOffset;
+
+        private Matrix(ByteBuffer buffer) {
+            this.buffer = buffer;
+
+            baseYear = buffer.getInt(8);
+            years = buffer.getInt(12);
+            rows = buffer.getInt(16);
+
+            matrixOffset = HEADER_SIZE + rows * INDEX_ENTRY_SIZE;
+        }
+
+        public int getBaseYear() {
+            return baseYear;
+        }
+
+        public int getYears() {
+            return years;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public long getCountryId(int row) {
+            return buffer.getLong(HEADER_SIZE + row * INDEX_ENTRY_SIZE + 8);
+        }
+
+        /**
+         * Get a value.
+         *
+         * @param row Row of the series.
+         * @param column Year relative to the base year.
+         * @return Value, or {@code NaN} if missing.
+         */
+        public double getValue(int row, int column) {
+            return buffer.getDouble(matrixOffset + (row * years + column) * 8);
+        }
+    }
+
+    /**
+     * Get the values of an indicator if it is in the store, without
+     * falling back to the database.
+     *
+     * @param indicatorId ID of the indicator.
+     * @return Matrix, or {@code null} if the indicator is not in the store.
+     */
+    public static Matrix getMatrix(Long indicatorId) {
+        if (!Settings.ENABLED) {
+            return null;
+        }
+
+        MappedByteBuffer buffer = getBuffer(indicatorId);
+
+        return buffer == null ? null : new Matrix(buffer);
+    }
+
+    /**
+     * Read the series of an indicator within an interval. Series are
+     * trimmed to the years they have values for, and series without
+     * values in the interval are left out.
+     *
+     * @param indicatorId ID of the indicator.
+     * @param startYear Start year of the interval.
+     * @param endYear End year of the interval.
+     * @param countries Countries by ID.
+     * @return List of series, or {@code null} if the indicator is not
+     *         in the store.
+     */
+    public static List<Series> read(
+            Long indicatorId, int startYear, int endYear,
+            Map<Long, Country> countries) {
+
+        if (!Settings.ENABLED) {
+            return null;
+        }
+
+        MappedByteBuffer buffer = getBuffer(indicatorId);
+
+        if (buffer == null) {
+            return null;
+        }
+
+        int baseYear = buffer.getInt(8);
+        int years = buffer.getInt(12);
+        int rows = buffer.getInt(16);
+
+        int matrixOffset = HEADER_SIZE + rows * INDEX_ENTRY_SIZE;
+
+        int first = Math.max(startYear, baseYear) - baseYear;
+        int last = Math.min(endYear, baseYear + years - 1) - baseYear;
+
+        List<Series> allSeries = new ArrayList<Series>();
+
+        if (first > last) {
+            return allSeries;
+        }
+
+        for (int row = 0; row < rows; row++) {
+            int rowOffset = matrixOffset + row * years * 8;
+
+            int start = first;
+            while (start <= last &&
+                    Double.isNaN(buffer.getDouble(rowOffset + start * 8))) {
+                start++;
+            }
+
+            if (start > last) {
+                continue;
+            }
+
+            int end = last;
+            while (Double.isNaN(buffer.getDouble(rowOffset + end * 8))) {
+                end--;
+            }
+
+            double[] values = new double[end - start + 1];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = buffer.getDouble(rowOffset + (start + i) * 8);
+            }
+
+            int indexOffset = HEADER_SIZE + row * INDEX_ENTRY_SIZE;
+
+            Series series = new Series(
+                null, countries.get(buffer.getLong(indexOffset + 8)),
+                baseYear + start, values);
+            series.set(Model.FIELD_ID, buffer.getLong(indexOffset));
+            allSeries.add(series);
+        }
+
+        return allSeries;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import models.Country;
+import models.Model;
+import models.Region;
+import models.Source;
+import models.Topic;
+
+/**
+ * Immutable snapshot of the reference catalogs: {@link Country},
+ * {@link Region}, {@link Topic} and {@link Source}.
+ *
+ * Reference data only changes when the populate tasks run, so queries
+ * resolve references through the current snapshot instead of joining the
+ * reference tables. The snapshot is replaced atomically by
+ * {@link #rebuild()}.
+ */
+public class ReferenceCatalog {
+    private static volatile ReferenceCatalog current;
+
+    private final Map<Long, Region> regionsById;
+    private final Map<Long, Country> countriesById;
+    private final Map<String, Country> countriesByISO;
+    private final Map<Long, Topic> topicsById;
+    private final Map<Long, Source> sourcesById;
+
+    private static <T extends Model> Map<Long, T> mapById(
+            Collection<T> collection) {
+
+        Map<Long, T> map = new HashMap<Long, T>();
+        for (T item : collection) {
+            map.put(item.getId(), item);
+        }
+
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static String normalizeISO(String iso) {
+        return iso == null ? null : iso.toUpperCase();
+    }
+
+    private ReferenceCatalog(
+            List<Region> regions, List<Country> countries,
+            List<Topic> topics, List<Source> sources) {
+
+        regionsById = mapById(regions);
+        topicsById = mapById(topics);
+        sourcesById = mapById(sources);
+
+        Map<String, Country> isoMap = new HashMap<String, Country>();
+
+        for (Country country : countries) {
+            // Share region instances between countries
+            Region region = country.getRegion();
+            if (region != null) {
+                country.set(
+                    Country.FIELD_REGION, regionsById.get(region.getId()));
+            }
+
+            isoMap.put(normalizeISO(country.getISO()), country);
+        }
+
+        countriesById = mapById(countries);
+        countriesByISO = Collections.unmodifiableMap(isoMap);
+    }
+
+    /**
+     * Get the current snapshot, loading it the first time.
+     *
+     * @return Reference catalog.
+     */
+    public static ReferenceCatalog get() {
+        ReferenceCatalog catalog = current;
+
+        if (catalog == null) {
+            synchronized (ReferenceCatalog.class) {
+                catalog = current;
+
+                if (catalog == null) {
+                    catalog = rebuild();
+                }
+            }
+        }
+
+        return catalog;
+    }
+
+    /**
+     * Load a new snapshot from the database and make it current.
+     *
+     * @return Reference catalog.
+     */
+    public static synchronized ReferenceCatalog rebuild() {
+        ReferenceCatalog catalog = new ReferenceCatalog(
+            Region.objects.all(),
+            Country.objects.all(),
+            Topic.objects.all(),
+            Source.objects.all());
+
+        current = catalog;
+        return catalog;
+    }
+
+    public Region getRegion(Long id) {
+        return regionsById.get(id);
+    }
+
+    public Country getCountry(Long id) {
+        return countriesById.get(id);
+    }
+
+    public Country getCountryByISO(String iso) {
+        return countriesByISO.get(normalizeISO(iso));
+    }
+
+    public Topic getTopic(Long id) {
+        return topicsById.get(id);
+    }
+
+    public Source getSource(Long id) {
+        return sourcesById.get(id);
+    }
+
+    public Collection<Region> getRegions() {
+        return regionsById.values();
+    }
+
+    public Collection<Country> getCountries() {
+        return countriesById.values();
+    }
+
+    public Map<Long, Country> getCountriesById() {
+        return countriesById;
+    }
+
+    /**
+     * Get the countries with the specified ISO codes, leaving out unknown
+     * codes.
+     *
+     * @param isoList List of ISO codes.
+     * @return List of countries.
+     */
+    public List<Country> getCountriesByISO(List<String> isoList) {
+        List<Country> countries = new ArrayList<Country>();
+
+        for (String iso : isoList) {
+            Country country = getCountryByISO(iso);
+            if (country != null) {
+                countries.add(country);
+            }
+        }
+
+        return countries;
+    }
+
+    /**
+     * Copy a catalog instance along with the catalog instances it refers
+     * to, so that changes made to the copy do not reach the catalog.
+     *
+     * @param object Catalog instance.
+     * @return Copy.
+     */
+    private static Model copy(Model object) {
+        Model copy;
+
+        if (object instanceof Country) {
+            copy = new Country();
+        } else if (object instanceof Region) {
+            copy = new Region();
+        } else if (object instanceof Topic) {
+            copy = new Topic();
+        } else if (object instanceof Source) {
+            copy = new Source();
+        } else {
+            return object;
+        }
+
+        for (String field : object.fields().keySet()) {
+            Object value = object.get(field);
+
+            if (value instanceof Model) {
+                value = copy((Model) value);
+            }
+
+            copy.set(field, value);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Resolve a reference object to a copy of its instance in the catalog.
+     *
+     * Copies are returned since resolved objects are handed to services as
+     * arguments, and the catalog instances are shared by every request.
+     *
+     * @param object Object.
+     * @return Copy of the catalog instance with the same ID, or the object
+     *         itself if it is not a reference object or is not in the
+     *         catalog.
+     */
+    public Model resolve(Model object) {
+        Model resolved = null;
+
+        if (object instanceof Country) {
+            resolved = countriesById.get(object.getId());
+        } else if (object instanceof Region) {
+            resolved = regionsById.get(object.getId());
+        } else if (object instanceof Topic) {
+            resolved = topicsById.get(object.getId());
+        } else if (object instanceof Source) {
+            resolved = sourcesById.get(object.getId());
+        }
+
+        return resolved == null ? object : copy(resolved);
+    }
+}
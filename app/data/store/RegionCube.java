@@ -0,0 +1,372 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import play.Configuration;
+
+import models.Country;
+import models.Indicator;
+import models.Region;
+import models.RegionAggregate;
+import models.Series;
+
+import data.tasks.TaskScheduler;
+
+/**
+ * Per-region and per-year aggregates of loaded indicators.
+ *
+ * Each cube holds the count, sum and population-weighted sum of the values
+ * of an indicator for every region and year, so that regional figures are
+ * served without reading the series again. Cubes of ready indicators are
+ * built on first use and discarded whenever the data of their indicator
+ * changes. When the population indicator changes, cubes keep serving
+ * counts and means without weighted means until they are rebuilt in the
+ * background.
+ */
+public class RegionCube {
+    public static class Settings {
+        /**
+         * Identifier of the indicator weighting regional means.
+         */
+        public static String POPULATION = "SP.POP.TOTL";
+
+        public static void configure(Configuration configuration) {
+            if (configuration == null) {
+                return;
+            }
+
+            POPULATION = configuration.getString("population", POPULATION);
+        }
+    }
+
+    private static ConcurrentMap<Long, RegionCube> cubes =
+        new ConcurrentHashMap<Long, RegionCube>();
+
+    /**
+     * Number of invalidations, used to discard cubes built from data that
+     * changed while they were built.
+     */
+    private static AtomicLong generation = new AtomicLong();
+
+    private static volatile Long populationIndicatorId;
+
+    private final Region[] regions;
+    private final int baseYear;
+    private final int years;
+
+    private final int[] counts;
+    private final double[] sums;
+    private final double[] weightedSums;
+    private final double[] weights;
+
+    private final boolean weighted;
+
+    /**
+     * Whether the population changed since the cube was built.
+     */
+    private final boolean stale;
+
+    /**
+     * Copy a cube without its weighted means, sharing its cells.
+     */
+    private RegionCube(RegionCube cube) {
+        this.regions = cube.regions;
+        this.baseYear = cube.baseYear;
+        this.years = cube.years;
+
+        this.counts = cube.counts;
+        this.sums = cube.sums;
+        this.weightedSums = cube.weightedSums;
+        this.weights = cube.weights;
+
+        this.weighted = false;
+        this.stale = true;
+    }
+
+    private RegionCube(
+            List<Region> regionList, int baseYear, int years,
+            boolean weighted) {
+
+        this.regions = regionList.toArray(new Region[regionList.size()]);
+        this.baseYear = baseYear;
+        this.years = years;
+        this.weighted = weighted;
+        this.stale = false;
+
+        int size = regions.length * years;
+
+        counts = new int[size];
+        sums = new double[size];
+        weightedSums = new double[size];
+        weights = new double[size];
+    }
+
+    /**
+     * Get the ID of the population indicator.
+     */
+    private static Long getPopulationIndicatorId() {
+        Indicator indicator = Indicator.objects
+            .where()
+                .eq("ident", Settings.POPULATION)
+            .findUnique();
+
+        return indicator == null ? null : indicator.getId();
+    }
+
+    private static boolean isPopulationIndicator(Long indicatorId) {
+        if (indicatorId.equals(populationIndicatorId)) {
+            return true;
+        }
+
+        SearchIndex<Indicator> index = CatalogIndex.getIndicatorIndex();
+        Indicator indicator = index == null ? null : index.get(indicatorId);
+
+        return indicator != null &&
+            Settings.POPULATION.equals(indicator.getIdent());
+    }
+
+    private static RegionCube build(Long indicatorId) {
+        List<Series> seriesList = SeriesStore.get(indicatorId);
+
+        if (seriesList == null) {
+            return null;
+        }
+
+        Long populationId = getPopulationIndicatorId();
+        populationIndicatorId = populationId;
+
+        Map<Long, Series> population = new HashMap<Long, Series>();
+
+        if (populationId != null &&
+                CatalogIndex.isIndicatorReady(populationId)) {
+            List<Series> populationList = SeriesStore.get(populationId);
+
+            if (populationList != null) {
+                for (Series series : populationList) {
+                    if (series.getCountry() != null) {
+                        population.put(series.getCountry().getId(), series);
+                    }
+                }
+            }
+        }
+
+        int baseYear = 0;
+        int endYear = -1;
+
+        for (Series series : seriesList) {
+            int seriesEndYear =
+                series.getBaseYear() + series.getValues().length - 1;
+
+            if (endYear < baseYear) {
+                baseYear = series.getBaseYear();
+                endYear = seriesEndYear;
+            } else {
+                baseYear = Math.min(baseYear, series.getBaseYear());
+                endYear = Math.max(endYear, seriesEndYear);
+            }
+        }
+
+        List<Region> regionList =
+            new ArrayList<Region>(ReferenceCatalog.get().getRegions());
+
+        Map<Long, Integer> regionRows = new HashMap<Long, Integer>();
+        for (int i = 0; i < regionList.size(); i++) {
+            regionRows.put(regionList.get(i).getId(), i);
+        }
+
+        RegionCube cube = new RegionCube(
+            regionList, baseYear, endYear - baseYear + 1,
+            !population.isEmpty());
+
+        for (Series series : seriesList) {
+            Country country = series.getCountry();
+
+            if (country == null || country.getRegion() == null) {
+                continue;
+            }
+
+            Integer row = regionRows.get(country.getRegion().getId());
+            if (row == null) {
+                continue;
+            }
+
+            Series populationSeries = population.get(country.getId());
+
+            double[] values = series.getValues();
+
+            for (int i = 0; i < values.length; i++) {
+                if (Double.isNaN(values[i])) {
+                    continue;
+                }
+
+                int year = series.getBaseYear() + i;
+                int cell = row * cube.years + year - baseYear;
+
+                cube.counts[cell]++;
+                cube.sums[cell] += values[i];
+
+                Double weight = populationSeries == null ?
+                    null : populationSeries.getPointValue(year);
+
+                if (weight != null) {
+                    cube.weightedSums[cell] += values[i] * weight;
+                    cube.weights[cell] += weight;
+                }
+            }
+        }
+
+        return cube;
+    }
+
+    private static String getKey(Long indicatorId) {
+        return "cube:" + indicatorId;
+    }
+
+    /**
+     * Build and store the cube of the specified indicator unless its data
+     * changed meanwhile.
+     */
+    private static RegionCube store(Long indicatorId, boolean replace) {
+        long start = generation.get();
+
+        RegionCube cube = build(indicatorId);
+
+        // Empty cubes are not kept so that they are not served once the
+        // indicator has data
+        if (cube == null || cube.years == 0 || generation.get() != start) {
+            return cube;
+        }
+
+        if (replace) {
+            cubes.replace(indicatorId, cube);
+        } else {
+            cubes.put(indicatorId, cube);
+        }
+
+        return cube;
+    }
+
+    /**
+     * Get the cube of the specified indicator, building it the first time.
+     *
+     * @param indicatorId ID of the indicator.
+     * @return Cube, or {@code null} if the indicator is not ready or its
+     *         series could not be read.
+     */
+    public static RegionCube get(Long indicatorId) {
+        final Long cubeIndicatorId = indicatorId;
+
+        RegionCube cube = cubes.get(indicatorId);
+
+        if (cube != null) {
+            if (cube.stale) {
+                TaskScheduler.submit(
+                    getKey(indicatorId),
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            store(cubeIndicatorId, true);
+                        }
+                    },
+                    TaskScheduler.Priority.BACKGROUND);
+            }
+
+            return cube;
+        }
+
+        // Building a cube of an indicator without data would cache an empty
+        // cube and queue a rebuild of its column file
+        if (!CatalogIndex.isIndicatorReady(indicatorId)) {
+            return null;
+        }
+
+        return store(indicatorId, false);
+    }
+
+    /**
+     * Discard the cube of the specified indicator. If it is the population
+     * indicator, the weighted means of every cube are dropped instead and
+     * the cubes are rebuilt in the background on their next use.
+     *
+     * @param indicatorId ID of the indicator.
+     */
+    public static void invalidate(Long indicatorId) {
+        generation.incrementAndGet();
+
+        cubes.remove(indicatorId);
+
+        if (isPopulationIndicator(indicatorId)) {
+            for (Map.Entry<Long, RegionCube> entry : cubes.entrySet()) {
+                RegionCube cube = entry.getValue();
+
+                if (!cube.stale) {
+                    cubes.replace(entry.getKey(), cube, new RegionCube(cube));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the aggregates of every region within an interval.
+     *
+     * @param startYear Start year of the interval.
+     * @param endYear End year of the interval.
+     * @return List of aggregates ordered by region, then year, leaving out
+     *         regions and years without values.
+     */
+    public List<RegionAggregate> getAggregates(int startYear, int endYear) {
+        List<RegionAggregate> aggregates = new ArrayList<RegionAggregate>();
+
+        int first = Math.max(startYear, baseYear) - baseYear;
+        int last = Math.min(endYear, baseYear + years - 1) - baseYear;
+
+        for (int row = 0; row < regions.length; row++) {
+            for (int i = first; i <= last; i++) {
+                int cell = row * years + i;
+                int count = counts[cell];
+
+                if (count == 0) {
+                    continue;
+                }
+
+                Double weightedMean = null;
+                if (weighted && weights[cell] > 0) {
+                    weightedMean = weightedSums[cell] / weights[cell];
+                }
+
+                aggregates.add(new RegionAggregate(
+                    regions[row], baseYear + i, count,
+                    sums[cell], sums[cell] / count, weightedMean));
+            }
+        }
+
+        return aggregates;
+    }
+}
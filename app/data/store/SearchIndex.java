@@ -0,0 +1,327 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import models.Model;
+
+/**
+ * Immutable inverted index over the names of a collection of models.
+ *
+ * Names are split into lowercase tokens. Query terms match tokens by prefix
+ * through binary search over the sorted token dictionary, and the postings
+ * of every term are intersected. Results are ranked exact name match first,
+ * then name prefix match, then token prefix match and finally plain
+ * substring match, and alphabetically within each rank.
+ */
+public class SearchIndex<T extends Model> {
+    /**
+     * Extractor of the indexed name of an item.
+     */
+    public interface Namer<T> {
+        String getName(T item);
+    }
+
+    /**
+     * Predicate restricting search results.
+     */
+    public interface Filter<T> {
+        boolean accept(T item);
+    }
+
+    private static int RANK_EXACT = 3;
+    private static int RANK_PREFIX = 2;
+    private static int RANK_TOKEN = 1;
+
+    private final List<T> items;
+    private final String[] names;
+    private final Map<Long, T> itemsById;
+
+    private final String[] tokens;
+    private final int[][] postings;
+
+    /**
+     * Build index.
+     *
+     * @param collection Items to index.
+     * @param namer Extractor of the indexed name.
+     */
+    public SearchIndex(Collection<T> collection, Namer<T> namer) {
+        final Namer<T> itemNamer = namer;
+
+        List<T> sortedItems = new ArrayList<T>(collection);
+        Collections.sort(sortedItems, new Comparator<T>() {
+            @Override
+            public int compare(T a, T b) {
+                return normalize(itemNamer.getName(a)).compareTo(
+                    normalize(itemNamer.getName(b)));
+            }
+        });
+
+        int size = sortedItems.size();
+
+        items = Collections.unmodifiableList(sortedItems);
+        names = new String[size];
+
+        Map<Long, T> idMap = new HashMap<Long, T>();
+        TreeMap<String, List<Integer>> tokenMap =
+            new TreeMap<String, List<Integer>>();
+
+        for (int i = 0; i < size; i++) {
+            T item = sortedItems.get(i);
+
+            names[i] = normalize(namer.getName(item));
+            idMap.put(item.getId(), item);
+
+            for (String token : tokenize(names[i])) {
+                List<Integer> posting = tokenMap.get(token);
+                if (posting == null) {
+                    posting = new ArrayList<Integer>();
+                    tokenMap.put(token, posting);
+                }
+
+                if (posting.isEmpty() ||
+                        posting.get(posting.size() - 1) != i) {
+                    posting.add(i);
+                }
+            }
+        }
+
+        itemsById = Collections.unmodifiableMap(idMap);
+
+        tokens = tokenMap.keySet().toArray(new String[tokenMap.size()]);
+        postings = new int[tokens.length][];
+
+        int t = 0;
+        for (List<Integer> posting : tokenMap.values()) {
+            int[] array = new int[posting.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = posting.get(i);
+            }
+            postings[t++] = array;
+        }
+    }
+
+    /**
+     * Copy an index replacing its items, keeping the names and postings.
+     */
+    private SearchIndex(SearchIndex<T> index, List<T> items) {
+        this.items = Collections.unmodifiableList(items);
+        this.names = index.names;
+
+        Map<Long, T> idMap = new HashMap<Long, T>();
+        for (T item : items) {
+            idMap.put(item.getId(), item);
+        }
+
+        this.itemsById = Collections.unmodifiableMap(idMap);
+
+        this.tokens = index.tokens;
+        this.postings = index.postings;
+    }
+
+    /**
+     * Get a copy of this index with the item of the same ID replaced by the
+     * specified item, which must have the same name.
+     *
+     * @param item Replacement item.
+     * @return New index, or this index if no item has the same ID.
+     */
+    public SearchIndex<T> replace(T item) {
+        List<T> replacedItems = new ArrayList<T>(items);
+
+        for (int i = 0; i < replacedItems.size(); i++) {
+            if (replacedItems.get(i).getId().equals(item.getId())) {
+                replacedItems.set(i, item);
+                return new SearchIndex<T>(this, replacedItems);
+            }
+        }
+
+        return this;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT).trim();
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> result = new ArrayList<String>();
+
+        int length = text.length();
+        int start = -1;
+
+        for (int i = 0; i <= length; i++) {
+            boolean letter =
+                i < length && Character.isLetterOrDigit(text.charAt(i));
+
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                result.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the items whose tokens start with the specified term.
+     */
+    private BitSet match(String term) {
+        BitSet matches = new BitSet(names.length);
+
+        int index = Arrays.binarySearch(tokens, term);
+        if (index < 0) {
+            index = -index - 1;
+        }
+
+        for (; index < tokens.length && tokens[index].startsWith(term);
+                index++) {
+            for (int item : postings[index]) {
+                matches.set(item);
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * Get all indexed items ordered by name.
+     *
+     * @return Unmodifiable list of items.
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Get all indexed items by ID.
+     *
+     * @return Unmodifiable map of items.
+     */
+    public Map<Long, T> getItemsById() {
+        return itemsById;
+    }
+
+    /**
+     * Get an indexed item by ID.
+     *
+     * @param id Item ID.
+     * @return Item or {@code null}.
+     */
+    public T get(Long id) {
+        return itemsById.get(id);
+    }
+
+    /**
+     * Search items.
+     *
+     * @param query Search terms.
+     * @param limit Maximum number of results.
+     * @param filter Filter of results, or {@code null}.
+     * @return Ranked list of items.
+     */
+    public List<T> search(String query, int limit, Filter<T> filter) {
+        String normalizedQuery = normalize(query);
+        List<String> terms = tokenize(normalizedQuery);
+
+        BitSet candidates = null;
+
+        for (String term : terms) {
+            BitSet matches = match(term);
+
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.and(matches);
+            }
+        }
+
+        if (candidates == null) {
+            candidates = new BitSet(names.length);
+            candidates.set(0, names.length);
+        }
+
+        List<List<T>> ranks = new ArrayList<List<T>>();
+        for (int rank = 0; rank <= RANK_EXACT; rank++) {
+            ranks.add(new ArrayList<T>());
+        }
+
+        for (int i = candidates.nextSetBit(0); i >= 0;
+                i = candidates.nextSetBit(i + 1)) {
+
+            T item = items.get(i);
+            if (filter != null && !filter.accept(item)) {
+                continue;
+            }
+
+            int rank = RANK_TOKEN;
+            if (names[i].equals(normalizedQuery)) {
+                rank = RANK_EXACT;
+            } else if (names[i].startsWith(normalizedQuery)) {
+                rank = RANK_PREFIX;
+            }
+
+            List<T> rankItems = ranks.get(rank);
+            if (rankItems.size() < limit) {
+                rankItems.add(item);
+            }
+        }
+
+        List<T> results = new ArrayList<T>();
+
+        for (int rank = RANK_EXACT; rank >= RANK_TOKEN; rank--) {
+            for (T item : ranks.get(rank)) {
+                if (results.size() == limit) {
+                    return results;
+                }
+                results.add(item);
+            }
+        }
+
+        // Fill remaining results with names containing the query anywhere
+        for (int i = 0; i < names.length && results.size() < limit; i++) {
+            if (candidates.get(i) || !names[i].contains(normalizedQuery)) {
+                continue;
+            }
+
+            T item = items.get(i);
+            if (filter == null || filter.accept(item)) {
+                results.add(item);
+            }
+        }
+
+        return results;
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.store;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import play.Configuration;
+
+import models.Series;
+
+/**
+ * Bounded LRU cache of series query results, weighted by the number of
+ * values held. Entries of an indicator are invalidated whenever its data
+ * changes.
+ */
+public class SeriesCache {
+    public static class Settings {
+        /**
+         * Maximum number of values held by all cached results.
+         */
+        public static long MAX_WEIGHT = 2000000;
+
+        public static void configure(Configuration configuration) {
+            if (configuration == null) {
+                return;
+            }
+
+            MAX_WEIGHT = configuration.getLong("maxWeight", MAX_WEIGHT);
+        }
+    }
+
+    public static class Metrics {
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long entries;
+        private long weight;
+
+        private Metrics() {
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getEntries() {
+            return entries;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            if (total == 0) {
+                return 0;
+            }
+            return hits / (double) total;
+        }
+    }
+
+    /**
+     * Cache key.
+     */
+    private static class Key {
+        private final Long indicatorId;
+        private final Integer startYear;
+        private final Integer endYear;
+
+        public Key(Long indicatorId, Integer startYear, Integer endYear) {
+            this.indicatorId = indicatorId;
+            this.startYear = startYear;
+            this.endYear = endYear;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) object;
+
+            return equals(indicatorId, key.indicatorId) &&
+                equals(startYear, key.startYear) &&
+                equals(endYear, key.endYear);
+        }
+
+        private static boolean equals(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = 31 * hash +
+                (indicatorId == null ? 0 : indicatorId.hashCode());
+            hash = 31 * hash + (startYear == null ? 0 : startYear.hashCode());
+            hash = 31 * hash + (endYear == null ? 0 : endYear.hashCode());
+            return hash;
+        }
+    }
+
+    /**
+     * Cached result.
+     */
+    private static class Entry {
+        private final List<Series> seriesList;
+        private final long weight;
+
+        public Entry(List<Series> seriesList, long weight) {
+            this.seriesList = seriesList;
+            this.weight = weight;
+        }
+    }
+
+    private static Map<Key, Entry> entries =
+        new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+    /**
+     * Number of invalidations of each indicator, used to discard results
+     * computed from data that changed while the query ran.
+     */
+    private static Map<Long, Long> generations = new HashMap<Long, Long>();
+
+    private static long weight;
+
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    private static long getWeight(List<Series> seriesList) {
+        long total = 0;
+
+        for (Series series : seriesList) {
+            if (series.getValues() != null) {
+                total += series.getValues().length;
+            } else if (series.getPoints() != null) {
+                total += series.getPoints().size();
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Get a cached result.
+     *
+     * @param indicatorId ID of the indicator.
+     * @param startYear Start year of the query interval.
+     * @param endYear End year of the query interval.
+     * @return Cached list of series, or {@code null}.
+     */
+    public static synchronized List<Series> get(
+            Long indicatorId, Integer startYear, Integer endYear) {
+
+        Entry entry = entries.get(new Key(indicatorId, startYear, endYear));
+
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.seriesList;
+    }
+
+    /**
+     * Get the current generation of an indicator, to be passed to
+     * {@link #put} once the result is computed.
+     *
+     * @param indicatorId ID of the indicator.
+     * @return Generation.
+     */
+    public static synchronized long getGeneration(Long indicatorId) {
+        Long generation = generations.get(indicatorId);
+        return generation == null ? 0 : generation;
+    }
+
+    /**
+     * Cache a result unless the indicator was invalidated since the
+     * specified generation.
+     *
+     * @param indicatorId ID of the indicator.
+     * @param startYear Start year of the query interval.
+     * @param endYear End year of the query interval.
+     * @param seriesList Result.
+     * @param generation Generation of the indicator when the query started.
+     */
+    public static synchronized void put(
+            Long indicatorId, Integer startYear, Integer endYear,
+            List<Series> seriesList, long generation) {
+
+        if (seriesList == null || generation != getGeneration(indicatorId)) {
+            return;
+        }
+
+        Entry entry = new Entry(seriesList, getWeight(seriesList));
+        if (entry.weight > Settings.MAX_WEIGHT) {
+            return;
+        }
+
+        Entry previous = entries.put(
+            new Key(indicatorId, startYear, endYear), entry);
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+
+        weight += entry.weight;
+
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (weight > Settings.MAX_WEIGHT && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+
+            weight -= eldest.weight;
+            evictions++;
+        }
+    }
+
+    /**
+     * Discard every cached result of an indicator.
+     *
+     * @param indicatorId ID of the indicator.
+     */
+    public static synchronized void invalidate(Long indicatorId) {
+        generations.put(indicatorId, getGeneration(indicatorId) + 1);
+
+        Iterator<Map.Entry<Key, Entry>> iterator =
+            entries.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> mapEntry = iterator.next();
+
+            if (indicatorId.equals(mapEntry.getKey().indicatorId)) {
+                iterator.remove();
+                weight -= mapEntry.getValue().weight;
+            }
+        }
+    }
+
+    /**
+     * Discard every cached result, generation and counter.
+     */
+    static synchronized void reset() {
+        entries.clear();
+        generations.clear();
+
+        weight = 0;
+
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    public static synchronized Metrics getMetrics() {
+        Metrics metrics = new Metrics();
+
+        metrics.hits = hits;
+        metrics.misses = misses;
+        metrics.evictions = evictions;
+        metrics.entries = entries.size();
+        metrics.weight = weight;
+
+        return metrics;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.store;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import play.db.DB;
+
+import models.Country;
+import models.Model;
+import models.Series;
+
+import data.tasks.ColumnStoreTask;
+import data.tasks.TaskScheduler;
+
+/**
+ * Read path of the series of loaded indicators.
+ */
+public class SeriesStore {
+    /**
+     * Earliest year covered by {@link #get(Long)}.
+     */
+    public static final int MIN_YEAR = 0;
+
+    /**
+     * Latest year covered by {@link #get(Long)}.
+     */
+    public static final int MAX_YEAR = 9999;
+
+    /**
+     * Get the series of an indicator within an interval, reading through
+     * the {@link SeriesCache}, then the {@link ColumnStore} and finally the
+     * database. Series are trimmed to the years they have values for.
+     *
+     * @param indicatorId ID of the indicator.
+     * @param startYear Start year of the interval.
+     * @param endYear End year of the interval.
+     * @return Shared list of series, or {@code null} on failure.
+     */
+    public static List<Series> get(
+            Long indicatorId, int startYear, int endYear) {
+
+        List<Series> allSeries =
+            SeriesCache.get(indicatorId, startYear, endYear);
+
+        if (allSeries == null) {
+            long generation = SeriesCache.getGeneration(indicatorId);
+
+            allSeries = load(indicatorId, startYear, endYear);
+
+            SeriesCache.put(
+                indicatorId, startYear, endYear, allSeries, generation);
+        }
+
+        return allSeries;
+    }
+
+    private static boolean isMissing(Double value) {
+        return value == null || value.isNaN();
+    }
+
+    private static List<Series> load(
+            Long indicatorId, int startYear, int endYear) {
+
+        Map<Long, Country> countries =
+            ReferenceCatalog.get().getCountriesById();
+
+        List<Series> allSeries = ColumnStore.read(
+            indicatorId, startYear, endYear, countries);
+
+        if (allSeries != null) {
+            return allSeries;
+        }
+
+        // Serve from the database while the indicator file is rebuilt,
+        // which is only worth doing for loaded indicators
+        if (ColumnStore.Settings.ENABLED &&
+                CatalogIndex.isIndicatorReady(indicatorId)) {
+            TaskScheduler.submit(
+                ColumnStoreTask.getKey(indicatorId),
+                new ColumnStoreTask(indicatorId),
+                TaskScheduler.Priority.BACKGROUND);
+        }
+
+        allSeries = new ArrayList<Series>();
+
+        Connection connection = DB.getConnection();
+
+        try {
+            // Slice the packed values to the query interval in the database
+            PreparedStatement statement = connection.prepareStatement(
+                "SELECT id, country_id, " +
+                    "greatest(base_year, ?), " +
+                    "point_values[(? - base_year + 1):(? - base_year + 1)] " +
+                "FROM series " +
+                "WHERE indicator_id = ? " +
+                    "AND base_year <= ? " +
+                    "AND base_year + array_length(point_values, 1) > ? " +
+                "ORDER BY country_id");
+
+            try {
+                statement.setInt(1, startYear);
+                statement.setInt(2, startYear);
+                statement.setInt(3, endYear);
+                statement.setLong(4, indicatorId);
+                statement.setInt(5, endYear);
+                statement.setInt(6, startYear);
+
+                ResultSet resultSet = statement.executeQuery();
+
+                while (resultSet.next()) {
+                    Double[] storedValues =
+                        (Double[]) resultSet.getArray(4).getArray();
+
+                    // Trim years without values at both ends
+                    int first = 0;
+                    int last = storedValues.length - 1;
+
+                    while (first <= last && isMissing(storedValues[first])) {
+                        first++;
+                    }
+
+                    while (last >= first && isMissing(storedValues[last])) {
+                        last--;
+                    }
+
+                    if (first > last) {
+                        continue;
+                    }
+
+                    double[] values = new double[last - first + 1];
+
+                    for (int i = 0; i < values.length; i++) {
+                        Double value = storedValues[first + i];
+                        values[i] = value == null ? Double.NaN : value;
+                    }
+
+                    long countryId = resultSet.getLong(2);
+                    Country country = resultSet.wasNull() ?
+                        null : countries.get(countryId);
+
+                    Series series = new Series(
+                        null, country, resultSet.getInt(3) + first, values);
+                    series.set(Model.FIELD_ID, resultSet.getLong(1));
+                    allSeries.add(series);
+                }
+
+                resultSet.close();
+            } finally {
+                statement.close();
+            }
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+            return null;
+
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException exception) {
+                exception.printStackTrace();
+            }
+        }
+
+        return allSeries;
+    }
+
+    /**
+     * Get every series of an indicator.
+     *
+     * @param indicatorId ID of the indicator.
+     * @return Shared list of series, or {@code null} on failure.
+     */
+    public static List<Series> get(Long indicatorId) {
+        return get(indicatorId, MIN_YEAR, MAX_YEAR);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import models.Statistics;
+
+/**
+ * In-memory mirror of the {@code statistics} table, holding the per-year
+ * {@link Statistics} of each loaded indicator.
+ */
+public class StatisticsStore {
+    private static ConcurrentMap<Long, List<Statistics>> store =
+        new ConcurrentHashMap<Long, List<Statistics>>();
+
+    /**
+     * Number of invalidations of each indicator, used to discard statistics
+     * read while the data changed.
+     */
+    private static Map<Long, Long> generations = new HashMap<Long, Long>();
+
+    private static synchronized long getGeneration(Long indicatorId) {
+        Long generation = generations.get(indicatorId);
+        return generation == null ? 0 : generation;
+    }
+
+    private static synchronized void put(
+            Long indicatorId, List<Statistics> statistics, long generation) {
+
+        if (generation == getGeneration(indicatorId)) {
+            store.put(indicatorId, statistics);
+        }
+    }
+
+    /**
+     * Get the statistics of the specified indicator ordered by year,
+     * reading them from the database the first time. Statistics of
+     * indicators that are not ready are read on every call, since they may
+     * be partially written.
+     *
+     * @param indicatorId Indicator ID.
+     * @return Unmodifiable list of statistics.
+     */
+    public static List<Statistics> get(Long indicatorId) {
+        List<Statistics> statistics = store.get(indicatorId);
+
+        if (statistics == null) {
+            long generation = getGeneration(indicatorId);
+
+            statistics = Collections.unmodifiableList(Statistics.objects
+                .where()
+                    .eq("indicator.id", indicatorId)
+                    .orderBy("year")
+                .findList());
+
+            if (CatalogIndex.isIndicatorReady(indicatorId)) {
+                put(indicatorId, statistics, generation);
+            }
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Get the statistics of the specified indicator within an interval.
+     *
+     * @param indicatorId Indicator ID.
+     * @param startYear Start year of the interval.
+     * @param endYear End year of the interval.
+     * @return List of statistics ordered by year.
+     */
+    public static List<Statistics> get(
+            Long indicatorId, int startYear, int endYear) {
+
+        List<Statistics> statistics = new ArrayList<Statistics>();
+
+        for (Statistics yearStatistics : get(indicatorId)) {
+            int year = yearStatistics.getYear();
+            if (year >= startYear && year <= endYear) {
+                statistics.add(yearStatistics);
+            }
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Discard the statistics of the specified indicator after its data
+     * changed.
+     *
+     * @param indicatorId Indicator ID.
+     */
+    public static synchronized void invalidate(Long indicatorId) {
+        generations.put(indicatorId, getGeneration(indicatorId) + 1);
+        store.remove(indicatorId);
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * In-memory and memory-mapped data stores.
+ */
+
+package data.store;
\ No newline at end of file
@@ -0,0 +1,540 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.tasks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.SqlUpdate;
+
+import play.Configuration;
+import play.Logger;
+
+import models.Country;
+import models.Indicator;
+import models.Point;
+import models.Series;
+
+import data.store.CatalogIndex;
+import data.store.ColumnStore;
+
+/**
+ * Task that imports a World Development Indicators bulk archive (ZIP
+ * containing the WDI CSV files) without network access.
+ *
+ * Every {@link Indicator} that is {@code AVAILABLE} when the import starts
+ * is marked {@code LOADING} while it runs, then {@code READY} if the
+ * archive contained data for it or {@code AVAILABLE} otherwise. Since rows
+ * of every indicator are spread across the whole archive, a failure in any
+ * chunk discards the import and marks every indicator {@code AVAILABLE}.
+ */
+public class BulkImportTask implements Runnable {
+    public static class Settings {
+        /**
+         * Path of the WDI bulk archive.
+         */
+        public static String ARCHIVE = "WDI_csv.zip";
+
+        /**
+         * Number of worker threads writing chunks.
+         */
+        public static int THREADS = 4;
+
+        /**
+         * Number of CSV rows (one per indicator and country) per chunk.
+         */
+        public static int CHUNK_SIZE = 2000;
+
+        public static void configure(Configuration configuration) {
+            if (configuration == null) {
+                return;
+            }
+
+            ARCHIVE = configuration.getString("archive", ARCHIVE);
+            THREADS = configuration.getInt("threads", THREADS);
+            CHUNK_SIZE = configuration.getInt("chunkSize", CHUNK_SIZE);
+        }
+    }
+
+    public static final String KEY = "import";
+
+    private static Charset CHARSET = Charset.forName("UTF-8");
+
+    private static String DATA_ENTRY = "data.csv";
+    private static String COUNTRY_ENTRY = "country.csv";
+
+    private static String COLUMN_COUNTRY_CODE = "Country Code";
+    private static String COLUMN_INDICATOR_CODE = "Indicator Code";
+    private static String COLUMN_ISO = "2-alpha code";
+
+    protected String archive;
+
+    public BulkImportTask(String archive) {
+        this.archive = archive;
+    }
+
+    public BulkImportTask() {
+        this(Settings.ARCHIVE);
+    }
+
+    /**
+     * Split a CSV line into fields.
+     *
+     * @param line CSV line.
+     * @return List of fields.
+     */
+    private static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<String>();
+        StringBuilder field = new StringBuilder();
+
+        boolean quoted = false;
+        int length = line.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < length && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static BufferedReader getReader(ZipFile zipFile, ZipEntry entry)
+        throws IOException {
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+            zipFile.getInputStream(entry), CHARSET), 1 << 16);
+
+        // Skip byte order mark
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+
+        return reader;
+    }
+
+    private static ZipEntry findEntry(ZipFile zipFile, String suffix) {
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (entry.getName().toLowerCase().endsWith(suffix)) {
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Read the mapping from WDI country codes (ISO 3166-1 alpha-3 and
+     * aggregate codes) to stored countries.
+     */
+    private static Map<String, Country> readCountryMap(ZipFile zipFile)
+        throws IOException {
+
+        Map<String, Country> countryByISO = new HashMap<String, Country>();
+        for (Country country : Country.objects.all()) {
+            countryByISO.put(country.getISO(), country);
+        }
+
+        Map<String, Country> countryMap = new HashMap<String, Country>();
+
+        ZipEntry entry = findEntry(zipFile, COUNTRY_ENTRY);
+        if (entry == null) {
+            return countryMap;
+        }
+
+        BufferedReader reader = getReader(zipFile, entry);
+
+        try {
+            String line = reader.readLine();
+            if (line == null) {
+                return countryMap;
+            }
+
+            List<String> header = parseLine(line);
+            int codeColumn = header.indexOf(COLUMN_COUNTRY_CODE);
+            int isoColumn = header.indexOf(COLUMN_ISO);
+
+            if (codeColumn < 0 || isoColumn < 0) {
+                return countryMap;
+            }
+
+            while ((line = reader.readLine()) != null) {
+                List<String> fields = parseLine(line);
+                if (fields.size() <= Math.max(codeColumn, isoColumn)) {
+                    continue;
+                }
+
+                Country country = countryByISO.get(fields.get(isoColumn));
+                if (country != null) {
+                    countryMap.put(fields.get(codeColumn), country);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return countryMap;
+    }
+
+    /**
+     * Task that converts and writes a chunk of CSV rows, returning whether
+     * the chunk was written.
+     */
+    private static class ChunkTask implements Callable<Boolean> {
+        private List<String> lines;
+        private int codeColumn;
+        private int indicatorColumn;
+        private Map<Integer, Integer> yearColumns;
+
+        private Map<String, Country> countryMap;
+        private Map<String, Indicator> indicatorMap;
+        private Set<Indicator> importedIndicators;
+
+        public ChunkTask(
+                List<String> lines,
+                int codeColumn, int indicatorColumn,
+                Map<Integer, Integer> yearColumns,
+                Map<String, Country> countryMap,
+                Map<String, Indicator> indicatorMap,
+                Set<Indicator> importedIndicators) {
+
+            this.lines = lines;
+            this.codeColumn = codeColumn;
+            this.indicatorColumn = indicatorColumn;
+            this.yearColumns = yearColumns;
+            this.countryMap = countryMap;
+            this.indicatorMap = indicatorMap;
+            this.importedIndicators = importedIndicators;
+        }
+
+        @Override
+        public Boolean call() {
+            List<Series> seriesList = new ArrayList<Series>();
+            List<Point> pointList = new ArrayList<Point>();
+
+            Set<Indicator> indicators = new HashSet<Indicator>();
+
+            for (String line : lines) {
+                List<String> fields = parseLine(line);
+                if (fields.size() <= Math.max(codeColumn, indicatorColumn)) {
+                    continue;
+                }
+
+                Indicator indicator =
+                    indicatorMap.get(fields.get(indicatorColumn));
+                Country country = countryMap.get(fields.get(codeColumn));
+
+                if (indicator == null || country == null) {
+                    continue;
+                }
+
+                Series series = null;
+
+                for (Map.Entry<Integer, Integer> entry :
+                        yearColumns.entrySet()) {
+
+                    int column = entry.getValue();
+                    if (column >= fields.size() ||
+                            fields.get(column).isEmpty()) {
+                        continue;
+                    }
+
+                    double value;
+                    try {
+                        value = Double.valueOf(fields.get(column));
+                    } catch (NumberFormatException exception) {
+                        continue;
+                    }
+
+                    if (series == null) {
+                        series = new Series(indicator, country);
+                        seriesList.add(series);
+                    }
+
+                    pointList.add(new Point(series, entry.getKey(), value));
+                }
+
+                if (series != null) {
+                    indicators.add(indicator);
+                }
+            }
+
+            // Series are packed and statistics computed once per indicator
+            // after every chunk was written
+            if (BulkLoader.append(seriesList, pointList) < 0) {
+                return false;
+            }
+
+            importedIndicators.addAll(indicators);
+            return true;
+        }
+    }
+
+    private static void updateIndicatorStatus(
+            Set<Long> indicatorIds, Indicator.Status status) {
+
+        if (indicatorIds.isEmpty()) {
+            return;
+        }
+
+        SqlUpdate updateIndicators = Ebean.createSqlUpdate(
+            "UPDATE indicator " +
+            "SET status = :status " +
+            "WHERE id IN (:ids)");
+
+        updateIndicators.setParameter("status", status);
+        updateIndicators.setParameter("ids", indicatorIds);
+        updateIndicators.execute();
+
+        for (Long indicatorId : indicatorIds) {
+            CatalogIndex.updateIndicatorStatus(indicatorId, status);
+        }
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+
+        Map<String, Indicator> indicatorMap = new HashMap<String, Indicator>();
+
+        List<Indicator> indicators = Indicator.objects
+            .where()
+                .eq("status", Indicator.Status.AVAILABLE)
+            .findList();
+
+        Set<Long> indicatorIds = new HashSet<Long>();
+
+        for (Indicator indicator : indicators) {
+            indicatorMap.put(indicator.getIdent(), indicator);
+            indicatorIds.add(indicator.getId());
+        }
+
+        updateIndicatorStatus(indicatorIds, Indicator.Status.LOADING);
+
+        Set<Indicator> importedIndicators =
+            Collections.synchronizedSet(new HashSet<Indicator>());
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Settings.THREADS);
+
+        boolean imported = false;
+
+        try {
+            imported = importArchive(
+                executor, indicatorMap, importedIndicators);
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        } finally {
+            executor.shutdownNow();
+
+            Set<Long> importedIds = new HashSet<Long>();
+
+            for (Indicator indicator : importedIndicators) {
+                // Discard indicators missing the rows of a failed chunk
+                if (imported && BulkLoader.finish(indicator.getId())) {
+                    importedIds.add(indicator.getId());
+                } else {
+                    new IndicatorUnloadTask(indicator).run();
+                }
+            }
+
+            if (!imported) {
+                Logger.info(String.format(
+                    "Import from %s failed, discarded %d indicators",
+                    archive, importedIndicators.size()));
+            }
+
+            indicatorIds.removeAll(importedIds);
+
+            updateIndicatorStatus(importedIds, Indicator.Status.READY);
+            updateIndicatorStatus(indicatorIds, Indicator.Status.AVAILABLE);
+
+            for (Long indicatorId : importedIds) {
+                ColumnStore.write(indicatorId);
+            }
+
+            Logger.info(String.format(
+                "Imported %d indicators from %s in %.1f s",
+                importedIds.size(), archive,
+                (System.nanoTime() - start) / 1e9));
+        }
+    }
+
+    /**
+     * Write every chunk of the archive.
+     *
+     * @return Whether every chunk was written.
+     */
+    private boolean importArchive(
+            ExecutorService executor,
+            Map<String, Indicator> indicatorMap,
+            Set<Indicator> importedIndicators)
+        throws IOException {
+
+        ZipFile zipFile = new ZipFile(archive);
+
+        try {
+            Map<String, Country> countryMap = readCountryMap(zipFile);
+
+            ZipEntry entry = findEntry(zipFile, DATA_ENTRY);
+            if (entry == null) {
+                throw new IOException("No data file in " + archive);
+            }
+
+            BufferedReader reader = getReader(zipFile, entry);
+
+            try {
+                String line = reader.readLine();
+                if (line == null) {
+                    return true;
+                }
+
+                List<String> header = parseLine(line);
+                int codeColumn = header.indexOf(COLUMN_COUNTRY_CODE);
+                int indicatorColumn = header.indexOf(COLUMN_INDICATOR_CODE);
+
+                if (codeColumn < 0 || indicatorColumn < 0) {
+                    throw new IOException("Unexpected data file header");
+                }
+
+                Map<Integer, Integer> yearColumns =
+                    new HashMap<Integer, Integer>();
+                for (int i = 0; i < header.size(); i++) {
+                    try {
+                        yearColumns.put(Integer.valueOf(header.get(i)), i);
+                    } catch (NumberFormatException exception) {
+                        continue;
+                    }
+                }
+
+                // Bound the number of chunks held in memory at once
+                final Semaphore permits =
+                    new Semaphore(Settings.THREADS * 2);
+                List<Future<Boolean>> futures =
+                    new ArrayList<Future<Boolean>>();
+
+                List<String> lines = new ArrayList<String>();
+
+                while (true) {
+                    line = reader.readLine();
+
+                    if (line != null) {
+                        lines.add(line);
+                    }
+
+                    if (lines.size() < Settings.CHUNK_SIZE && line != null) {
+                        continue;
+                    }
+
+                    if (!lines.isEmpty()) {
+                        permits.acquireUninterruptibly();
+
+                        final ChunkTask chunkTask = new ChunkTask(
+                            lines, codeColumn, indicatorColumn, yearColumns,
+                            countryMap, indicatorMap, importedIndicators);
+
+                        futures.add(executor.submit(new Callable<Boolean>() {
+                            @Override
+                            public Boolean call() {
+                                try {
+                                    return chunkTask.call();
+                                } finally {
+                                    permits.release();
+                                }
+                            }
+                        }));
+
+                        lines = new ArrayList<String>();
+                    }
+
+                    if (line == null) {
+                        break;
+                    }
+                }
+
+                boolean success = true;
+
+                for (Future<Boolean> future : futures) {
+                    try {
+                        if (!future.get()) {
+                            success = false;
+                        }
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    } catch (ExecutionException exception) {
+                        exception.printStackTrace();
+                        success = false;
+                    }
+                }
+
+                return success;
+            } finally {
+                reader.close();
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+}
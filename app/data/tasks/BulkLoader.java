@@ -0,0 +1,664 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.tasks;
+
+import java.nio.charset.Charset;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.PersistenceException;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.Transaction;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import play.Logger;
+
+import models.Model;
+import models.Point;
+import models.Series;
+
+import data.store.ColumnStore;
+import data.store.RegionCube;
+import data.store.SeriesCache;
+import data.store.StatisticsStore;
+
+/**
+ * Bulk writer for {@link Series} and {@link Point} rows using the PostgreSQL
+ * {@code COPY} protocol.
+ */
+public class BulkLoader {
+    /**
+     * Size in bytes of the buffer sent to the server on each copy write.
+     */
+    private static int BUFFER_SIZE = 1 << 16;
+
+    private static Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Buffered writer for a single {@code COPY ... FROM STDIN} operation.
+     */
+    private static class CopyWriter {
+        private CopyIn copyIn;
+        private StringBuilder buffer = new StringBuilder(BUFFER_SIZE);
+
+        public CopyWriter(CopyManager copyManager, String sql)
+            throws SQLException {
+
+            copyIn = copyManager.copyIn(sql);
+        }
+
+        public CopyWriter append(Object value) {
+            if (value != null) {
+                buffer.append(value);
+            }
+            return this;
+        }
+
+        public CopyWriter separator() {
+            buffer.append(',');
+            return this;
+        }
+
+        public void endRow() throws SQLException {
+            buffer.append('\n');
+
+            if (buffer.length() >= BUFFER_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            byte[] bytes = buffer.toString().getBytes(CHARSET);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+
+        public long end() throws SQLException {
+            try {
+                flush();
+                return copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        }
+    }
+
+    /**
+     * Allocate a block of IDs from the specified sequence in a single round
+     * trip.
+     *
+     * @param connection Database connection.
+     * @param sequence Name of the sequence.
+     * @param count Number of IDs to allocate.
+     * @return Allocated IDs.
+     */
+    private static long[] allocateIds(
+            Connection connection, String sequence, int count)
+        throws SQLException {
+
+        long[] ids = new long[count];
+
+        if (count == 0) {
+            return ids;
+        }
+
+        PreparedStatement statement = connection.prepareStatement(
+            "SELECT nextval('" + sequence + "') " +
+            "FROM generate_series(1, ?)");
+
+        try {
+            statement.setInt(1, count);
+
+            ResultSet resultSet = statement.executeQuery();
+            for (int i = 0; i < count && resultSet.next(); i++) {
+                ids[i] = resultSet.getLong(1);
+            }
+            resultSet.close();
+        } finally {
+            statement.close();
+        }
+
+        return ids;
+    }
+
+    /**
+     * Indicator IDs of the {@code point} partitions known to exist.
+     */
+    private static Set<Long> partitions = new HashSet<Long>();
+
+    /**
+     * Get the name of the {@code point} partition holding the points of the
+     * specified indicator.
+     *
+     * @param indicatorId Indicator ID.
+     * @return Partition table name.
+     */
+    public static String getPartition(Long indicatorId) {
+        return "point_" + indicatorId;
+    }
+
+    /**
+     * Create the {@code point} partitions of the specified indicators if
+     * they do not exist yet. Partitions are created outside of the loading
+     * transaction and one at a time, since concurrent creation of the same
+     * partition fails.
+     *
+     * @param indicatorIds Indicator IDs.
+     */
+    public static synchronized void createPartitions(Set<Long> indicatorIds) {
+        for (Long indicatorId : indicatorIds) {
+            if (indicatorId == null || partitions.contains(indicatorId)) {
+                continue;
+            }
+
+            Ebean.createSqlUpdate(
+                "CREATE TABLE IF NOT EXISTS " + getPartition(indicatorId) +
+                " PARTITION OF point FOR VALUES IN (" + indicatorId + ")")
+                .execute();
+
+            partitions.add(indicatorId);
+        }
+    }
+
+    /**
+     * Detach the {@code point} partition of the specified indicator within
+     * the transaction of the specified connection, so that its points can
+     * be dropped with {@link #dropPartition} once the transaction commits
+     * without holding a lock on {@code point} meanwhile. The foreign key
+     * of the detached table to {@code series} is dropped so that the
+     * series can be deleted in the same transaction.
+     *
+     * @param connection Database connection.
+     * @param indicatorId Indicator ID.
+     */
+    public static void detachPartition(
+            Connection connection, Long indicatorId) throws SQLException {
+
+        String partition = getPartition(indicatorId);
+
+        boolean exists = false;
+        boolean attached = false;
+
+        PreparedStatement statement = connection.prepareStatement(
+            "SELECT to_regclass(?) IS NOT NULL, EXISTS (" +
+                "SELECT 1 FROM pg_inherits " +
+                "WHERE inhrelid = to_regclass(?))");
+
+        try {
+            statement.setString(1, partition);
+            statement.setString(2, partition);
+
+            ResultSet resultSet = statement.executeQuery();
+            if (resultSet.next()) {
+                exists = resultSet.getBoolean(1);
+                attached = resultSet.getBoolean(2);
+            }
+            resultSet.close();
+        } finally {
+            statement.close();
+        }
+
+        if (attached) {
+            execute(connection,
+                "ALTER TABLE point DETACH PARTITION " + partition);
+        }
+
+        if (exists) {
+            execute(connection,
+                "ALTER TABLE " + partition +
+                " DROP CONSTRAINT IF EXISTS fk_point_series_3");
+        }
+    }
+
+    private static void execute(Connection connection, String sql)
+        throws SQLException {
+
+        PreparedStatement statement = connection.prepareStatement(sql);
+
+        try {
+            statement.execute();
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Drop the {@code point} partition of the specified indicator after it
+     * was detached with {@link #detachPartition}, deleting all of its
+     * points at once.
+     *
+     * @param indicatorId Indicator ID.
+     */
+    public static synchronized void dropPartition(Long indicatorId) {
+        // The partition is detached at this point, so it must be created
+        // again on the next load even if it cannot be dropped now
+        partitions.remove(indicatorId);
+
+        try {
+            Ebean.createSqlUpdate(
+                "DROP TABLE IF EXISTS " + getPartition(indicatorId))
+                .execute();
+        } catch (PersistenceException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Get the {@code CopyManager} of the specified connection.
+     *
+     * @param connection Database connection.
+     * @return Copy manager.
+     */
+    private static CopyManager getCopyManager(Connection connection)
+        throws SQLException {
+
+        return connection.unwrap(PGConnection.class).getCopyAPI();
+    }
+
+    /**
+     * Copy the specified series, assigning them IDs from {@code series_seq}
+     * so that points can reference them.
+     *
+     * @return Number of rows written.
+     */
+    private static long copySeries(
+            Connection connection, CopyManager copyManager,
+            Collection<Series> seriesList)
+        throws SQLException {
+
+        if (seriesList.isEmpty()) {
+            return 0;
+        }
+
+        long[] seriesIds = allocateIds(
+            connection, "series_seq", seriesList.size());
+
+        CopyWriter writer = new CopyWriter(copyManager,
+            "COPY series (id, indicator_id, country_id) " +
+            "FROM STDIN WITH (FORMAT csv)");
+
+        int i = 0;
+        for (Series series : seriesList) {
+            series.set(Model.FIELD_ID, seriesIds[i++]);
+
+            writer
+                .append(series.getId()).separator()
+                .append(getId(series.getIndicator())).separator()
+                .append(getId(series.getCountry()))
+                .endRow();
+        }
+
+        return writer.end();
+    }
+
+    /**
+     * Copy the specified points. The series of every point must have an ID.
+     *
+     * @return Number of rows written.
+     */
+    private static long copyPoints(
+            Connection connection, CopyManager copyManager,
+            List<Point> pointList)
+        throws SQLException {
+
+        if (pointList.isEmpty()) {
+            return 0;
+        }
+
+        long[] pointIds = allocateIds(
+            connection, "point_seq", pointList.size());
+
+        CopyWriter writer = new CopyWriter(copyManager,
+            "COPY point (id, indicator_id, series_id, year, value) " +
+            "FROM STDIN WITH (FORMAT csv)");
+
+        int i = 0;
+        for (Point point : pointList) {
+            writer
+                .append(pointIds[i++]).separator()
+                .append(getId(point.getIndicator())).separator()
+                .append(point.getSeries().getId()).separator()
+                .append(point.getYear()).separator()
+                .append(point.getValue())
+                .endRow();
+        }
+
+        return writer.end();
+    }
+
+    /**
+     * Update the value of existing points in a single batch.
+     *
+     * @return Number of rows written.
+     */
+    private static long updatePoints(
+            Connection connection, Map<Point, Double> pointValues)
+        throws SQLException {
+
+        if (pointValues.isEmpty()) {
+            return 0;
+        }
+
+        PreparedStatement statement = connection.prepareStatement(
+            "UPDATE point SET value = ? WHERE indicator_id = ? AND id = ?");
+
+        try {
+            for (Map.Entry<Point, Double> entry : pointValues.entrySet()) {
+                Point point = entry.getKey();
+
+                statement.setDouble(1, entry.getValue());
+                statement.setLong(2, point.getIndicator().getId());
+                statement.setLong(3, point.getId());
+                statement.addBatch();
+            }
+
+            statement.executeBatch();
+        } finally {
+            statement.close();
+        }
+
+        return pointValues.size();
+    }
+
+    /**
+     * Rebuild the packed {@code base_year}/{@code point_values} columns of
+     * every series of the specified indicators from their points. Missing
+     * years are stored as {@code NaN}.
+     *
+     * @return Number of rows written.
+     */
+    private static long packSeries(
+            Connection connection, Set<Long> indicatorIds)
+        throws SQLException {
+
+        indicatorIds.remove(null);
+
+        if (indicatorIds.isEmpty()) {
+            return 0;
+        }
+
+        PreparedStatement statement = connection.prepareStatement(
+            "UPDATE series s " +
+            "SET base_year = d.base_year, " +
+                "point_values = (" +
+                    "SELECT array_agg(" +
+                        "coalesce(p.value, 'NaN'::float8) " +
+                        "ORDER BY y.year) " +
+                    "FROM generate_series(d.base_year, d.end_year) " +
+                        "AS y(year) " +
+                    "LEFT JOIN point p " +
+                        "ON p.indicator_id = s.indicator_id " +
+                        "AND p.series_id = s.id " +
+                        "AND p.year = y.year) " +
+            "FROM (" +
+                "SELECT series_id, " +
+                    "min(year) AS base_year, max(year) AS end_year " +
+                "FROM point " +
+                "WHERE indicator_id = ANY(?) " +
+                "GROUP BY series_id) d " +
+            "WHERE s.id = d.series_id");
+
+        try {
+            statement.setArray(1, connection.createArrayOf(
+                "bigint", indicatorIds.toArray(new Long[0])));
+            return statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Recompute the per-year {@code statistics} rows of the specified
+     * indicators from their points. Rows are upserted on the unique
+     * {@code (indicator_id, year)} constraint so that concurrent writers
+     * of the same indicator cannot produce duplicates, then rows of years
+     * without points are deleted.
+     *
+     * @return Number of rows written.
+     */
+    private static long computeStatistics(
+            Connection connection, Set<Long> indicatorIds)
+        throws SQLException {
+
+        if (indicatorIds.isEmpty()) {
+            return 0;
+        }
+
+        Array ids = connection.createArrayOf(
+            "bigint", indicatorIds.toArray(new Long[0]));
+
+        long rows;
+
+        PreparedStatement upsertStatement = connection.prepareStatement(
+            "INSERT INTO statistics (" +
+                "id, indicator_id, year, count, min, max, sum, mean, " +
+                "p10, p25, median, p75, p90) " +
+            "SELECT nextval('statistics_seq'), indicator_id, year, " +
+                "count(*), min(value), max(value), sum(value), avg(value), " +
+                "percentile_cont(0.10) WITHIN GROUP (ORDER BY value), " +
+                "percentile_cont(0.25) WITHIN GROUP (ORDER BY value), " +
+                "percentile_cont(0.50) WITHIN GROUP (ORDER BY value), " +
+                "percentile_cont(0.75) WITHIN GROUP (ORDER BY value), " +
+                "percentile_cont(0.90) WITHIN GROUP (ORDER BY value) " +
+            "FROM point " +
+            "WHERE indicator_id = ANY(?) " +
+            "GROUP BY indicator_id, year " +
+            "ON CONFLICT (indicator_id, year) DO UPDATE " +
+            "SET count = excluded.count, " +
+                "min = excluded.min, max = excluded.max, " +
+                "sum = excluded.sum, mean = excluded.mean, " +
+                "p10 = excluded.p10, p25 = excluded.p25, " +
+                "median = excluded.median, " +
+                "p75 = excluded.p75, p90 = excluded.p90");
+
+        try {
+            upsertStatement.setArray(1, ids);
+            rows = upsertStatement.executeUpdate();
+        } finally {
+            upsertStatement.close();
+        }
+
+        PreparedStatement deleteStatement = connection.prepareStatement(
+            "DELETE FROM statistics s " +
+            "WHERE s.indicator_id = ANY(?) " +
+            "AND NOT EXISTS (" +
+                "SELECT 1 FROM point p " +
+                "WHERE p.indicator_id = s.indicator_id " +
+                "AND p.year = s.year)");
+
+        try {
+            deleteStatement.setArray(1, ids);
+            rows += deleteStatement.executeUpdate();
+        } finally {
+            deleteStatement.close();
+        }
+
+        return rows;
+    }
+
+    /**
+     * Write the specified series and points in a single transaction.
+     *
+     * Series are assigned IDs from {@code series_seq} before being written
+     * so that points can reference them.
+     *
+     * @param seriesList Series to write.
+     * @param pointList Points to write.
+     * @return Number of rows written, or {@code -1} on failure.
+     */
+    public static long load(
+            Collection<Series> seriesList, List<Point> pointList) {
+
+        return upsert(
+            seriesList, pointList, Collections.<Point, Double>emptyMap());
+    }
+
+    /**
+     * Write new series and points and update the value of existing points
+     * in a single transaction.
+     *
+     * @param seriesList New series to write.
+     * @param pointList New points to write, of new or existing series.
+     * @param pointValues New values of existing points.
+     * @return Number of rows written, or {@code -1} on failure.
+     */
+    public static long upsert(
+            Collection<Series> seriesList, List<Point> pointList,
+            Map<Point, Double> pointValues) {
+
+        return write(seriesList, pointList, pointValues, true);
+    }
+
+    /**
+     * Write the specified series and points in a single transaction without
+     * packing series or computing statistics, for loads split in several
+     * parts that are completed with {@link #finish} once all of them were
+     * written.
+     *
+     * @param seriesList Series to write.
+     * @param pointList Points to write.
+     * @return Number of rows written, or {@code -1} on failure.
+     */
+    public static long append(
+            Collection<Series> seriesList, List<Point> pointList) {
+
+        return write(
+            seriesList, pointList, Collections.<Point, Double>emptyMap(),
+            false);
+    }
+
+    /**
+     * Pack the series and compute the statistics of the specified indicator
+     * in a single transaction, after its points were written with
+     * {@link #append}.
+     *
+     * @param indicatorId Indicator ID.
+     * @return Whether the indicator was completed.
+     */
+    public static boolean finish(Long indicatorId) {
+        Set<Long> indicatorIds = new HashSet<Long>();
+        indicatorIds.add(indicatorId);
+
+        Transaction transaction = Ebean.beginTransaction();
+
+        try {
+            Connection connection = transaction.getConnection();
+
+            packSeries(connection, indicatorIds);
+            computeStatistics(connection, indicatorIds);
+
+            Ebean.commitTransaction();
+
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+            return false;
+
+        } finally {
+            Ebean.endTransaction();
+        }
+
+        invalidate(indicatorIds);
+
+        return true;
+    }
+
+    private static void invalidate(Set<Long> indicatorIds) {
+        for (Long indicatorId : indicatorIds) {
+            StatisticsStore.invalidate(indicatorId);
+            SeriesCache.invalidate(indicatorId);
+            ColumnStore.invalidate(indicatorId);
+            RegionCube.invalidate(indicatorId);
+        }
+    }
+
+    private static long write(
+            Collection<Series> seriesList, List<Point> pointList,
+            Map<Point, Double> pointValues, boolean complete) {
+
+        long start = System.nanoTime();
+        long rows = 0;
+
+        Set<Long> indicatorIds = new HashSet<Long>();
+        for (Point point : pointList) {
+            indicatorIds.add(getId(point.getIndicator()));
+        }
+        for (Point point : pointValues.keySet()) {
+            indicatorIds.add(getId(point.getIndicator()));
+        }
+
+        createPartitions(indicatorIds);
+
+        Transaction transaction = Ebean.beginTransaction();
+
+        try {
+            Connection connection = transaction.getConnection();
+            CopyManager copyManager = getCopyManager(connection);
+
+            rows += copySeries(connection, copyManager, seriesList);
+            rows += copyPoints(connection, copyManager, pointList);
+            rows += updatePoints(connection, pointValues);
+
+            if (complete) {
+                packSeries(connection, indicatorIds);
+                computeStatistics(connection, indicatorIds);
+            }
+
+            Ebean.commitTransaction();
+
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+            return -1;
+
+        } finally {
+            Ebean.endTransaction();
+        }
+
+        invalidate(indicatorIds);
+
+        long elapsed = System.nanoTime() - start;
+
+        Logger.info(String.format(
+            "Bulk loaded %d rows in %.3f s (%.0f rows/s)",
+            rows, elapsed / 1e9, rows / (elapsed / 1e9)));
+
+        return rows;
+    }
+
+    private static Long getId(Model model) {
+        return model == null ? null : model.getId();
+    }
+}
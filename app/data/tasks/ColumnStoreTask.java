@@ -21,16 +21,30 @@
 
 package data.tasks;
 
-import java.util.concurrent.TimeUnit;
+import data.store.ColumnStore;
 
-import play.libs.Akka;
+/**
+ * Rebuild the {@link ColumnStore} file of an indicator from the database.
+ */
+public class ColumnStoreTask implements Runnable {
+    protected Long indicatorId;
+
+    public ColumnStoreTask(Long indicatorId) {
+        this.indicatorId = indicatorId;
+    }
 
-import scala.concurrent.duration.Duration;
+    /**
+     * Get the key deduplicating rebuilds of the specified indicator.
+     *
+     * @param indicatorId ID of the indicator.
+     * @return Task key.
+     */
+    public static String getKey(Long indicatorId) {
+        return "columns:" + indicatorId;
+    }
 
-public class TaskUtils {
-    public static void runTask(Runnable task) {
-        Akka.system().scheduler().scheduleOnce(
-            Duration.create(0, TimeUnit.MILLISECONDS),
-            task, Akka.system().dispatcher());
+    @Override
+    public void run() {
+        ColumnStore.write(indicatorId);
     }
 }
@@ -26,11 +26,15 @@ import com.avaje.ebean.Ebean;
 import models.Country;
 
 import data.api.WorldBank;
+import data.store.CatalogIndex;
+import data.store.ReferenceCatalog;
 
 public class CountryPopulateTask implements Runnable {
     @Override
     public void run() {
         if (Country.objects.findRowCount() > 0) {
+            ReferenceCatalog.rebuild();
+            CatalogIndex.rebuildCountries();
             return;
         }
 
@@ -38,5 +42,8 @@ public class CountryPopulateTask implements Runnable {
 
         Ebean.save(worldBank.getRegionMap().values());
         Ebean.save(worldBank.getCountryMap().values());
+
+        ReferenceCatalog.rebuild();
+        CatalogIndex.rebuildCountries();
     }
 }
@@ -21,12 +21,13 @@
 
 package data.tasks;
 
-import com.avaje.ebean.Ebean;
+import play.Logger;
 
 import models.Country;
 import models.Indicator;
 
 import data.api.WorldBank;
+import data.store.ColumnStore;
 
 public class IndicatorLoadTask implements Runnable {
     protected Indicator indicator;
@@ -35,12 +36,35 @@ public class IndicatorLoadTask implements Runnable {
         this.indicator = indicator;
     }
 
-    @Override
-    public void run() {
+    /**
+     * Fetch and write the series of the indicator.
+     *
+     * @return Whether the series were fetched and written.
+     */
+    public boolean load() {
         WorldBank worldBank = new WorldBank().fetchSeries(
             this.indicator, Country.objects.all());
 
-        Ebean.save(worldBank.getSeriesMap().values());
-        Ebean.save(worldBank.getPointList());
+        if (worldBank.getSeriesMap() == null) {
+            Logger.info(String.format(
+                "Fetching indicator %d failed", indicator.getId()));
+            return false;
+        }
+
+        long rows = BulkLoader.load(
+            worldBank.getSeriesMap().values(), worldBank.getPointList());
+
+        if (rows < 0) {
+            return false;
+        }
+
+        ColumnStore.write(indicator.getId());
+
+        return true;
+    }
+
+    @Override
+    public void run() {
+        load();
     }
 }
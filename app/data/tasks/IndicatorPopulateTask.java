@@ -26,11 +26,15 @@ import com.avaje.ebean.Ebean;
 import models.Indicator;
 
 import data.api.WorldBank;
+import data.store.CatalogIndex;
+import data.store.ReferenceCatalog;
 
 public class IndicatorPopulateTask implements Runnable {
     @Override
     public void run() {
         if (Indicator.objects.findRowCount() > 0) {
+            ReferenceCatalog.rebuild();
+            CatalogIndex.rebuildIndicators();
             return;
         }
 
@@ -39,5 +43,8 @@ public class IndicatorPopulateTask implements Runnable {
         Ebean.save(worldBank.getTopicMap().values());
         Ebean.save(worldBank.getSourceMap().values());
         Ebean.save(worldBank.getIndicatorMap().values());
+
+        ReferenceCatalog.rebuild();
+        CatalogIndex.rebuildIndicators(worldBank.getIndicatorMap().values());
     }
 }
@@ -0,0 +1,227 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.tasks;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import play.Configuration;
+
+import models.Country;
+import models.Indicator;
+import models.Point;
+import models.Series;
+
+import data.api.WorldBank;
+import data.store.ColumnStore;
+
+/**
+ * Task that fetches the most recent years of an already loaded
+ * {@link Indicator} and writes only new or changed points.
+ */
+public class IndicatorRefreshTask implements Runnable {
+    public static class Settings {
+        /**
+         * Number of most recent years fetched on each refresh.
+         */
+        public static int YEARS = 5;
+
+        /**
+         * Interval in minutes between refresh cycles, or {@code 0} to
+         * disable periodic refreshes.
+         */
+        public static int INTERVAL = 24 * 60;
+
+        public static void configure(Configuration configuration) {
+            if (configuration == null) {
+                return;
+            }
+
+            YEARS = configuration.getInt("years", YEARS);
+            INTERVAL = configuration.getInt("interval", INTERVAL);
+        }
+    }
+
+    /**
+     * Task that submits a refresh of every ready {@link Indicator}.
+     */
+    public static class Cycle implements Runnable {
+        public static final String KEY = "refresh";
+
+        @Override
+        public void run() {
+            List<Indicator> indicators = Indicator.objects
+                .where()
+                    .eq("status", Indicator.Status.READY)
+                .findList();
+
+            // Queued refreshes hold a key of their own so that loads and
+            // unloads of the same indicators are not rejected meanwhile
+            for (Indicator indicator : indicators) {
+                TaskScheduler.submit(
+                    getKey(indicator),
+                    new IndicatorRefreshTask(indicator),
+                    TaskScheduler.Priority.BACKGROUND);
+            }
+        }
+    }
+
+    private static final String KEY_PREFIX = "refresh:";
+
+    protected Indicator indicator;
+
+    public IndicatorRefreshTask(Indicator indicator) {
+        this.indicator = indicator;
+    }
+
+    /**
+     * Get the key deduplicating queued refreshes of the specified
+     * {@link Indicator}.
+     *
+     * @param indicator Indicator.
+     * @return Task key.
+     */
+    public static String getKey(Indicator indicator) {
+        return KEY_PREFIX + indicator.getId();
+    }
+
+    private static Long getCountryId(Series series) {
+        Country country = series.getCountry();
+        return country == null ? null : country.getId();
+    }
+
+    private boolean isReady() {
+        Indicator current = Indicator.objects
+            .select("status")
+            .where()
+                .idEq(indicator.getId())
+            .findUnique();
+
+        return current != null && current.isReady();
+    }
+
+    @Override
+    public void run() {
+        String key = TaskScheduler.getIndicatorKey(indicator);
+
+        // Skip indicators being loaded or unloaded since the cycle started
+        if (!TaskScheduler.acquire(key)) {
+            return;
+        }
+
+        try {
+            if (isReady()) {
+                refresh();
+            }
+        } finally {
+            TaskScheduler.release(key);
+        }
+    }
+
+    private void refresh() {
+        int endYear = Calendar.getInstance().get(Calendar.YEAR);
+        int startYear = endYear - Settings.YEARS + 1;
+
+        WorldBank worldBank = new WorldBank().fetchSeries(
+            indicator, Country.objects.all(), startYear, endYear);
+
+        if (worldBank.getPointList() == null) {
+            return;
+        }
+
+        // Index stored series by country and stored points by series/year
+        Map<Long, Series> storedSeriesMap = new HashMap<Long, Series>();
+
+        List<Series> storedSeriesList = Series.objects
+            .where()
+                .eq("indicator.id", indicator.getId())
+            .findList();
+
+        for (Series series : storedSeriesList) {
+            storedSeriesMap.put(getCountryId(series), series);
+        }
+
+        Map<Long, Map<Integer, Point>> storedPointMap =
+            new HashMap<Long, Map<Integer, Point>>();
+
+        List<Point> storedPointList = Point.objects
+            .where()
+                .eq("indicator.id", indicator.getId())
+                .ge("year", startYear)
+                .le("year", endYear)
+            .findList();
+
+        for (Point point : storedPointList) {
+            Long seriesId = point.getSeries().getId();
+
+            Map<Integer, Point> seriesPoints = storedPointMap.get(seriesId);
+            if (seriesPoints == null) {
+                seriesPoints = new HashMap<Integer, Point>();
+                storedPointMap.put(seriesId, seriesPoints);
+            }
+
+            seriesPoints.put(point.getYear(), point);
+        }
+
+        // Compare fetched points against stored points
+        Set<Series> newSeries = new LinkedHashSet<Series>();
+        List<Point> newPoints = new ArrayList<Point>();
+        Map<Point, Double> changedValues = new HashMap<Point, Double>();
+
+        for (Point point : worldBank.getPointList()) {
+            Series series = storedSeriesMap.get(
+                getCountryId(point.getSeries()));
+
+            if (series == null) {
+                newSeries.add(point.getSeries());
+                newPoints.add(point);
+                continue;
+            }
+
+            Map<Integer, Point> seriesPoints =
+                storedPointMap.get(series.getId());
+            Point storedPoint = seriesPoints == null ?
+                null : seriesPoints.get(point.getYear());
+
+            if (storedPoint == null) {
+                newPoints.add(
+                    new Point(series, point.getYear(), point.getValue()));
+            } else if (Double.compare(
+                    storedPoint.getValue(), point.getValue()) != 0) {
+                changedValues.put(storedPoint, point.getValue());
+            }
+        }
+
+        if (newPoints.isEmpty() && changedValues.isEmpty()) {
+            return;
+        }
+
+        if (BulkLoader.upsert(newSeries, newPoints, changedValues) >= 0) {
+            ColumnStore.write(indicator.getId());
+        }
+    }
+}
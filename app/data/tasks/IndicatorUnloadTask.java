@@ -21,11 +21,21 @@
 
 package data.tasks;
 
+import java.sql.SQLException;
+
+import javax.persistence.PersistenceException;
+
 import com.avaje.ebean.Ebean;
 import com.avaje.ebean.SqlUpdate;
+import com.avaje.ebean.Transaction;
 
 import models.Indicator;
 
+import data.store.ColumnStore;
+import data.store.RegionCube;
+import data.store.SeriesCache;
+import data.store.StatisticsStore;
+
 public class IndicatorUnloadTask implements Runnable {
     protected Indicator indicator;
 
@@ -33,22 +43,59 @@ public class IndicatorUnloadTask implements Runnable {
         this.indicator = indicator;
     }
 
+    /**
+     * Delete the series and statistics of the indicator and detach the
+     * partition of its points in a single transaction, then drop the
+     * partition.
+     *
+     * @return Whether the indicator data was deleted.
+     */
+    public boolean unload() {
+        Transaction transaction = Ebean.beginTransaction();
+
+        try {
+            SqlUpdate deleteStatistics = Ebean.createSqlUpdate(
+                "DELETE FROM statistics " +
+                "WHERE indicator_id = :indicator_id");
+            deleteStatistics.setParameter("indicator_id", indicator.getId());
+            deleteStatistics.execute();
+
+            BulkLoader.detachPartition(
+                transaction.getConnection(), indicator.getId());
+
+            SqlUpdate deleteSeries = Ebean.createSqlUpdate(
+                "DELETE FROM series " +
+                "WHERE indicator_id = :indicator_id");
+            deleteSeries.setParameter("indicator_id", indicator.getId());
+            deleteSeries.execute();
+
+            Ebean.commitTransaction();
+
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+            return false;
+
+        } catch (PersistenceException exception) {
+            exception.printStackTrace();
+            return false;
+
+        } finally {
+            Ebean.endTransaction();
+        }
+
+        // Dropping the detached partition takes no lock on point
+        BulkLoader.dropPartition(indicator.getId());
+
+        StatisticsStore.invalidate(indicator.getId());
+        SeriesCache.invalidate(indicator.getId());
+        ColumnStore.invalidate(indicator.getId());
+        RegionCube.invalidate(indicator.getId());
+
+        return true;
+    }
+
     @Override
     public void run() {
-        SqlUpdate deletePoints = Ebean.createSqlUpdate(
-            "DELETE FROM point " +
-            "WHERE series_id IN (" +
-                "SELECT id " +
-                "FROM series " +
-                "WHERE indicator_id = :indicator_id " +
-            ")");
-        deletePoints.setParameter("indicator_id", indicator.getId());
-        deletePoints.execute();
-
-        SqlUpdate deleteSeries = Ebean.createSqlUpdate(
-            "DELETE FROM series " +
-            "WHERE indicator_id = :indicator_id");
-        deleteSeries.setParameter("indicator_id", indicator.getId());
-        deleteSeries.execute();
+        unload();
     }
 }
@@ -0,0 +1,331 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.tasks;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import play.Configuration;
+
+import models.Indicator;
+
+/**
+ * Scheduler running ingestion tasks on a dedicated bounded worker pool,
+ * away from the dispatcher serving requests.
+ */
+public class TaskScheduler {
+    /**
+     * Task priority. Tasks with a lower ordinal run first.
+     */
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    public static class Settings {
+        public static int THREADS = 2;
+
+        public static void configure(Configuration configuration) {
+            if (configuration == null) {
+                return;
+            }
+
+            THREADS = configuration.getInt("threads", THREADS);
+        }
+    }
+
+    /**
+     * Snapshot of scheduler metrics.
+     */
+    public static class Metrics {
+        private int queueDepth;
+        private int activeCount;
+        private long submittedCount;
+        private long rejectedCount;
+        private long completedCount;
+        private long failedCount;
+        private long totalWaitTime;
+        private long totalRunTime;
+
+        private Metrics() {
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getActiveCount() {
+            return activeCount;
+        }
+
+        public long getSubmittedCount() {
+            return submittedCount;
+        }
+
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        public long getCompletedCount() {
+            return completedCount;
+        }
+
+        public long getFailedCount() {
+            return failedCount;
+        }
+
+        /**
+         * Get the mean time spent by tasks in the queue.
+         *
+         * @return Mean wait time in milliseconds.
+         */
+        public double getMeanWaitTime() {
+            if (completedCount == 0) {
+                return 0;
+            }
+            return totalWaitTime / (double) completedCount / 1e6;
+        }
+
+        /**
+         * Get the mean time spent by tasks running.
+         *
+         * @return Mean run time in milliseconds.
+         */
+        public double getMeanRunTime() {
+            if (completedCount == 0) {
+                return 0;
+            }
+            return totalRunTime / (double) completedCount / 1e6;
+        }
+    }
+
+    /**
+     * Queued task ordered by priority and then by submission order.
+     */
+    private static class ScheduledTask
+        implements Runnable, Comparable<ScheduledTask> {
+
+        private static AtomicLong sequence = new AtomicLong();
+
+        private String key;
+        private Runnable task;
+        private Priority priority;
+
+        private long order;
+        private long submitTime;
+
+        public ScheduledTask(String key, Runnable task, Priority priority) {
+            this.key = key;
+            this.task = task;
+            this.priority = priority;
+
+            this.order = sequence.getAndIncrement();
+            this.submitTime = System.nanoTime();
+        }
+
+        @Override
+        public int compareTo(ScheduledTask other) {
+            int result = priority.compareTo(other.priority);
+            if (result != 0) {
+                return result;
+            }
+            return Long.compare(order, other.order);
+        }
+
+        @Override
+        public void run() {
+            long startTime = System.nanoTime();
+            totalWaitTime.addAndGet(startTime - submitTime);
+
+            try {
+                task.run();
+            } catch (Throwable throwable) {
+                failedCount.incrementAndGet();
+                throwable.printStackTrace();
+            } finally {
+                if (key != null) {
+                    pendingTasks.remove(key, this);
+                }
+
+                totalRunTime.addAndGet(System.nanoTime() - startTime);
+                completedCount.incrementAndGet();
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor executor;
+
+    private static ConcurrentMap<String, Object> pendingTasks =
+        new ConcurrentHashMap<String, Object>();
+
+    /**
+     * Value held by keys acquired by running tasks.
+     */
+    private static final Object ACQUIRED = new Object();
+
+    private static AtomicLong submittedCount = new AtomicLong();
+    private static AtomicLong rejectedCount = new AtomicLong();
+    private static AtomicLong completedCount = new AtomicLong();
+    private static AtomicLong failedCount = new AtomicLong();
+    private static AtomicLong totalWaitTime = new AtomicLong();
+    private static AtomicLong totalRunTime = new AtomicLong();
+
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(
+                Settings.THREADS, Settings.THREADS,
+                0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(
+                            runnable,
+                            "wbi-task-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        }
+
+        return executor;
+    }
+
+    /**
+     * Submit a task.
+     *
+     * @param task Task to run.
+     * @param priority Task priority.
+     */
+    public static void submit(Runnable task, Priority priority) {
+        submit(null, task, priority);
+    }
+
+    /**
+     * Submit a task unless another task with the same key is queued or
+     * running.
+     *
+     * @param key Deduplication key, or {@code null} to always submit.
+     * @param task Task to run.
+     * @param priority Task priority.
+     * @return Whether the task was submitted.
+     */
+    public static boolean submit(
+            String key, Runnable task, Priority priority) {
+
+        ScheduledTask scheduledTask = new ScheduledTask(key, task, priority);
+
+        if (key != null &&
+                pendingTasks.putIfAbsent(key, scheduledTask) != null) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+
+        submittedCount.incrementAndGet();
+        getExecutor().execute(scheduledTask);
+        return true;
+    }
+
+    /**
+     * Acquire a key while running, so that tasks submitted with the same key
+     * are rejected until it is released.
+     *
+     * @param key Deduplication key.
+     * @return Whether the key was acquired.
+     */
+    public static boolean acquire(String key) {
+        return pendingTasks.putIfAbsent(key, ACQUIRED) == null;
+    }
+
+    /**
+     * Release a key acquired with {@link #acquire}.
+     *
+     * @param key Deduplication key.
+     */
+    public static void release(String key) {
+        pendingTasks.remove(key, ACQUIRED);
+    }
+
+    /**
+     * Get the key deduplicating tasks that modify the data of the specified
+     * {@link Indicator}.
+     *
+     * @param indicator Indicator.
+     * @return Task key.
+     */
+    public static String getIndicatorKey(Indicator indicator) {
+        return "indicator:" + indicator.getId();
+    }
+
+    /**
+     * Check whether a task with the specified key is queued or running.
+     *
+     * @param key Deduplication key.
+     * @return Whether a task is pending.
+     */
+    public static boolean isPending(String key) {
+        return pendingTasks.containsKey(key);
+    }
+
+    /**
+     * Get a snapshot of the scheduler metrics.
+     *
+     * @return Metrics.
+     */
+    public static synchronized Metrics getMetrics() {
+        Metrics metrics = new Metrics();
+
+        if (executor != null) {
+            metrics.queueDepth = executor.getQueue().size();
+            metrics.activeCount = executor.getActiveCount();
+        }
+
+        metrics.submittedCount = submittedCount.get();
+        metrics.rejectedCount = rejectedCount.get();
+        metrics.completedCount = completedCount.get();
+        metrics.failedCount = failedCount.get();
+        metrics.totalWaitTime = totalWaitTime.get();
+        metrics.totalRunTime = totalRunTime.get();
+
+        return metrics;
+    }
+
+    /**
+     * Stop the worker pool, discarding queued tasks.
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+
+        pendingTasks.clear();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import rpc.shared.data.Serializable;
+import rpc.shared.data.Type;
+
+/**
+ * Correlation of an {@link Indicator} with the indicator of a
+ * {@link CorrelationSearch}, averaged over countries.
+ */
+public class Correlation implements Serializable {
+    protected Indicator indicator;
+
+    /**
+     * Mean Pearson correlation coefficient.
+     */
+    protected Double pearson;
+
+    /**
+     * Mean Spearman rank correlation coefficient.
+     */
+    protected Double spearman;
+
+    /**
+     * Mean absolute Pearson correlation coefficient, used for ranking.
+     */
+    protected Double strength;
+
+    /**
+     * Number of countries the means are computed over.
+     */
+    protected Integer count;
+
+    public Correlation() {}
+
+    public Correlation(
+            Indicator indicator, Double pearson, Double spearman,
+            Double strength, Integer count) {
+
+        this();
+
+        this.indicator = indicator;
+        this.pearson = pearson;
+        this.spearman = spearman;
+        this.strength = strength;
+        this.count = count;
+    }
+
+    public Indicator getIndicator() {
+        return indicator;
+    }
+
+    public Double getPearson() {
+        return pearson;
+    }
+
+    public Double getSpearman() {
+        return spearman;
+    }
+
+    public Double getStrength() {
+        return strength;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    /*
+     * {@code Serializable} implementation
+     */
+
+    public static final String FIELD_INDICATOR = "indicator";
+    public static final String FIELD_PEARSON = "pearson";
+    public static final String FIELD_SPEARMAN = "spearman";
+    public static final String FIELD_STRENGTH = "strength";
+    public static final String FIELD_COUNT = "count";
+
+    @Override
+    public Object get(String field) {
+        if (field.equals(FIELD_INDICATOR)) return indicator;
+        if (field.equals(FIELD_PEARSON)) return pearson;
+        if (field.equals(FIELD_SPEARMAN)) return spearman;
+        if (field.equals(FIELD_STRENGTH)) return strength;
+        if (field.equals(FIELD_COUNT)) return count;
+        return null;
+    }
+
+    @Override
+    public void set(String field, Object value) {
+        if (field.equals(FIELD_INDICATOR)) indicator = (Indicator) value;
+        if (field.equals(FIELD_PEARSON)) pearson = (Double) value;
+        if (field.equals(FIELD_SPEARMAN)) spearman = (Double) value;
+        if (field.equals(FIELD_STRENGTH)) strength = (Double) value;
+        if (field.equals(FIELD_COUNT)) count = (Integer) value;
+    }
+
+    private static Map<String, Type> fields;
+
+    @Override
+    public Map<String, Type> fields() {
+        if (fields == null) {
+            fields = new HashMap<String, Type>();
+            fields.put(FIELD_INDICATOR, Type.get(Indicator.class));
+            fields.put(FIELD_PEARSON, Type.get(Double.class));
+            fields.put(FIELD_SPEARMAN, Type.get(Double.class));
+            fields.put(FIELD_STRENGTH, Type.get(Double.class));
+            fields.put(FIELD_COUNT, Type.get(Integer.class));
+        }
+        return fields;
+    }
+}
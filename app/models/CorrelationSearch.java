@@ -0,0 +1,159 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package models;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import rpc.shared.data.Serializable;
+import rpc.shared.data.Type;
+
+/**
+ * State of a search for indicators correlated with an indicator.
+ */
+public class CorrelationSearch implements Serializable {
+    public enum Status {
+        RUNNING,
+        DONE,
+        CANCELLED,
+        FAILED
+    }
+
+    protected String ident;
+
+    protected Status status;
+
+    /**
+     * Number of candidate indicators compared so far.
+     */
+    protected Integer completed;
+
+    /**
+     * Number of candidate indicators.
+     */
+    protected Integer total;
+
+    /**
+     * Number of candidate indicators skipped because their values were not
+     * in the column store yet.
+     */
+    protected Integer skipped;
+
+    /**
+     * Ranked correlations, set once the search is done.
+     */
+    protected List<Correlation> correlations;
+
+    public CorrelationSearch() {}
+
+    public CorrelationSearch(
+            String ident, Status status, Integer completed, Integer total,
+            Integer skipped, List<Correlation> correlations) {
+
+        this();
+
+        this.ident = ident;
+        this.status = status;
+        this.completed = completed;
+        this.total = total;
+        this.skipped = skipped;
+        this.correlations = correlations;
+    }
+
+    public String getIdent() {
+        return ident;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Integer getCompleted() {
+        return completed;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public Integer getSkipped() {
+        return skipped;
+    }
+
+    public List<Correlation> getCorrelations() {
+        return correlations;
+    }
+
+    /*
+     * {@code Serializable} implementation
+     */
+
+    public static final String FIELD_IDENT = "ident";
+    public static final String FIELD_STATUS = "status";
+    public static final String FIELD_COMPLETED = "completed";
+    public static final String FIELD_TOTAL = "total";
+    public static final String FIELD_SKIPPED = "skipped";
+    public static final String FIELD_CORRELATIONS = "correlations";
+
+    @Override
+    public Object get(String field) {
+        if (field.equals(FIELD_IDENT)) return ident;
+        if (field.equals(FIELD_STATUS)) return status;
+        if (field.equals(FIELD_COMPLETED)) return completed;
+        if (field.equals(FIELD_TOTAL)) return total;
+        if (field.equals(FIELD_SKIPPED)) return skipped;
+        if (field.equals(FIELD_CORRELATIONS)) return correlations;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void set(String field, Object value) {
+        if (field.equals(FIELD_IDENT)) ident = (String) value;
+        if (field.equals(FIELD_STATUS)) status = (Status) value;
+        if (field.equals(FIELD_COMPLETED)) completed = (Integer) value;
+        if (field.equals(FIELD_TOTAL)) total = (Integer) value;
+        if (field.equals(FIELD_SKIPPED)) skipped = (Integer) value;
+        if (field.equals(FIELD_CORRELATIONS)) {
+            correlations = (List<Correlation>) value;
+        }
+    }
+
+    private static Map<String, Type> fields;
+
+    @Override
+    public Map<String, Type> fields() {
+        if (fields == null) {
+            fields = new HashMap<String, Type>();
+            fields.put(FIELD_IDENT, Type.get(String.class));
+            fields.put(FIELD_STATUS, Type.get(Status.class));
+            fields.put(FIELD_COMPLETED, Type.get(Integer.class));
+            fields.put(FIELD_TOTAL, Type.get(Integer.class));
+            fields.put(FIELD_SKIPPED, Type.get(Integer.class));
+            fields.put(
+                FIELD_CORRELATIONS,
+                Type.get(List.class, Type.get(Correlation.class)));
+        }
+        return fields;
+    }
+}
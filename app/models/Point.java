@@ -26,6 +26,8 @@ import java.util.Map;
 import javax.persistence.Entity;
 import javax.persistence.ManyToOne;
 
+import rpc.shared.data.SerializableCodec;
+import rpc.shared.data.SerializerException;
 import rpc.shared.data.Type;
 
 @SuppressWarnings("serial")
@@ -34,6 +36,9 @@ public class Point extends Model {
     public static Finder<Point> objects =
         new Finder<Point>(Point.class);
 
+    @ManyToOne
+    protected Indicator indicator;
+
     @ManyToOne
     protected Series series;
 
@@ -48,11 +53,16 @@ public class Point extends Model {
     public Point(Series series, int year, double value) {
         this();
 
+        this.indicator = series.getIndicator();
         this.series = series;
         this.year = year;
         this.value = value;
     }
 
+    public Indicator getIndicator() {
+        return indicator;
+    }
+
     public Series getSeries() {
         return series;
     }
@@ -97,4 +107,80 @@ public class Point extends Model {
         }
         return fields;
     }
+
+    /**
+     * Index-based {@code Serializable} implementation, setting the year and
+     * value without boxing.
+     */
+    public static class Codec extends SerializableCodec<Point> {
+        private static final int INDEX_ID = 0;
+        private static final int INDEX_YEAR = 1;
+        private static final int INDEX_VALUE = 2;
+
+        public Codec() {
+            super(FIELD_ID, FIELD_YEAR, FIELD_VALUE);
+        }
+
+        /**
+         * Write the fields of a point, which may only exist packed in a
+         * {@link Series}.
+         *
+         * @param id Point identifier.
+         * @param year Point year.
+         * @param value Point value.
+         * @param output Output.
+         * @throws SerializerException
+         */
+        public static void write(
+                Long id, int year, double value, Output output)
+            throws SerializerException {
+
+            output.name(FIELD_ID);
+            output.value(id);
+            output.name(FIELD_YEAR);
+            output.value(year);
+            output.name(FIELD_VALUE);
+            output.value(value);
+        }
+
+        @Override
+        public void write(Point point, Output output)
+            throws SerializerException {
+
+            write(point.getId(), point.getYear(), point.getValue(), output);
+        }
+
+        @Override
+        public void set(Point point, int index, Object value) {
+            switch (index) {
+                case INDEX_ID:
+                    point.id = (Long) value;
+                    break;
+                case INDEX_YEAR:
+                    point.year = (Integer) value;
+                    break;
+                case INDEX_VALUE:
+                    point.value = (Double) value;
+                    break;
+            }
+        }
+
+        @Override
+        public void setInt(Point point, int index, int value) {
+            if (index == INDEX_YEAR) {
+                point.year = value;
+            } else {
+                super.setInt(point, index, value);
+            }
+        }
+
+        @Override
+        public void setDouble(Point point, int index, double value) {
+            if (index == INDEX_VALUE) {
+                point.value = value;
+            } else {
+                super.setDouble(point, index, value);
+            }
+        }
+    }
 }
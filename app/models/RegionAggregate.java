@@ -0,0 +1,138 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import rpc.shared.data.Serializable;
+import rpc.shared.data.Type;
+
+/**
+ * Aggregate of the values of an indicator over the countries of a
+ * {@link Region} in a year.
+ */
+public class RegionAggregate implements Serializable {
+    protected Region region;
+
+    protected Integer year;
+
+    protected Integer count;
+
+    protected Double sum;
+
+    protected Double mean;
+
+    /**
+     * Mean weighted by country population, or {@code null} if population
+     * data is not loaded.
+     */
+    protected Double weightedMean;
+
+    public RegionAggregate() {}
+
+    public RegionAggregate(
+            Region region, Integer year, Integer count,
+            Double sum, Double mean, Double weightedMean) {
+
+        this();
+
+        this.region = region;
+        this.year = year;
+        this.count = count;
+        this.sum = sum;
+        this.mean = mean;
+        this.weightedMean = weightedMean;
+    }
+
+    public Region getRegion() {
+        return region;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public Double getSum() {
+        return sum;
+    }
+
+    public Double getMean() {
+        return mean;
+    }
+
+    public Double getWeightedMean() {
+        return weightedMean;
+    }
+
+    /*
+     * {@code Serializable} implementation
+     */
+
+    public static final String FIELD_REGION = "region";
+    public static final String FIELD_YEAR = "year";
+    public static final String FIELD_COUNT = "count";
+    public static final String FIELD_SUM = "sum";
+    public static final String FIELD_MEAN = "mean";
+    public static final String FIELD_WEIGHTED_MEAN = "weightedMean";
+
+    @Override
+    public Object get(String field) {
+        if (field.equals(FIELD_REGION)) return region;
+        if (field.equals(FIELD_YEAR)) return year;
+        if (field.equals(FIELD_COUNT)) return count;
+        if (field.equals(FIELD_SUM)) return sum;
+        if (field.equals(FIELD_MEAN)) return mean;
+        if (field.equals(FIELD_WEIGHTED_MEAN)) return weightedMean;
+        return null;
+    }
+
+    @Override
+    public void set(String field, Object value) {
+        if (field.equals(FIELD_REGION)) region = (Region) value;
+        if (field.equals(FIELD_YEAR)) year = (Integer) value;
+        if (field.equals(FIELD_COUNT)) count = (Integer) value;
+        if (field.equals(FIELD_SUM)) sum = (Double) value;
+        if (field.equals(FIELD_MEAN)) mean = (Double) value;
+        if (field.equals(FIELD_WEIGHTED_MEAN)) weightedMean = (Double) value;
+    }
+
+    private static Map<String, Type> fields;
+
+    @Override
+    public Map<String, Type> fields() {
+        if (fields == null) {
+            fields = new HashMap<String, Type>();
+            fields.put(FIELD_REGION, Type.get(Region.class));
+            fields.put(FIELD_YEAR, Type.get(Integer.class));
+            fields.put(FIELD_COUNT, Type.get(Integer.class));
+            fields.put(FIELD_SUM, Type.get(Double.class));
+            fields.put(FIELD_MEAN, Type.get(Double.class));
+            fields.put(FIELD_WEIGHTED_MEAN, Type.get(Double.class));
+        }
+        return fields;
+    }
+}
@@ -21,6 +21,7 @@
 
 package models;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,7 +29,10 @@ import java.util.Map;
 import javax.persistence.Entity;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.Transient;
 
+import rpc.shared.data.SerializableCodec;
+import rpc.shared.data.SerializerException;
 import rpc.shared.data.Type;
 
 @SuppressWarnings("serial")
@@ -46,6 +50,12 @@ public class Series extends Model {
     @OneToMany
     protected List<Point> points;
 
+    @Transient
+    protected int baseYear;
+
+    @Transient
+    protected double[] values;
+
     public Series() {
         super();
     }
@@ -61,6 +71,15 @@ public class Series extends Model {
         this.points = points;
     }
 
+    public Series(
+            Indicator indicator, Country country,
+            int baseYear, double[] values) {
+
+        this(indicator, country);
+        this.baseYear = baseYear;
+        this.values = values;
+    }
+
     public Indicator getIndicator() {
         return indicator;
     }
@@ -70,14 +89,51 @@ public class Series extends Model {
     }
 
     public List<Point> getPoints() {
+        if (points == null && values != null) {
+            List<Point> packedPoints = new ArrayList<Point>();
+
+            for (int i = 0; i < values.length; i++) {
+                if (!Double.isNaN(values[i])) {
+                    packedPoints.add(new Point(this, baseYear + i, values[i]));
+                }
+            }
+
+            points = packedPoints;
+        }
         return points;
     }
 
+    public int getBaseYear() {
+        return baseYear;
+    }
+
+    public double[] getValues() {
+        return values;
+    }
+
+    public boolean isPacked() {
+        return points == null && values != null;
+    }
+
     public void setPoints(List<Point> points) {
         this.points = points;
     }
 
     public Double getAverage() {
+        if (values != null) {
+            double sum = 0.0;
+            int count = 0;
+
+            for (double value : values) {
+                if (!Double.isNaN(value)) {
+                    sum += value;
+                    count++;
+                }
+            }
+
+            return count == 0 ? null : sum / count;
+        }
+
         if (points.isEmpty()) {
             return null;
         }
@@ -96,16 +152,37 @@ public class Series extends Model {
 
     public Map<Integer, Double> getPointsMap() {
         if (pointsMap == null) {
-            pointsMap = new HashMap<Integer, Double>();
+            Map<Integer, Double> map = new HashMap<Integer, Double>();
 
-            for (Point point : points) {
-                pointsMap.put(point.getYear(), point.getValue());
+            if (values != null) {
+                for (int i = 0; i < values.length; i++) {
+                    if (!Double.isNaN(values[i])) {
+                        map.put(baseYear + i, values[i]);
+                    }
+                }
+            } else {
+                for (Point point : points) {
+                    map.put(point.getYear(), point.getValue());
+                }
             }
+
+            pointsMap = map;
         }
         return pointsMap;
     }
 
     public Double getPointValue(Integer year) {
+        if (values != null) {
+            int index = year - baseYear;
+
+            if (index < 0 || index >= values.length ||
+                    Double.isNaN(values[index])) {
+                return null;
+            }
+
+            return values[index];
+        }
+
         return getPointsMap().get(year);
     }
 
@@ -119,7 +196,7 @@ public class Series extends Model {
     @Override
     public Object get(String field) {
         if (field.equals(FIELD_COUNTRY)) return country;
-        if (field.equals(FIELD_POINTS)) return points;
+        if (field.equals(FIELD_POINTS)) return getPoints();
         return super.get(field);
     }
 
@@ -143,4 +220,65 @@ public class Series extends Model {
         }
         return fields;
     }
+
+    /**
+     * Index-based {@code Serializable} implementation, writing the points
+     * of a packed series directly from its values.
+     */
+    public static class Codec extends SerializableCodec<Series> {
+        private static final int INDEX_ID = 0;
+        private static final int INDEX_COUNTRY = 1;
+        private static final int INDEX_POINTS = 2;
+
+        public Codec() {
+            super(FIELD_ID, FIELD_COUNTRY, FIELD_POINTS);
+        }
+
+        @Override
+        public void write(Series series, Output output)
+            throws SerializerException {
+
+            output.name(FIELD_ID);
+            output.value(series.getId());
+            output.name(FIELD_COUNTRY);
+            output.value(series.getCountry());
+            output.name(FIELD_POINTS);
+
+            if (!series.isPacked()) {
+                output.value(series.getPoints());
+                return;
+            }
+
+            int baseYear = series.getBaseYear();
+            double[] values = series.getValues();
+
+            output.beginList();
+
+            for (int i = 0; i < values.length; i++) {
+                if (!Double.isNaN(values[i])) {
+                    output.beginObject();
+                    Point.Codec.write(null, baseYear + i, values[i], output);
+                    output.endObject();
+                }
+            }
+
+            output.endList();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void set(Series series, int index, Object value) {
+            switch (index) {
+                case INDEX_ID:
+                    series.id = (Long) value;
+                    break;
+                case INDEX_COUNTRY:
+                    series.country = (Country) value;
+                    break;
+                case INDEX_POINTS:
+                    series.points = (List<Point>) value;
+                    break;
+            }
+        }
+    }
 }
@@ -0,0 +1,263 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import rpc.shared.data.Serializable;
+import rpc.shared.data.Type;
+
+/**
+ * Criteria selecting and ordering the {@link Series} of an indicator.
+ *
+ * Unset criteria do not restrict the result. Value bounds and ordering
+ * refer to the values of the series in {@link #getYear()}.
+ */
+public class SeriesFilter implements Serializable {
+    /**
+     * Order of series by their value in the filter year.
+     */
+    public static enum Direction {
+        /**
+         * Lowest values first, for bottom-N queries.
+         */
+        ASC,
+
+        /**
+         * Highest values first, for top-N queries.
+         */
+        DESC
+    }
+
+    protected List<String> countryISOList;
+
+    protected List<Long> regionIds;
+
+    protected Integer year;
+
+    protected Double minValue;
+
+    protected Double maxValue;
+
+    protected Direction direction;
+
+    protected Integer limit;
+
+    public SeriesFilter() {}
+
+    public SeriesFilter(
+            List<String> countryISOList, List<Long> regionIds,
+            Integer year, Double minValue, Double maxValue,
+            Direction direction, Integer limit) {
+
+        this();
+
+        this.countryISOList = countryISOList;
+        this.regionIds = regionIds;
+        this.year = year;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.direction = direction;
+        this.limit = limit;
+    }
+
+    public List<String> getCountryISOList() {
+        return countryISOList;
+    }
+
+    public List<Long> getRegionIds() {
+        return regionIds;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public Double getMinValue() {
+        return minValue;
+    }
+
+    public Double getMaxValue() {
+        return maxValue;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    private boolean accept(
+            Series series, Set<String> countryISOSet, Set<Long> regionIdSet) {
+
+        Country country = series.getCountry();
+
+        if (countryISOSet != null && (country == null ||
+                country.getISO() == null ||
+                !countryISOSet.contains(country.getISO().toUpperCase()))) {
+            return false;
+        }
+
+        if (regionIdSet != null && (country == null ||
+                country.getRegion() == null ||
+                !regionIdSet.contains(country.getRegion().getId()))) {
+            return false;
+        }
+
+        if (year != null && (minValue != null || maxValue != null)) {
+            Double value = series.getPointValue(year);
+
+            if (value == null ||
+                    (minValue != null && value < minValue) ||
+                    (maxValue != null && value > maxValue)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Select, order and limit the specified series.
+     *
+     * @param seriesList Series to filter.
+     * @return New list of series.
+     */
+    public List<Series> apply(List<Series> seriesList) {
+        Set<String> countryISOSet = null;
+        if (countryISOList != null && !countryISOList.isEmpty()) {
+            countryISOSet = new HashSet<String>();
+            for (String iso : countryISOList) {
+                countryISOSet.add(iso.toUpperCase());
+            }
+        }
+
+        Set<Long> regionIdSet = null;
+        if (regionIds != null && !regionIds.isEmpty()) {
+            regionIdSet = new HashSet<Long>(regionIds);
+        }
+
+        List<Series> filtered = new ArrayList<Series>();
+
+        for (Series series : seriesList) {
+            if (accept(series, countryISOSet, regionIdSet)) {
+                filtered.add(series);
+            }
+        }
+
+        if (year != null && direction != null) {
+            final int orderYear = year;
+            final boolean descending = direction == Direction.DESC;
+
+            // Series without a value in the year go last either way
+            Collections.sort(filtered, new Comparator<Series>() {
+                @Override
+                public int compare(Series a, Series b) {
+                    Double valueA = a.getPointValue(orderYear);
+                    Double valueB = b.getPointValue(orderYear);
+
+                    if (valueA == null || valueB == null) {
+                        return valueA == null ?
+                            (valueB == null ? 0 : 1) : -1;
+                    }
+
+                    return descending ?
+                        valueB.compareTo(valueA) : valueA.compareTo(valueB);
+                }
+            });
+        }
+
+        if (limit != null && limit >= 0 && filtered.size() > limit) {
+            filtered = new ArrayList<Series>(filtered.subList(0, limit));
+        }
+
+        return filtered;
+    }
+
+    /*
+     * {@code Serializable} implementation
+     */
+
+    public static final String FIELD_COUNTRY_ISO_LIST = "countryISOList";
+    public static final String FIELD_REGION_IDS = "regionIds";
+    public static final String FIELD_YEAR = "year";
+    public static final String FIELD_MIN_VALUE = "minValue";
+    public static final String FIELD_MAX_VALUE = "maxValue";
+    public static final String FIELD_DIRECTION = "direction";
+    public static final String FIELD_LIMIT = "limit";
+
+    @Override
+    public Object get(String field) {
+        if (field.equals(FIELD_COUNTRY_ISO_LIST)) return countryISOList;
+        if (field.equals(FIELD_REGION_IDS)) return regionIds;
+        if (field.equals(FIELD_YEAR)) return year;
+        if (field.equals(FIELD_MIN_VALUE)) return minValue;
+        if (field.equals(FIELD_MAX_VALUE)) return maxValue;
+        if (field.equals(FIELD_DIRECTION)) return direction;
+        if (field.equals(FIELD_LIMIT)) return limit;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void set(String field, Object value) {
+        if (field.equals(FIELD_COUNTRY_ISO_LIST)) {
+            countryISOList = (List<String>) value;
+        }
+        if (field.equals(FIELD_REGION_IDS)) regionIds = (List<Long>) value;
+        if (field.equals(FIELD_YEAR)) year = (Integer) value;
+        if (field.equals(FIELD_MIN_VALUE)) minValue = (Double) value;
+        if (field.equals(FIELD_MAX_VALUE)) maxValue = (Double) value;
+        if (field.equals(FIELD_DIRECTION)) direction = (Direction) value;
+        if (field.equals(FIELD_LIMIT)) limit = (Integer) value;
+    }
+
+    private static Map<String, Type> fields;
+
+    @Override
+    public Map<String, Type> fields() {
+        if (fields == null) {
+            fields = new HashMap<String, Type>();
+            fields.put(
+                FIELD_COUNTRY_ISO_LIST,
+                Type.get(List.class, Type.get(String.class)));
+            fields.put(
+                FIELD_REGION_IDS,
+                Type.get(List.class, Type.get(Long.class)));
+            fields.put(FIELD_YEAR, Type.get(Integer.class));
+            fields.put(FIELD_MIN_VALUE, Type.get(Double.class));
+            fields.put(FIELD_MAX_VALUE, Type.get(Double.class));
+            fields.put(FIELD_DIRECTION, Type.get(Direction.class));
+            fields.put(FIELD_LIMIT, Type.get(Integer.class));
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package models;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import rpc.shared.data.Serializable;
+import rpc.shared.data.Type;
+
+/**
+ * Values of several indicators for a set of countries over an interval of
+ * years, laid out as a dense countries by years by indicators matrix.
+ */
+public class SeriesMatrix implements Serializable {
+    protected List<Long> indicatorIds;
+
+    protected List<Country> countries;
+
+    protected Integer startYear;
+
+    protected Integer endYear;
+
+    /**
+     * Values ordered by country, then year, then indicator, with
+     * {@code null} for missing values.
+     */
+    protected List<Double> values;
+
+    /**
+     * Whether countries were left out to keep the matrix within the size
+     * limit of the server.
+     */
+    protected Boolean truncated;
+
+    public SeriesMatrix() {}
+
+    public SeriesMatrix(
+            List<Long> indicatorIds, List<Country> countries,
+            Integer startYear, Integer endYear, List<Double> values) {
+
+        this();
+
+        this.indicatorIds = indicatorIds;
+        this.countries = countries;
+        this.startYear = startYear;
+        this.endYear = endYear;
+        this.values = values;
+        this.truncated = false;
+    }
+
+    public SeriesMatrix(
+            List<Long> indicatorIds, List<Country> countries,
+            Integer startYear, Integer endYear, List<Double> values,
+            Boolean truncated) {
+
+        this(indicatorIds, countries, startYear, endYear, values);
+
+        this.truncated = truncated;
+    }
+
+    public List<Long> getIndicatorIds() {
+        return indicatorIds;
+    }
+
+    public List<Country> getCountries() {
+        return countries;
+    }
+
+    public Integer getStartYear() {
+        return startYear;
+    }
+
+    public Integer getEndYear() {
+        return endYear;
+    }
+
+    public List<Double> getValues() {
+        return values;
+    }
+
+    public Boolean isTruncated() {
+        return truncated;
+    }
+
+    public int getYearCount() {
+        return endYear - startYear + 1;
+    }
+
+    public Double getValue(int country, int year, int indicator) {
+        return values.get(
+            (country * getYearCount() + year - startYear) *
+                indicatorIds.size() + indicator);
+    }
+
+    /*
+     * {@code Serializable} implementation
+     */
+
+    public static final String FIELD_INDICATOR_IDS = "indicatorIds";
+    public static final String FIELD_COUNTRIES = "countries";
+    public static final String FIELD_START_YEAR = "startYear";
+    public static final String FIELD_END_YEAR = "endYear";
+    public static final String FIELD_VALUES = "values";
+    public static final String FIELD_TRUNCATED = "truncated";
+
+    @Override
+    public Object get(String field) {
+        if (field.equals(FIELD_INDICATOR_IDS)) return indicatorIds;
+        if (field.equals(FIELD_COUNTRIES)) return countries;
+        if (field.equals(FIELD_START_YEAR)) return startYear;
+        if (field.equals(FIELD_END_YEAR)) return endYear;
+        if (field.equals(FIELD_VALUES)) return values;
+        if (field.equals(FIELD_TRUNCATED)) return truncated;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void set(String field, Object value) {
+        if (field.equals(FIELD_INDICATOR_IDS)) {
+            indicatorIds = (List<Long>) value;
+        }
+        if (field.equals(FIELD_COUNTRIES)) {
+            countries = (List<Country>) value;
+        }
+        if (field.equals(FIELD_START_YEAR)) startYear = (Integer) value;
+        if (field.equals(FIELD_END_YEAR)) endYear = (Integer) value;
+        if (field.equals(FIELD_VALUES)) values = (List<Double>) value;
+        if (field.equals(FIELD_TRUNCATED)) truncated = (Boolean) value;
+    }
+
+    private static Map<String, Type> fields;
+
+    @Override
+    public Map<String, Type> fields() {
+        if (fields == null) {
+            fields = new HashMap<String, Type>();
+            fields.put(
+                FIELD_INDICATOR_IDS,
+                Type.get(List.class, Type.get(Long.class)));
+            fields.put(
+                FIELD_COUNTRIES,
+                Type.get(List.class, Type.get(Country.class)));
+            fields.put(FIELD_START_YEAR, Type.get(Integer.class));
+            fields.put(FIELD_END_YEAR, Type.get(Integer.class));
+            fields.put(
+                FIELD_VALUES,
+                Type.get(List.class, Type.get(Double.class)));
+            fields.put(FIELD_TRUNCATED, Type.get(Boolean.class));
+        }
+        return fields;
+    }
+}
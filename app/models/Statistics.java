@@ -0,0 +1,186 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package models;
+
+import java.util.Map;
+
+import javax.persistence.Entity;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import rpc.shared.data.Type;
+
+@SuppressWarnings("serial")
+@Entity
+@Table(uniqueConstraints =
+    @UniqueConstraint(columnNames = {"indicator_id", "year"}))
+public class Statistics extends Model {
+    public static Finder<Statistics> objects =
+        new Finder<Statistics>(Statistics.class);
+
+    @ManyToOne
+    protected Indicator indicator;
+
+    protected int year;
+
+    protected int count;
+
+    protected double min;
+
+    protected double max;
+
+    protected double sum;
+
+    protected double mean;
+
+    protected double p10;
+
+    protected double p25;
+
+    protected double median;
+
+    protected double p75;
+
+    protected double p90;
+
+    public Statistics() {
+        super();
+    }
+
+    public Indicator getIndicator() {
+        return indicator;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getP10() {
+        return p10;
+    }
+
+    public double getP25() {
+        return p25;
+    }
+
+    public double getMedian() {
+        return median;
+    }
+
+    public double getP75() {
+        return p75;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    /*
+     * {@code Serializable} implementation
+     */
+
+    public static final String FIELD_YEAR = "year";
+    public static final String FIELD_COUNT = "count";
+    public static final String FIELD_MIN = "min";
+    public static final String FIELD_MAX = "max";
+    public static final String FIELD_SUM = "sum";
+    public static final String FIELD_MEAN = "mean";
+    public static final String FIELD_P10 = "p10";
+    public static final String FIELD_P25 = "p25";
+    public static final String FIELD_MEDIAN = "median";
+    public static final String FIELD_P75 = "p75";
+    public static final String FIELD_P90 = "p90";
+
+    @Override
+    public Object get(String field) {
+        if (field.equals(FIELD_YEAR)) return year;
+        if (field.equals(FIELD_COUNT)) return count;
+        if (field.equals(FIELD_MIN)) return min;
+        if (field.equals(FIELD_MAX)) return max;
+        if (field.equals(FIELD_SUM)) return sum;
+        if (field.equals(FIELD_MEAN)) return mean;
+        if (field.equals(FIELD_P10)) return p10;
+        if (field.equals(FIELD_P25)) return p25;
+        if (field.equals(FIELD_MEDIAN)) return median;
+        if (field.equals(FIELD_P75)) return p75;
+        if (field.equals(FIELD_P90)) return p90;
+        return super.get(field);
+    }
+
+    @Override
+    public void set(String field, Object value) {
+        super.set(field, value);
+        if (field.equals(FIELD_YEAR)) year = (Integer) value;
+        if (field.equals(FIELD_COUNT)) count = (Integer) value;
+        if (field.equals(FIELD_MIN)) min = (Double) value;
+        if (field.equals(FIELD_MAX)) max = (Double) value;
+        if (field.equals(FIELD_SUM)) sum = (Double) value;
+        if (field.equals(FIELD_MEAN)) mean = (Double) value;
+        if (field.equals(FIELD_P10)) p10 = (Double) value;
+        if (field.equals(FIELD_P25)) p25 = (Double) value;
+        if (field.equals(FIELD_MEDIAN)) median = (Double) value;
+        if (field.equals(FIELD_P75)) p75 = (Double) value;
+        if (field.equals(FIELD_P90)) p90 = (Double) value;
+    }
+
+    private static Map<String, Type> fields;
+
+    @Override
+    public Map<String, Type> fields() {
+        if (fields == null) {
+            fields = super.fields();
+            fields.put(FIELD_YEAR, Type.get(Integer.class));
+            fields.put(FIELD_COUNT, Type.get(Integer.class));
+            fields.put(FIELD_MIN, Type.get(Double.class));
+            fields.put(FIELD_MAX, Type.get(Double.class));
+            fields.put(FIELD_SUM, Type.get(Double.class));
+            fields.put(FIELD_MEAN, Type.get(Double.class));
+            fields.put(FIELD_P10, Type.get(Double.class));
+            fields.put(FIELD_P25, Type.get(Double.class));
+            fields.put(FIELD_MEDIAN, Type.get(Double.class));
+            fields.put(FIELD_P75, Type.get(Double.class));
+            fields.put(FIELD_P90, Type.get(Double.class));
+        }
+        return fields;
+    }
+}
@@ -31,6 +31,7 @@ import rpc.shared.call.CallResponse;
 import rpc.shared.call.InvalidPayload;
 import rpc.shared.data.Serializer;
 import rpc.shared.data.SerializerException;
+import rpc.shared.data.TreeSerializer;
 import rpc.shared.data.Type;
 
 /**
@@ -154,7 +155,8 @@ public abstract class Client {
     }
 
     protected static CallRequest.ClientSerializer requestSerializer =
-        new DefaultCallRequestClientSerializer();
+        new DefaultCallRequestClientSerializer(
+            CallRequest.Message.VERSION_2);
     protected static CallResponse.ClientSerializer responseSerializer =
         new DefaultCallResponseClientSerializer();
 
@@ -247,4 +249,31 @@ public abstract class Client {
 
         return serializer.deserialize(payload, expected);
     }
+
+    /**
+     * Deserialize the return value of a successful {@link CallResponse},
+     * reusing the value parsed together with the message when possible.
+     *
+     * @param callResponse Deserialized {@code CallResponse}.
+     * @param expected Expected object type.
+     * @return Deserialized return value.
+     * @throws SerializerException
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    protected Object deserialize(CallResponse callResponse, Type expected)
+        throws SerializerException {
+
+        Object tree = callResponse.getTree();
+
+        if (tree != null && serializer instanceof TreeSerializer) {
+            return ((TreeSerializer) serializer).deserializeTree(
+                tree, expected);
+        }
+
+        if (tree != null) {
+            return deserialize(tree.toString(), expected);
+        }
+
+        return deserialize(callResponse.getPayload(), expected);
+    }
 }
\ No newline at end of file
@@ -110,8 +110,8 @@ public class HTTPClient extends Client implements RequestCallback {
                 String payload = callResponse.getPayload();
 
                 if (callResponse.isSuccess()) {
-                    clientRequest.finish(
-                        deserialize(payload, clientRequest.getExpected()));
+                    clientRequest.finish(deserialize(
+                        callResponse, clientRequest.getExpected()));
                 } else {
                     clientRequest.finish(new ClientRequest.Error(payload));
                 }
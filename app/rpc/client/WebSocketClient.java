@@ -128,8 +128,8 @@ public class WebSocketClient extends Client implements WebSocket.Listener {
 
         try {
             if (callResponse.isSuccess()) {
-                clientRequest.finish(
-                    deserialize(payload, clientRequest.getExpected()));
+                clientRequest.finish(deserialize(
+                    callResponse, clientRequest.getExpected()));
             } else {
                 clientRequest.finish(new ClientRequest.Error(payload));
             }
@@ -34,13 +34,29 @@ import rpc.shared.call.CallRequest;
 public class DefaultCallRequestClientSerializer
     implements CallRequest.ClientSerializer {
 
+    private int version = CallRequest.Message.VERSION_1;
+
     /**
      * Initialize {@code DefaultCallRequestClientSerializer}.
      */
     public DefaultCallRequestClientSerializer() {}
 
+    /**
+     * Initialize {@code DefaultCallRequestClientSerializer} producing
+     * messages of the specified version.
+     *
+     * @param version Message version.
+     */
+    public DefaultCallRequestClientSerializer(int version) {
+        this.version = version;
+    }
+
     @Override
     public String serialize(CallRequest request) {
+        if (version == CallRequest.Message.VERSION_2) {
+            return serializeVersion2(request);
+        }
+
         List<String> arguments = request.getArgumentPayloadList();
         int argumentsSize = arguments.size();
 
@@ -70,4 +86,51 @@ public class DefaultCallRequestClientSerializer
 
         return messageArray.toString();
     }
+
+    /**
+     * Serialize the specified {@code CallRequest} as a version 2 message,
+     * embedding the serialized arguments as raw values.
+     *
+     * @param request {@code CallRequest} to serialize.
+     * @return Request payload.
+     */
+    private String serializeVersion2(CallRequest request) {
+        List<String> arguments = request.getArgumentPayloadList();
+        int argumentsSize = arguments.size();
+
+        StringBuilder builder = new StringBuilder();
+
+        builder.append('[');
+
+        assert CallRequest.Message.POSITION_CLASS_NAME == 0;
+        builder.append(new JSONString(request.getClassName()).toString());
+        builder.append(',');
+
+        assert CallRequest.Message.POSITION_METHOD_NAME == 1;
+        builder.append(new JSONString(request.getMethodName()).toString());
+        builder.append(',');
+
+        assert CallRequest.Message.POSITION_TOKEN == 2;
+        builder.append(new JSONString(request.getToken()).toString());
+        builder.append(',');
+
+        assert CallRequest.Message.POSITION_ARGUMENTS == 3;
+        builder.append('[');
+        for (int i = 0; i < argumentsSize; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+
+            builder.append(arguments.get(i));
+        }
+        builder.append(']');
+        builder.append(',');
+
+        assert CallRequest.Message.POSITION_VERSION == 4;
+        builder.append(CallRequest.Message.VERSION_2);
+
+        builder.append(']');
+
+        return builder.toString();
+    }
 }
\ No newline at end of file
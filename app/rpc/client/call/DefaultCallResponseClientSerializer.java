@@ -23,9 +23,12 @@ package rpc.client.call;
 
 import com.google.gwt.json.client.JSONArray;
 import com.google.gwt.json.client.JSONBoolean;
+import com.google.gwt.json.client.JSONNumber;
 import com.google.gwt.json.client.JSONParser;
 import com.google.gwt.json.client.JSONString;
+import com.google.gwt.json.client.JSONValue;
 
+import rpc.shared.call.CallRequest;
 import rpc.shared.call.CallResponse;
 import rpc.shared.call.InvalidPayload;
 
@@ -44,6 +47,14 @@ public class DefaultCallResponseClientSerializer
     public CallResponse deserialize(String payload) throws InvalidPayload {
         JSONArray array = JSONParser.parseStrict(payload).isArray();
 
+        if (array == null) {
+            throw new InvalidPayload();
+        }
+
+        if (array.size() == CallResponse.Message.SIZE_VERSION_2) {
+            return deserializeVersion2(array);
+        }
+
         if (array.size() != CallResponse.Message.SIZE) {
             throw new InvalidPayload();
         }
@@ -60,4 +71,40 @@ public class DefaultCallResponseClientSerializer
             success.booleanValue(),
             returnValue.stringValue());
     }
+
+    /**
+     * Deserialize a version 2 message, keeping the return value of a
+     * successful call as the parsed {@code JSONValue}.
+     *
+     * @param array Parsed message.
+     * @return Deserialized {@code CallResponse}.
+     * @throws InvalidPayload
+     */
+    private CallResponse deserializeVersion2(JSONArray array)
+        throws InvalidPayload {
+
+        JSONNumber version = array.get(
+            CallResponse.Message.POSITION_VERSION).isNumber();
+
+        if (version == null ||
+                version.doubleValue() != CallRequest.Message.VERSION_2) {
+            throw new InvalidPayload();
+        }
+
+        JSONString token = array.get(
+            CallResponse.Message.POSITION_TOKEN).isString();
+        JSONBoolean success = array.get(
+            CallResponse.Message.POSITION_SUCCESS).isBoolean();
+        JSONValue returnValue = array.get(
+            CallResponse.Message.POSITION_RETURN_VALUE);
+
+        if (success.booleanValue()) {
+            return new CallResponse(token.stringValue(), returnValue);
+        }
+
+        return new CallResponse(
+            token.stringValue(), false,
+            returnValue.isString().stringValue(),
+            CallRequest.Message.VERSION_2);
+    }
 }
\ No newline at end of file
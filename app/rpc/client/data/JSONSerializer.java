@@ -36,8 +36,10 @@ import com.google.gwt.json.client.JSONString;
 import com.google.gwt.json.client.JSONValue;
 
 import rpc.shared.data.Serializable;
+import rpc.shared.data.SerializableCodec;
 import rpc.shared.data.Serializer;
 import rpc.shared.data.SerializerException;
+import rpc.shared.data.TreeSerializer;
 import rpc.shared.data.Type;
 import rpc.shared.data.Utils;
 import rpc.shared.data.factory.NoSuitableSerializableFactory;
@@ -47,7 +49,7 @@ import rpc.shared.data.factory.SerializableFactoryProvider;
  * Client-side JSON {@link Serializer}.
  */
 @SuppressWarnings({"rawtypes", "unchecked"})
-public class JSONSerializer implements Serializer {
+public class JSONSerializer implements TreeSerializer<JSONValue> {
     private SerializableFactoryProvider provider;
 
     /**
@@ -65,113 +67,221 @@ public class JSONSerializer implements Serializer {
     }
 
     /**
-     * Produce a {@code JSONValue} from the specified {@code Object}.
-     *
-     * @param object {@code Object}.
-     * @return {@code JSONValue}.
+     * {@link SerializableCodec.Output} building a {@code JSONValue}.
      */
-    private JSONValue toJSONValue(Object object) {
-        // Null
-        if (object == null) {
-            return JSONNull.getInstance();
+    private class JSONValueOutput implements SerializableCodec.Output {
+        private List<JSONValue> stack = new ArrayList<JSONValue>();
+        private JSONValue value;
+        private String field;
+
+        /**
+         * Get the value built so far.
+         *
+         * @return {@code JSONValue}.
+         */
+        public JSONValue getValue() {
+            return value;
         }
 
-        // Boolean
-        Boolean asBoolean = Utils.isBoolean(object);
-        if (asBoolean != null) {
-            return JSONBoolean.getInstance(asBoolean);
+        /**
+         * Add a value to the innermost object or list.
+         *
+         * @param jsonValue {@code JSONValue}.
+         */
+        private void add(JSONValue jsonValue) {
+            if (stack.isEmpty()) {
+                value = jsonValue;
+                return;
+            }
+
+            JSONValue top = stack.get(stack.size() - 1);
+
+            JSONObject asObject = top.isObject();
+            if (asObject != null) {
+                asObject.put(field, jsonValue);
+                return;
+            }
+
+            JSONArray asArray = top.isArray();
+            asArray.set(asArray.size(), jsonValue);
         }
 
-        // Integer
-        Integer asInteger = Utils.isInteger(object);
-        if (asInteger != null) {
-            return new JSONNumber(asInteger);
+        @Override
+        public void name(String field) {
+            this.field = field;
         }
 
-        // Long
-        Long asLong = Utils.isLong(object);
-        if (asLong != null) {
-            return new JSONNumber(asLong);
+        @Override
+        public void value(int value) {
+            add(new JSONNumber(value));
         }
 
-        // Float
-        Float asFloat = Utils.isFloat(object);
-        if (asFloat != null) {
-            return new JSONNumber(asFloat);
+        @Override
+        public void value(double value) {
+            add(new JSONNumber(value));
         }
 
-        // Double
-        Double asDouble = Utils.isDouble(object);
-        if (asDouble != null) {
-            return new JSONNumber(asDouble);
+        @Override
+        public void value(Object value) throws SerializerException {
+            JSONValue jsonValue = toJSONValue(value);
+
+            if (jsonValue == null) {
+                throw new SerializerException(
+                    SerializerException.Error.NOT_SERIALIZABLE);
+            }
+
+            add(jsonValue);
         }
 
-        // String
-        String asString = Utils.isString(object);
-        if (asString != null) {
-            return new JSONString(asString);
+        @Override
+        public void beginList() {
+            JSONArray jsonArray = new JSONArray();
+            add(jsonArray);
+            stack.add(jsonArray);
         }
 
-        // Enum
-        Enum asEnum = Utils.isEnum(object);
-        if (asEnum != null) {
-            return new JSONString(asEnum.toString());
+        @Override
+        public void endList() {
+            stack.remove(stack.size() - 1);
         }
 
-        // Serializable
-        Serializable asSerializable = Utils.isSerializable(object);
-        if (asSerializable != null) {
+        @Override
+        public void beginObject() {
             JSONObject jsonObject = new JSONObject();
+            add(jsonObject);
+            stack.add(jsonObject);
+        }
 
-            for (String field : asSerializable.fields().keySet()) {
-                Object value = asSerializable.get(field);
-                jsonObject.put(field, toJSONValue(value));
-            }
+        @Override
+        public void endObject() {
+            stack.remove(stack.size() - 1);
+        }
+    }
 
-            return jsonObject;
+    /**
+     * Get the {@link SerializableCodec} registered for the class of the
+     * specified object.
+     *
+     * @param object Object.
+     * @return Codec, or {@code null} if none is registered.
+     */
+    private SerializableCodec getCodec(Serializable object) {
+        if (provider == null) {
+            return null;
         }
 
-        // List
-        List<Object> asSerializableList = Utils.isSerializableList(object);
-        if (asSerializableList != null) {
-            JSONArray jsonArray = new JSONArray();
+        return provider.getCodec(object.getClass());
+    }
 
-            for (int i = 0; i < asSerializableList.size(); i++) {
-                Object item = asSerializableList.get(i);
-                jsonArray.set(i, toJSONValue(item));
-            }
+    /**
+     * Produce a {@code JSONValue} from the specified {@code Object}.
+     *
+     * @param object {@code Object}.
+     * @return {@code JSONValue}.
+     */
+    private JSONValue toJSONValue(Object object) {
+        Utils.Kind kind = Utils.getKind(object);
 
-            return jsonArray;
+        // Null
+        if (kind == null) {
+            return JSONNull.getInstance();
         }
 
-        // Map
-        Map<Object, Object> asSerializableMap =
-            Utils.isSerializableMap(object);
-        if (asSerializableMap != null) {
-            JSONObject jsonObject = new JSONObject();
+        switch (kind) {
+            // Boolean
+            case BOOLEAN:
+                return JSONBoolean.getInstance((Boolean) object);
+
+            // Integer
+            // Long
+            // Float
+            // Double
+            case INTEGER:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                return new JSONNumber(((Number) object).doubleValue());
+
+            // String
+            case STRING:
+                return new JSONString((String) object);
+
+            // Enum
+            case ENUM:
+                return new JSONString(object.toString());
+
+            // Serializable
+            case SERIALIZABLE:
+                Serializable asSerializable = Utils.isSerializable(object);
+                if (asSerializable == null) {
+                    break;
+                }
+
+                SerializableCodec codec = getCodec(asSerializable);
 
-            for (Map.Entry<Object, Object> entry :
-                    asSerializableMap.entrySet()) {
+                if (codec != null) {
+                    JSONValueOutput output = new JSONValueOutput();
 
-                Object keyObject = entry.getKey();
-                Object valueObject = entry.getValue();
+                    try {
+                        output.beginObject();
+                        codec.write(asSerializable, output);
+                        output.endObject();
+                    } catch (SerializerException exception) {
+                        return null;
+                    }
+
+                    return output.getValue();
+                }
 
-                String key = null;
+                JSONObject serializableObject = new JSONObject();
 
-                String keyAsString = Utils.isString(keyObject);
-                if (keyAsString != null) {
-                    key = keyAsString;
+                for (String field : asSerializable.fields().keySet()) {
+                    Object value = asSerializable.get(field);
+                    serializableObject.put(field, toJSONValue(value));
                 }
 
-                Enum keyAsEnum = Utils.isEnum(keyObject);
-                if (keyAsEnum != null) {
-                    key = keyAsEnum.toString();
+                return serializableObject;
+
+            // List
+            case LIST:
+                List<Object> asSerializableList =
+                    Utils.isSerializableList(object);
+                if (asSerializableList == null) {
+                    break;
                 }
 
-                jsonObject.put(key, toJSONValue(valueObject));
-            }
+                JSONArray jsonArray = new JSONArray();
 
-            return jsonObject;
+                for (int i = 0; i < asSerializableList.size(); i++) {
+                    Object item = asSerializableList.get(i);
+                    jsonArray.set(i, toJSONValue(item));
+                }
+
+                return jsonArray;
+
+            // Map
+            case MAP:
+                Map<Object, Object> asSerializableMap =
+                    Utils.isSerializableMap(object);
+                if (asSerializableMap == null) {
+                    break;
+                }
+
+                JSONObject mapObject = new JSONObject();
+
+                for (Map.Entry<Object, Object> entry :
+                        asSerializableMap.entrySet()) {
+
+                    // String and Enum keys are both written as strings
+                    mapObject.put(
+                        entry.getKey().toString(),
+                        toJSONValue(entry.getValue()));
+                }
+
+                return mapObject;
+
+            default:
+                break;
         }
 
         return null;
@@ -194,6 +304,42 @@ public class JSONSerializer implements Serializer {
         return jsonValue.toString();
     }
 
+    /**
+     * Set the fields of a {@code Serializable} object from the specified
+     * {@code JSONObject} using its {@link SerializableCodec}.
+     *
+     * @param codec Codec of the object.
+     * @param object Object.
+     * @param jsonObject {@code JSONObject}.
+     * @throws NoSuitableSerializableFactory
+     */
+    private void setFields(
+            SerializableCodec codec, Serializable object,
+            JSONObject jsonObject) throws NoSuitableSerializableFactory {
+
+        int size = codec.size();
+
+        for (int i = 0; i < size; i++) {
+            Type fieldType = codec.getType(object, i);
+            JSONValue value = jsonObject.get(codec.getField(i));
+
+            JSONNumber asNumber = value == null ? null : value.isNumber();
+            if (asNumber != null) {
+                if (fieldType.isInteger()) {
+                    codec.setInt(object, i, (int) asNumber.doubleValue());
+                    continue;
+                }
+
+                if (fieldType.isDouble()) {
+                    codec.setDouble(object, i, asNumber.doubleValue());
+                    continue;
+                }
+            }
+
+            codec.set(object, i, fromJSONValue(value, fieldType));
+        }
+    }
+
     /**
      * Produce a new {@code Object} instance from the specified
      * {@code JSONValue}.
@@ -296,6 +442,13 @@ public class JSONSerializer implements Serializer {
 
                 Serializable object = provider.make(expected);
 
+                SerializableCodec codec = getCodec(object);
+
+                if (codec != null) {
+                    setFields(codec, object, asObject);
+                    return object;
+                }
+
                 for (Map.Entry<String, Type> entry :
                         object.fields().entrySet()) {
 
@@ -333,7 +486,17 @@ public class JSONSerializer implements Serializer {
     public Object deserialize(String payload, Type expected)
         throws SerializerException {
 
-        JSONValue jsonValue = JSONParser.parseStrict(payload);
+        return deserializeTree(JSONParser.parseStrict(payload), expected);
+    }
+
+    @Override
+    public Object deserializeTree(JSONValue jsonValue, Type expected)
+        throws SerializerException {
+
+        // An explicit null stands for a null value
+        if (jsonValue != null && jsonValue.isNull() != null) {
+            return null;
+        }
 
         try {
             Object object = fromJSONValue(jsonValue, expected);
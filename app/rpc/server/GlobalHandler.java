@@ -21,6 +21,7 @@
 
 package rpc.server;
 
+import rpc.server.call.ValueCallResponse;
 import rpc.server.invoke.Invoker;
 import rpc.server.invoke.InvokerException;
 import rpc.server.registry.Registry;
@@ -57,8 +58,13 @@ public class GlobalHandler {
         try {
             RegistryServiceMethod method = Registry.get(
                 request.getClassName(), request.getMethodName());
-            payload = defaultInvoker.invoke(
-                method, request.getArgumentPayloadList());
+            if (request.getArgumentTreeList() != null) {
+                payload = defaultInvoker.invokeTree(
+                    method, request.getArgumentTreeList());
+            } else {
+                payload = defaultInvoker.invoke(
+                    method, request.getArgumentPayloadList());
+            }
             success = true;
 
         } catch (RegistryException exception) {
@@ -70,6 +76,47 @@ public class GlobalHandler {
             success = false;
         }
 
-        return new CallResponse(request.getToken(), success, payload);
+        return new CallResponse(
+            request.getToken(), success, payload, request.getVersion());
+    }
+
+    /**
+     * Handle the specified {@link CallRequest}, leaving the return value of
+     * a successful call unserialized so it can be written directly to the
+     * response.
+     *
+     * @param request {@code CallRequest} to handle.
+     * @return {@link ValueCallResponse} if successful, otherwise a
+     *         {@link CallResponse} describing the error.
+     */
+    public static CallResponse handleValue(CallRequest request) {
+        String payload;
+
+        try {
+            RegistryServiceMethod method = Registry.get(
+                request.getClassName(), request.getMethodName());
+
+            Object returnValue;
+            if (request.getArgumentTreeList() != null) {
+                returnValue = defaultInvoker.invokeValue(
+                    method, request.getArgumentTreeList());
+            } else {
+                returnValue = defaultInvoker.invokeValue(
+                    method, request.getArgumentPayloadList());
+            }
+
+            return new ValueCallResponse(
+                request.getToken(), returnValue,
+                defaultInvoker.getSerializer(), request.getVersion());
+
+        } catch (RegistryException exception) {
+            payload = exception.toString();
+
+        } catch (InvokerException exception) {
+            payload = exception.toString();
+        }
+
+        return new CallResponse(
+            request.getToken(), false, payload, request.getVersion());
     }
 }
\ No newline at end of file
@@ -26,7 +26,9 @@ import java.util.List;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 
 import rpc.shared.call.CallRequest;
 import rpc.shared.call.InvalidPayload;
@@ -44,31 +46,99 @@ public class DefaultCallRequestServerSerializer
      */
     public DefaultCallRequestServerSerializer() {}
 
+    /**
+     * Get the string held by an element of a message.
+     *
+     * @param jsonElement Element of the message.
+     * @return String held by the element.
+     * @throws InvalidPayload If the element does not hold a string.
+     */
+    private static String getString(JsonElement jsonElement)
+        throws InvalidPayload {
+
+        if (!jsonElement.isJsonPrimitive() ||
+            !jsonElement.getAsJsonPrimitive().isString()) {
+            throw new InvalidPayload();
+        }
+
+        return jsonElement.getAsString();
+    }
+
+    /**
+     * Check whether a message carries the version 2 marker.
+     *
+     * @param jsonElement Version element of the message.
+     * @return Whether the element is the version 2 marker.
+     */
+    private static boolean isVersion2(JsonElement jsonElement) {
+        if (!jsonElement.isJsonPrimitive()) {
+            return false;
+        }
+
+        JsonPrimitive jsonPrimitive = jsonElement.getAsJsonPrimitive();
+
+        return jsonPrimitive.isNumber() &&
+            jsonPrimitive.getAsDouble() == CallRequest.Message.VERSION_2;
+    }
+
     @Override
     public CallRequest deserialize(String payload) throws InvalidPayload {
-        JsonElement jsonElement = parser.parse(payload);
+        JsonElement jsonElement;
+
+        try {
+            jsonElement = parser.parse(payload);
+        } catch (JsonParseException exception) {
+            throw new InvalidPayload();
+        } catch (IllegalStateException exception) {
+            throw new InvalidPayload();
+        }
+
+        if (!jsonElement.isJsonArray()) {
+            throw new InvalidPayload();
+        }
 
         JsonArray asJsonArray = jsonElement.getAsJsonArray();
+        int size = asJsonArray.size();
 
-        if (asJsonArray.size() != CallRequest.Message.SIZE) {
+        boolean version2 = size == CallRequest.Message.SIZE_VERSION_2 &&
+            isVersion2(asJsonArray.get(CallRequest.Message.POSITION_VERSION));
+
+        if (size != CallRequest.Message.SIZE && !version2) {
             throw new InvalidPayload();
         }
 
-        String className = asJsonArray.get(
-            CallRequest.Message.POSITION_CLASS_NAME).getAsString();
-        String methodName = asJsonArray.get(
-            CallRequest.Message.POSITION_METHOD_NAME).getAsString();
-        String token = asJsonArray.get(
-            CallRequest.Message.POSITION_TOKEN).getAsString();
+        String className = getString(asJsonArray.get(
+            CallRequest.Message.POSITION_CLASS_NAME));
+        String methodName = getString(asJsonArray.get(
+            CallRequest.Message.POSITION_METHOD_NAME));
+        String token = getString(asJsonArray.get(
+            CallRequest.Message.POSITION_TOKEN));
+
+        JsonElement argumentsJsonElement = asJsonArray.get(
+            CallRequest.Message.POSITION_ARGUMENTS);
 
-        JsonArray argumentsJsonArray = asJsonArray.get(
-            CallRequest.Message.POSITION_ARGUMENTS).getAsJsonArray();
+        if (!argumentsJsonElement.isJsonArray()) {
+            throw new InvalidPayload();
+        }
+
+        JsonArray argumentsJsonArray = argumentsJsonElement.getAsJsonArray();
         int argumentsJsonArraySize = argumentsJsonArray.size();
 
+        if (version2) {
+            List<Object> argumentTrees = new ArrayList<Object>();
+
+            for (int i = 0; i < argumentsJsonArraySize; i++) {
+                argumentTrees.add(argumentsJsonArray.get(i));
+            }
+
+            return new CallRequest(
+                className, methodName, token, argumentTrees);
+        }
+
         List<String> arguments = new ArrayList<String>();
 
         for (int i = 0; i < argumentsJsonArraySize; i++) {
-            arguments.add(argumentsJsonArray.get(i).getAsString());
+            arguments.add(getString(argumentsJsonArray.get(i)));
         }
 
         return new CallRequest(className, methodName, arguments, token);
@@ -21,16 +21,30 @@
 
 package rpc.server.call;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
 
+import rpc.server.data.JSONSerializer;
+import rpc.shared.call.CallRequest;
 import rpc.shared.call.CallResponse;
+import rpc.shared.data.Serializer;
+import rpc.shared.data.SerializerException;
 
 /**
  * Default implementation of a {@link CallResponse.ServerSerializer}.
  */
 public class DefaultCallResponseServerSerializer
-    implements CallResponse.ServerSerializer {
+    implements StreamServerSerializer {
+
+    private static Gson gson = new Gson();
+    private static JsonParser parser = new JsonParser();
 
     /**
      * Initialize {@code DefaultCallResponseServerSerializer}.
@@ -39,6 +53,14 @@ public class DefaultCallResponseServerSerializer
 
     @Override
     public String serialize(CallResponse response) {
+        if (response instanceof ValueCallResponse) {
+            return serializeValue((ValueCallResponse) response);
+        }
+
+        if (response.getVersion() == CallRequest.Message.VERSION_2) {
+            return serializeVersion2(response);
+        }
+
         JsonArray jsonArray = new JsonArray();
 
         assert CallResponse.Message.POSITION_TOKEN == 0;
@@ -52,4 +74,135 @@ public class DefaultCallResponseServerSerializer
 
         return jsonArray.toString();
     }
+
+    /**
+     * Serialize the specified {@code CallResponse} as a version 2 message,
+     * embedding the payload of a successful call as a raw value instead of
+     * escaping it into a string.
+     *
+     * @param response {@code CallResponse} to serialize.
+     * @return Response payload.
+     */
+    private String serializeVersion2(CallResponse response) {
+        String payload = response.getPayload();
+
+        StringBuilder builder = new StringBuilder(payload.length() + 64);
+
+        builder.append('[');
+
+        assert CallResponse.Message.POSITION_TOKEN == 0;
+        builder.append(new JsonPrimitive(response.getToken()).toString());
+        builder.append(',');
+
+        assert CallResponse.Message.POSITION_SUCCESS == 1;
+        builder.append(response.isSuccess());
+        builder.append(',');
+
+        assert CallResponse.Message.POSITION_RETURN_VALUE == 2;
+        if (response.isSuccess()) {
+            builder.append(payload);
+        } else {
+            builder.append(new JsonPrimitive(payload).toString());
+        }
+        builder.append(',');
+
+        assert CallResponse.Message.POSITION_VERSION == 3;
+        builder.append(CallRequest.Message.VERSION_2);
+
+        builder.append(']');
+
+        return builder.toString();
+    }
+
+    /**
+     * Serialize the specified {@code ValueCallResponse} to a string,
+     * reporting a return value that cannot be serialized as an error.
+     *
+     * @param response {@code ValueCallResponse} to serialize.
+     * @return Response payload.
+     */
+    private String serializeValue(ValueCallResponse response) {
+        StringWriter writer = new StringWriter();
+
+        try {
+            serialize(response, writer);
+        } catch (SerializerException exception) {
+            return serialize(new CallResponse(
+                response.getToken(), false, exception.toString(),
+                response.getVersion()));
+        } catch (IOException exception) {
+            return serialize(new CallResponse(
+                response.getToken(), false, exception.toString(),
+                response.getVersion()));
+        }
+
+        return writer.toString();
+    }
+
+    @Override
+    public void serialize(CallResponse response, Writer writer)
+        throws SerializerException, IOException {
+
+        boolean version2 =
+            response.getVersion() == CallRequest.Message.VERSION_2;
+
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.setLenient(true);
+
+        jsonWriter.beginArray();
+
+        assert CallResponse.Message.POSITION_TOKEN == 0;
+        jsonWriter.value(response.getToken());
+
+        assert CallResponse.Message.POSITION_SUCCESS == 1;
+        jsonWriter.value(response.isSuccess());
+
+        assert CallResponse.Message.POSITION_RETURN_VALUE == 2;
+        if (response instanceof ValueCallResponse) {
+            writeValue((ValueCallResponse) response, jsonWriter, version2);
+        } else if (version2 && response.isSuccess()) {
+            gson.toJson(parser.parse(response.getPayload()), jsonWriter);
+        } else {
+            jsonWriter.value(response.getPayload());
+        }
+
+        if (version2) {
+            assert CallResponse.Message.POSITION_VERSION == 3;
+            jsonWriter.value(CallRequest.Message.VERSION_2);
+        }
+
+        jsonWriter.endArray();
+        jsonWriter.flush();
+    }
+
+    /**
+     * Write the return value of a {@code ValueCallResponse}, streaming it
+     * as a raw value when possible.
+     *
+     * @param response {@code ValueCallResponse}.
+     * @param jsonWriter {@code JsonWriter}.
+     * @param version2 Whether the message is a version 2 message.
+     * @throws SerializerException
+     * @throws IOException
+     */
+    private void writeValue(
+            ValueCallResponse response, JsonWriter jsonWriter,
+            boolean version2) throws SerializerException, IOException {
+
+        Serializer serializer = response.getSerializer();
+
+        if (version2 && serializer instanceof JSONSerializer) {
+            ((JSONSerializer) serializer).serialize(
+                response.getValue(), jsonWriter);
+            return;
+        }
+
+        String payload = serializer.serialize(response.getValue());
+
+        if (version2) {
+            gson.toJson(parser.parse(payload), jsonWriter);
+        } else {
+            jsonWriter.value(payload);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rpc.server.call;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import rpc.shared.call.CallResponse;
+import rpc.shared.data.SerializerException;
+
+/**
+ * {@link CallResponse.ServerSerializer} that can also write a
+ * {@link CallResponse} directly to a {@code Writer}.
+ */
+public interface StreamServerSerializer extends CallResponse.ServerSerializer {
+    /**
+     * Serialize the specified {@code CallResponse} to a {@code Writer}.
+     *
+     * @param response {@code CallResponse} to serialize.
+     * @param writer {@code Writer}.
+     * @throws SerializerException
+     * @throws IOException
+     */
+    void serialize(CallResponse response, Writer writer)
+        throws SerializerException, IOException;
+}
@@ -0,0 +1,70 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rpc.server.call;
+
+import rpc.shared.call.CallResponse;
+import rpc.shared.data.Serializer;
+
+/**
+ * Successful {@link CallResponse} carrying the unserialized return value,
+ * so that it can be written directly to the response instead of being
+ * serialized into an intermediate payload.
+ */
+public class ValueCallResponse extends CallResponse {
+    private Object value;
+    private Serializer serializer;
+
+    /**
+     * Initialize {@code ValueCallResponse}.
+     *
+     * @param token Identifier to be included in the response.
+     * @param value Return value.
+     * @param serializer Serializer for the return value.
+     * @param version Message version.
+     */
+    public ValueCallResponse(
+            String token, Object value, Serializer serializer, int version) {
+
+        super(token, true, null, version);
+
+        this.value = value;
+        this.serializer = serializer;
+    }
+
+    /**
+     * Get return value.
+     *
+     * @return Return value.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Get serializer for the return value.
+     *
+     * @return Serializer.
+     */
+    public Serializer getSerializer() {
+        return serializer;
+    }
+}
@@ -25,8 +25,8 @@ import play.mvc.Controller;
 
 import rpc.server.call.DefaultCallRequestServerSerializer;
 import rpc.server.call.DefaultCallResponseServerSerializer;
+import rpc.server.call.StreamServerSerializer;
 import rpc.shared.call.CallRequest;
-import rpc.shared.call.CallResponse;
 
 /**
  * Base class for Play Framework controllers.
@@ -34,6 +34,6 @@ import rpc.shared.call.CallResponse;
 public class BaseController extends Controller {
     protected static CallRequest.ServerSerializer requestSerializer =
         new DefaultCallRequestServerSerializer();
-    protected static CallResponse.ServerSerializer responseSerializer =
+    protected static StreamServerSerializer responseSerializer =
         new DefaultCallResponseServerSerializer();
 }
\ No newline at end of file
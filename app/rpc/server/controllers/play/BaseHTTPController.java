@@ -21,6 +21,17 @@
 
 package rpc.server.controllers.play;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import play.mvc.BodyParser;
 import play.mvc.Result;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -37,15 +48,29 @@ public class BaseHTTPController extends BaseController {
     /**
      * Handle RPC request.
      *
+     * The request body is parsed only once when the routed action reads it
+     * as text (see {@link BodyParser.TolerantText}), otherwise it is read
+     * back from the JSON body.
+     *
+     * The response is serialized completely before the status is sent, so
+     * that a return value that cannot be serialized is answered with an
+     * error response instead of a truncated one. Responses larger than
+     * {@link ResponseBuffer#BUFFER_SIZE} characters are buffered in a
+     * temporary file and streamed from it.
+     *
      * @return Response.
      */
     public static Result call() {
-        JsonNode json = request().body().asJson();
-        if (json == null) {
-            return badRequest();
-        }
+        String body = request().body().asText();
+
+        if (body == null) {
+            JsonNode json = request().body().asJson();
+            if (json == null) {
+                return badRequest();
+            }
 
-        String body = json.toString();
+            body = json.toString();
+        }
 
         CallRequest request;
         
@@ -55,16 +80,137 @@ public class BaseHTTPController extends BaseController {
             return badRequest(exception.toString());
         }
 
-        CallResponse response = GlobalHandler.handle(request);
-
-        String payload = responseSerializer.serialize(response);
+        CallResponse response = GlobalHandler.handleValue(request);
 
         response().setContentType("application/json");
 
-        if (response.isSuccess()) {
-            return ok(payload);
-        } else {
-            return badRequest(payload);
+        if (!response.isSuccess()) {
+            return badRequest(responseSerializer.serialize(response));
+        }
+
+        ResponseBuffer buffer = new ResponseBuffer();
+
+        try {
+            responseSerializer.serialize(response, buffer);
+            buffer.close();
+        } catch (Exception exception) {
+            buffer.discard();
+
+            return badRequest(responseSerializer.serialize(new CallResponse(
+                response.getToken(), false, exception.toString(),
+                response.getVersion())));
+        }
+
+        if (buffer.isSpilled()) {
+            try {
+                return ok(buffer.getInputStream());
+            } catch (IOException exception) {
+                buffer.discard();
+                exception.printStackTrace();
+                return internalServerError();
+            }
+        }
+
+        return ok(buffer.toString());
+    }
+
+    /**
+     * {@code Writer} holding its output in memory up to
+     * {@link #BUFFER_SIZE} characters and in a temporary file beyond that.
+     */
+    private static class ResponseBuffer extends Writer {
+        private static final int BUFFER_SIZE = 1 << 20;
+
+        private StringBuilder builder = new StringBuilder();
+        private File file;
+        private Writer fileWriter;
+
+        /**
+         * Check whether the output was moved to a temporary file.
+         *
+         * @return Whether the output is in a temporary file.
+         */
+        public boolean isSpilled() {
+            return file != null;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length)
+            throws IOException {
+
+            if (fileWriter == null &&
+                builder.length() + length > BUFFER_SIZE) {
+
+                file = Files.createTempFile("rpc", ".json").toFile();
+                fileWriter = new BufferedWriter(new OutputStreamWriter(
+                    Files.newOutputStream(file.toPath()),
+                    StandardCharsets.UTF_8));
+
+                fileWriter.append(builder);
+                builder = null;
+            }
+
+            if (fileWriter != null) {
+                fileWriter.write(buffer, offset, length);
+            } else {
+                builder.append(buffer, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (fileWriter != null) {
+                fileWriter.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileWriter != null) {
+                fileWriter.close();
+            }
+        }
+
+        /**
+         * Drop the output, deleting the temporary file if any.
+         */
+        public void discard() {
+            try {
+                close();
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+
+            if (file != null) {
+                file.delete();
+            }
+        }
+
+        /**
+         * Open the temporary file holding the output, which is deleted
+         * once the returned stream is closed.
+         *
+         * @return Stream reading the output.
+         * @throws IOException
+         */
+        public InputStream getInputStream() throws IOException {
+            final File file = this.file;
+
+            return new FileInputStream(file) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        file.delete();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
         }
     }
-}
\ No newline at end of file
+}
@@ -63,11 +63,12 @@ public class BaseWebSocketController extends BaseController {
             if (message instanceof String) {
                 CallRequest request =
                     requestSerializer.deserialize((String) message);
-                CallResponse response = GlobalHandler.handle(request);
+                CallResponse response = GlobalHandler.handleValue(request);
 
-                String payload = responseSerializer.serialize(response);
-
-                out.tell(payload, self());
+                // Each reply is a single frame, so serialize it to a string,
+                // which reports a return value that cannot be serialized as
+                // an error response
+                out.tell(responseSerializer.serialize(response), self());
             }
         }
     }
@@ -21,6 +21,8 @@
 
 package rpc.server.data;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -28,14 +30,16 @@ import java.util.Map;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
 
 import rpc.shared.data.Serializable;
+import rpc.shared.data.SerializableCodec;
 import rpc.shared.data.Serializer;
 import rpc.shared.data.SerializerException;
+import rpc.shared.data.TreeSerializer;
 import rpc.shared.data.Type;
 import rpc.shared.data.Utils;
 import rpc.shared.data.factory.NoSuitableSerializableFactory;
@@ -45,9 +49,25 @@ import rpc.shared.data.factory.SerializableFactoryProvider;
  * Server-side JSON {@link Serializer}.
  */
 @SuppressWarnings({"rawtypes", "unchecked"})
-public class JSONSerializer implements Serializer {
+public class JSONSerializer implements TreeSerializer<JsonElement> {
+    /**
+     * Replaces deserialized {@link Serializable} objects, for instance with
+     * shared instances of the same object.
+     */
+    public interface Resolver {
+        /**
+         * Resolve the specified deserialized object.
+         *
+         * @param object Deserialized object.
+         * @return Object to use instead.
+         */
+        Serializable resolve(Serializable object);
+    }
+
     private SerializableFactoryProvider provider;
 
+    private Resolver resolver;
+
     /**
      * Initialize {@code JSONSerializer}.
      */
@@ -63,131 +83,318 @@ public class JSONSerializer implements Serializer {
     }
 
     /**
-     * Produce a {@code JsonElement} from the specified {@code Object}.
+     * Set the {@link Resolver} of deserialized objects.
      *
-     * @param object {@code Object}.
-     * @return {@code JsonElement}.
+     * @param resolver Resolver, or {@code null} to disable resolution.
      */
-    private JsonElement toJsonElement(Object object) {
-        if (object == null) {
-            return JsonNull.INSTANCE;
-        }
+    public void setResolver(Resolver resolver) {
+        this.resolver = resolver;
+    }
 
-        // Boolean
-        Boolean asBoolean = Utils.isBoolean(object);
-        if (asBoolean != null) {
-            return new JsonPrimitive(asBoolean);
+    /**
+     * {@link SerializableCodec.Output} writing to a {@code JsonWriter}.
+     */
+    private class JsonWriterOutput implements SerializableCodec.Output {
+        private JsonWriter writer;
+
+        /**
+         * Initialize {@code JsonWriterOutput}.
+         *
+         * @param writer {@code JsonWriter}.
+         */
+        public JsonWriterOutput(JsonWriter writer) {
+            this.writer = writer;
         }
 
-        // Integer
-        Integer asInteger = Utils.isInteger(object);
-        if (asInteger != null) {
-            return new JsonPrimitive(asInteger);
+        @Override
+        public void name(String field) throws SerializerException {
+            try {
+                writer.name(field);
+            } catch (IOException exception) {
+                throw failed(exception);
+            }
         }
 
-        // Long
-        Long asLong = Utils.isLong(object);
-        if (asLong != null) {
-            return new JsonPrimitive(asLong);
+        @Override
+        public void value(int value) throws SerializerException {
+            try {
+                writer.value(value);
+            } catch (IOException exception) {
+                throw failed(exception);
+            }
         }
 
-        // Float
-        Float asFloat = Utils.isFloat(object);
-        if (asFloat != null) {
-            return new JsonPrimitive(asFloat);
+        @Override
+        public void value(double value) throws SerializerException {
+            try {
+                writer.value(value);
+            } catch (IOException exception) {
+                throw failed(exception);
+            }
         }
 
-        // Double
-        Double asDouble = Utils.isDouble(object);
-        if (asDouble != null) {
-            return new JsonPrimitive(asDouble);
+        @Override
+        public void value(Object value) throws SerializerException {
+            try {
+                write(value, this);
+            } catch (IOException exception) {
+                throw failed(exception);
+            }
         }
 
-        // String
-        String asString = Utils.isString(object);
-        if (asString != null) {
-            return new JsonPrimitive(asString);
+        @Override
+        public void beginList() throws SerializerException {
+            try {
+                writer.beginArray();
+            } catch (IOException exception) {
+                throw failed(exception);
+            }
         }
 
-        // Enum
-        Enum asEnum = Utils.isEnum(object);
-        if (asEnum != null) {
-            return new JsonPrimitive(asEnum.toString());
+        @Override
+        public void endList() throws SerializerException {
+            try {
+                writer.endArray();
+            } catch (IOException exception) {
+                throw failed(exception);
+            }
         }
 
-        // Serializable
-        Serializable asSerializable = Utils.isSerializable(object);
-        if (asSerializable != null) {
-            JsonObject jsonObject = new JsonObject();
+        @Override
+        public void beginObject() throws SerializerException {
+            try {
+                writer.beginObject();
+            } catch (IOException exception) {
+                throw failed(exception);
+            }
+        }
 
-            for (String field : asSerializable.fields().keySet()) {
-                Object value = asSerializable.get(field);
-                jsonObject.add(field, toJsonElement(value));
+        @Override
+        public void endObject() throws SerializerException {
+            try {
+                writer.endObject();
+            } catch (IOException exception) {
+                throw failed(exception);
             }
+        }
 
-            return jsonObject;
+        /**
+         * Wrap an exception of the underlying {@code JsonWriter}.
+         *
+         * @param exception Exception.
+         * @return {@code SerializerException}.
+         */
+        private SerializerException failed(IOException exception) {
+            return new SerializerException(
+                SerializerException.Error.NOT_SERIALIZABLE, exception);
         }
+    }
 
-        // List
-        List<Object> asSerializableList = Utils.isSerializableList(object);
-        if (asSerializableList != null) {
-            JsonArray jsonArray = new JsonArray();
+    /**
+     * Get the {@link SerializableCodec} registered for the class of the
+     * specified object.
+     *
+     * @param object Object.
+     * @return Codec, or {@code null} if none is registered.
+     */
+    private SerializableCodec getCodec(Serializable object) {
+        if (provider == null) {
+            return null;
+        }
 
-            for (Object item : asSerializableList) {
-                jsonArray.add(toJsonElement(item));
-            }
+        return provider.getCodec(object.getClass());
+    }
 
-            return jsonArray;
+    /**
+     * Write the specified {@code Object} to a {@code JsonWriter}.
+     *
+     * @param object {@code Object}.
+     * @param output Output wrapping the {@code JsonWriter}.
+     * @throws SerializerException
+     * @throws IOException
+     */
+    private void write(Object object, JsonWriterOutput output)
+        throws SerializerException, IOException {
+
+        JsonWriter writer = output.writer;
+
+        Utils.Kind kind = Utils.getKind(object);
+
+        // Null
+        if (kind == null) {
+            writer.nullValue();
+            return;
         }
 
-        // Map
-        Map<Object, Object> asSerializableMap =
-            Utils.isSerializableMap(object);
-        if (asSerializableMap != null) {
-            JsonObject jsonObject = new JsonObject();
+        switch (kind) {
+            // Boolean
+            case BOOLEAN:
+                writer.value(((Boolean) object).booleanValue());
+                return;
+
+            // Integer
+            // Long
+            // Float
+            // Double
+            case INTEGER:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                writer.value((Number) object);
+                return;
+
+            // String
+            case STRING:
+                writer.value((String) object);
+                return;
+
+            // Enum
+            case ENUM:
+                writer.value(object.toString());
+                return;
+
+            // Serializable
+            case SERIALIZABLE:
+                Serializable asSerializable = Utils.isSerializable(object);
+                if (asSerializable == null) {
+                    break;
+                }
+
+                writer.beginObject();
+
+                SerializableCodec codec = getCodec(asSerializable);
+
+                if (codec != null) {
+                    codec.write(asSerializable, output);
+                } else {
+                    for (String field : asSerializable.fields().keySet()) {
+                        writer.name(field);
+                        write(asSerializable.get(field), output);
+                    }
+                }
 
-            for (Map.Entry<Object, Object> entry :
-                    asSerializableMap.entrySet()) {
+                writer.endObject();
+                return;
 
-                Object keyObject = entry.getKey();
-                Object valueObject = entry.getValue();
+            // List
+            case LIST:
+                List<Object> asSerializableList =
+                    Utils.isSerializableList(object);
+                if (asSerializableList == null) {
+                    break;
+                }
 
-                String key = null;
+                writer.beginArray();
 
-                String keyAsString = Utils.isString(keyObject);
-                if (keyAsString != null) {
-                    key = keyAsString;
+                for (Object item : asSerializableList) {
+                    write(item, output);
                 }
 
-                Enum keyAsEnum = Utils.isEnum(keyObject);
-                if (keyAsEnum != null) {
-                    key = keyAsEnum.toString();
+                writer.endArray();
+                return;
+
+            // Map
+            case MAP:
+                Map<Object, Object> asSerializableMap =
+                    Utils.isSerializableMap(object);
+                if (asSerializableMap == null) {
+                    break;
                 }
 
-                jsonObject.add(key, toJsonElement(valueObject));
-            }
+                writer.beginObject();
+
+                for (Map.Entry<Object, Object> entry :
+                        asSerializableMap.entrySet()) {
+
+                    // String and Enum keys are both written as strings
+                    writer.name(entry.getKey().toString());
+                    write(entry.getValue(), output);
+                }
 
-            return jsonObject;
+                writer.endObject();
+                return;
+
+            default:
+                break;
         }
 
-        return null;
+        throw new SerializerException(
+            SerializerException.Error.NOT_SERIALIZABLE);
     }
 
-    @Override
-    public String serialize(Object object) throws SerializerException {
+    /**
+     * Serialize the specified object directly to a {@code JsonWriter},
+     * without producing an intermediate tree or string.
+     *
+     * @param object Object to serialize.
+     * @param writer {@code JsonWriter}.
+     * @throws SerializerException
+     * @throws IOException
+     */
+    public void serialize(Object object, JsonWriter writer)
+        throws SerializerException, IOException {
+
         if (!Utils.isSerializationCapable(object)) {
             throw new SerializerException(
                 SerializerException.Error.NOT_SERIALIZABLE);
         }
 
-        JsonElement jsonElement = toJsonElement(object);
+        write(object, new JsonWriterOutput(writer));
+    }
 
-        if (jsonElement == null) {
+    @Override
+    public String serialize(Object object) throws SerializerException {
+        StringWriter stringWriter = new StringWriter();
+
+        JsonWriter writer = new JsonWriter(stringWriter);
+        writer.setLenient(true);
+
+        try {
+            serialize(object, writer);
+            writer.flush();
+        } catch (IOException exception) {
             throw new SerializerException(
-                SerializerException.Error.NOT_SERIALIZABLE);
+                SerializerException.Error.NOT_SERIALIZABLE, exception);
         }
 
-        return jsonElement.toString();
+        return stringWriter.toString();
+    }
+
+    /**
+     * Set the fields of a {@code Serializable} object from the specified
+     * {@code JsonObject} using its {@link SerializableCodec}.
+     *
+     * @param codec Codec of the object.
+     * @param object Object.
+     * @param jsonObject {@code JsonObject}.
+     * @throws NoSuitableSerializableFactory
+     */
+    private void setFields(
+            SerializableCodec codec, Serializable object,
+            JsonObject jsonObject) throws NoSuitableSerializableFactory {
+
+        int size = codec.size();
+
+        for (int i = 0; i < size; i++) {
+            Type fieldType = codec.getType(object, i);
+            JsonElement value = jsonObject.get(codec.getField(i));
+
+            if (value != null && value.isJsonPrimitive() &&
+                    value.getAsJsonPrimitive().isNumber()) {
+
+                if (fieldType.isInteger()) {
+                    codec.setInt(object, i, value.getAsInt());
+                    continue;
+                }
+
+                if (fieldType.isDouble()) {
+                    codec.setDouble(object, i, value.getAsDouble());
+                    continue;
+                }
+            }
+
+            codec.set(object, i, fromJsonElement(value, fieldType));
+        }
     }
 
     /**
@@ -298,14 +505,24 @@ public class JSONSerializer implements Serializer {
 
                 Serializable object = provider.make(expected);
 
-                for (Map.Entry<String, Type> entry :
-                        object.fields().entrySet()) {
+                SerializableCodec codec = getCodec(object);
 
-                    String field = entry.getKey();
-                    Type fieldType = entry.getValue();
+                if (codec != null) {
+                    setFields(codec, object, asJsonObject);
+                } else {
+                    for (Map.Entry<String, Type> entry :
+                            object.fields().entrySet()) {
+
+                        String field = entry.getKey();
+                        Type fieldType = entry.getValue();
+
+                        JsonElement value = asJsonObject.get(field);
+                        object.set(field, fromJsonElement(value, fieldType));
+                    }
+                }
 
-                    JsonElement value = asJsonObject.get(field);
-                    object.set(field, fromJsonElement(value, fieldType));
+                if (resolver != null) {
+                    return resolver.resolve(object);
                 }
 
                 return object;
@@ -338,7 +555,17 @@ public class JSONSerializer implements Serializer {
     public Object deserialize(String payload, Type expected)
         throws SerializerException {
 
-        JsonElement jsonElement = parser.parse(payload);
+        return deserializeTree(parser.parse(payload), expected);
+    }
+
+    @Override
+    public Object deserializeTree(JsonElement jsonElement, Type expected)
+        throws SerializerException {
+
+        // An explicit null stands for a null value
+        if (jsonElement != null && jsonElement.isJsonNull()) {
+            return null;
+        }
 
         try {
             Object object = fromJsonElement(jsonElement, expected);
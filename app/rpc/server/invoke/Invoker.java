@@ -26,11 +26,14 @@ import java.util.List;
 
 import rpc.shared.data.Serializer;
 import rpc.shared.data.SerializerException;
+import rpc.shared.data.TreeSerializer;
 import rpc.shared.data.Type;
+import rpc.shared.data.Utils;
 
 /**
  * Layer for calling an {@link Invokable} with serialized values.
  */
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class Invoker {
     private Serializer serializer;
 
@@ -43,6 +46,15 @@ public class Invoker {
         this.serializer = serializer;
     }
 
+    /**
+     * Get serializer.
+     *
+     * @return Serializer.
+     */
+    public Serializer getSerializer() {
+        return serializer;
+    }
+
     /**
      * Get required argument types for calling an {@code Invokable} or raise
      * an {@link InvokerException} if not possible.
@@ -66,17 +78,46 @@ public class Invoker {
         return argumentTypeList;
     }
 
+    /**
+     * Deserialize a single argument, either from its serialized string or
+     * from its parsed tree.
+     *
+     * @param payload Serialized or parsed argument.
+     * @param expected Required argument type.
+     * @return Deserialized argument.
+     * @throws SerializerException
+     * @throws InvokerException
+     */
+    private Object getArgument(Object payload, Type expected)
+        throws SerializerException, InvokerException {
+
+        if (payload instanceof String) {
+            return serializer.deserialize((String) payload, expected);
+        }
+
+        if (!(serializer instanceof TreeSerializer)) {
+            throw new InvokerException(
+                InvokerException.Reason.INVALID_PAYLOAD);
+        }
+
+        return ((TreeSerializer) serializer).deserializeTree(
+            payload, expected);
+    }
+
     /**
      * Deserialize arguments for calling an {@code Invokable} or raise
      * an {@link InvokerException} if not possible.
      *
-     * @param argumentPayloadList Serialized arguments.
+     * Arguments sent as {@code null} are passed as {@code null}, unless the
+     * argument type is primitive.
+     *
+     * @param argumentPayloadList Serialized or parsed arguments.
      * @param argumentTypeList Required argument types.
      * @return Deserialized arguments.
      * @throws InvokerException
      */
     private List<Object> getArgumentList(
-            List<String> argumentPayloadList,
+            List<?> argumentPayloadList,
             List<Type> argumentTypeList) throws InvokerException {
 
         if (argumentTypeList.size() != argumentPayloadList.size()) {
@@ -90,12 +131,18 @@ public class Invoker {
 
         for (int i = 0; i < n; i++) {
             Type expected = argumentTypeList.get(i);
-            String payload = argumentPayloadList.get(i);
+            Object payload = argumentPayloadList.get(i);
 
             try {
-                Object object = serializer.deserialize(payload, expected);
-
-                if (!expected.isInstance(object)) {
+                Object object = getArgument(payload, expected);
+
+                if (object == null) {
+                    // Only reference types can be passed as null
+                    if (expected.getTypeClass().isPrimitive()) {
+                        throw new InvokerException(
+                            InvokerException.Reason.INCOMPATIBLE_ARGUMENTS);
+                    }
+                } else if (!expected.isInstance(object)) {
                     throw new InvokerException(
                         InvokerException.Reason.INCOMPATIBLE_ARGUMENTS);
                 }
@@ -123,6 +170,38 @@ public class Invoker {
             Invokable invokable,
             List<String> argumentPayloadList) throws InvokerException {
 
+        return serialize(invokeValue(invokable, argumentPayloadList));
+    }
+
+    /**
+     * Invoke an {@link Invokable} with arguments that were already parsed
+     * by a {@link TreeSerializer}.
+     *
+     * @param invokable Invokable to invoke.
+     * @param argumentTreeList Parsed arguments.
+     * @return Serialized return value.
+     * @throws InvokerException
+     */
+    public String invokeTree(
+            Invokable invokable,
+            List<Object> argumentTreeList) throws InvokerException {
+
+        return serialize(invokeValue(invokable, argumentTreeList));
+    }
+
+    /**
+     * Invoke an {@link Invokable} with serialized or parsed arguments and
+     * get its return value, leaving serialization to the caller.
+     *
+     * @param invokable Invokable to invoke.
+     * @param argumentPayloadList Serialized or parsed arguments.
+     * @return Return value, which is serialization capable.
+     * @throws InvokerException
+     */
+    public Object invokeValue(
+            Invokable invokable,
+            List<?> argumentPayloadList) throws InvokerException {
+
         List<Object> argumentList = getArgumentList(
             argumentPayloadList, getArgumentTypeList(invokable));
 
@@ -139,6 +218,22 @@ public class Invoker {
                 InvokerException.Reason.INVOKABLE_EXCEPTION, exception);
         }
 
+        if (!Utils.isSerializationCapable(returnValue)) {
+            throw new InvokerException(
+                InvokerException.Reason.UNSUPPORTED_RETURN_VALUE);
+        }
+
+        return returnValue;
+    }
+
+    /**
+     * Serialize a return value.
+     *
+     * @param returnValue Return value.
+     * @return Serialized return value.
+     * @throws InvokerException
+     */
+    private String serialize(Object returnValue) throws InvokerException {
         try {
             return serializer.serialize(returnValue);
         } catch (SerializerException exception) {
@@ -21,21 +21,46 @@
 
 package rpc.server.registry;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import rpc.server.Service;
 
 /**
  * Registry of service classes.
+ *
+ * Services are registered eagerly with {@link #register(Class)}, which
+ * compiles all their methods up front. Services requested by name without
+ * being registered are loaded on first use.
  */
 public class Registry {
-    private Map<String, RegistryService> registryServices =
-        new HashMap<String, RegistryService>();
+    private ConcurrentMap<String, RegistryService> registryServices =
+        new ConcurrentHashMap<String, RegistryService>();
 
     /**
      * Initialize {@code Registry}.
      */
     private Registry() {}
 
+    /**
+     * Register the specified service class.
+     *
+     * @param serviceClass Service class.
+     * @return {@code RegistryService}.
+     * @throws RegistryException
+     */
+    public RegistryService register(Class<? extends Service> serviceClass)
+        throws RegistryException {
+
+        RegistryService registryService =
+            new RegistryService(serviceClass.getName());
+
+        registryService.load();
+
+        registryServices.put(serviceClass.getName(), registryService);
+        return registryService;
+    }
+
     /**
      * Get a {@link RegistryService} for the specified class name.
      *
@@ -49,18 +74,24 @@ public class Registry {
         if (registryService == null) {
             registryService = new RegistryService(name);
 
-            // Load service class
-            registryService.getServiceClass();
+            // Load service class and methods
+            registryService.load();
+
+            RegistryService existing =
+                registryServices.putIfAbsent(name, registryService);
+
+            if (existing != null) {
+                registryService = existing;
+            }
         }
 
-        registryServices.put(name, registryService);
         return registryService;
     }
 
     /**
      * Single instance.
      */
-    private static Registry instance;
+    private static final Registry instance = new Registry();
 
     /**
      * Get single instance of {@code Registry}.
@@ -68,10 +99,6 @@ public class Registry {
      * @return {@code Registry} instance.
      */
     public static Registry get() {
-        if (instance == null) {
-            instance = new Registry();
-        }
-
         return instance;
     }
 
@@ -89,4 +116,4 @@ public class Registry {
 
         return get().getService(className).getMethod(methodName);
     }
-}
\ No newline at end of file
+}
@@ -21,7 +21,9 @@
 
 package rpc.server.registry;
 
+import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,10 +34,14 @@ import rpc.server.Service;
  */
 public class RegistryService {
     private String serviceClassName;
-    private Class<?> serviceClass;
+    private volatile Class<?> serviceClass;
 
-    private Map<String, RegistryServiceMethod> registryServiceMethods =
-        new HashMap<String, RegistryServiceMethod>();
+    /**
+     * Methods exposed by the service, by name. Replaced as a whole when the
+     * service is loaded.
+     */
+    private volatile Map<String, RegistryServiceMethod> registryServiceMethods =
+        Collections.emptyMap();
 
     /**
      * Initialize {@code RegistryService}.
@@ -63,11 +69,11 @@ public class RegistryService {
      */
     private Class<?> loadServiceClass() throws RegistryException {
         try {
-            serviceClass = Class.forName(serviceClassName);
+            Class<?> loadedClass = Class.forName(serviceClassName);
 
-            for (Type interfaceType : serviceClass.getGenericInterfaces()) {
+            for (Type interfaceType : loadedClass.getGenericInterfaces()) {
                 if (interfaceType == Service.class) {
-                    return serviceClass;
+                    return loadedClass;
                 }
             }
 
@@ -95,6 +101,28 @@ public class RegistryService {
         return serviceClass;
     }
 
+    /**
+     * Load the service class and compile every public static method.
+     *
+     * @throws RegistryException
+     */
+    void load() throws RegistryException {
+        Map<String, RegistryServiceMethod> methods =
+            new HashMap<String, RegistryServiceMethod>();
+
+        for (Method method : getServiceClass().getDeclaredMethods()) {
+            if (RegistryServiceMethod.isServiceMethod(method) &&
+                    !methods.containsKey(method.getName())) {
+
+                methods.put(
+                    method.getName(),
+                    new RegistryServiceMethod(this, method));
+            }
+        }
+
+        registryServiceMethods = Collections.unmodifiableMap(methods);
+    }
+
     /**
      * Get method from service.
      *
@@ -111,11 +139,10 @@ public class RegistryService {
         if (registryServiceMethod == null) {
             registryServiceMethod = new RegistryServiceMethod(this, name);
 
-            // Load method
+            // Load method, failing with the reason it is not exposed
             registryServiceMethod.getServiceMethod();
         }
 
-        registryServiceMethods.put(name, registryServiceMethod);
         return registryServiceMethod;
     }
-}
\ No newline at end of file
+}
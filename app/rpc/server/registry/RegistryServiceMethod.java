@@ -21,8 +21,12 @@
 
 package rpc.server.registry;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.List;
 
 import rpc.server.data.Reflect;
@@ -31,14 +35,19 @@ import rpc.shared.data.Type;
 
 /**
  * Loaded method belonging to a {@link RegistryService}.
+ *
+ * The method is compiled into a {@link MethodHandle} taking an argument
+ * array and returning an {@code Object}, so that calls do not go through
+ * reflection.
  */
 public class RegistryServiceMethod implements Invokable {
     private RegistryService registryService;
 
     private String serviceMethodName;
-    private Method serviceMethod;
+    private volatile Method serviceMethod;
 
-    private List<Type> argumentTypeList;
+    private volatile List<Type> argumentTypeList;
+    private volatile MethodHandle methodHandle;
 
     /**
      * Initialize {@code RegistryServiceMethod}.
@@ -54,6 +63,23 @@ public class RegistryServiceMethod implements Invokable {
         this.serviceMethodName = serviceMethodName;
     }
 
+    /**
+     * Initialize {@code RegistryServiceMethod} from an already resolved
+     * public static method.
+     *
+     * @param registryService {@link RegistryService}.
+     * @param serviceMethod Method.
+     * @throws RegistryException
+     */
+    RegistryServiceMethod(
+            RegistryService registryService,
+            Method serviceMethod) throws RegistryException {
+
+        this(registryService, serviceMethod.getName());
+
+        compile(serviceMethod);
+    }
+
     /**
      * Get service.
      *
@@ -72,6 +98,21 @@ public class RegistryServiceMethod implements Invokable {
         return serviceMethodName;
     }
 
+    /**
+     * Check whether the specified method can be exposed by a service.
+     *
+     * @param method Method.
+     * @return Whether the method is public and static.
+     */
+    static boolean isServiceMethod(Method method) {
+        int modifiers = method.getModifiers();
+
+        return
+            Modifier.isStatic(modifiers) &&
+            Modifier.isPublic(modifiers) &&
+            !method.isSynthetic();
+    }
+
     /**
      * Load service method via reflection.
      *
@@ -105,6 +146,37 @@ public class RegistryServiceMethod implements Invokable {
             this, RegistryException.Reason.SERVICE_METHOD_NOT_FOUND);
     }
 
+    /**
+     * Resolve argument types and compile the invoker of the specified
+     * method.
+     *
+     * @param method Method.
+     * @throws RegistryException
+     */
+    private void compile(Method method) throws RegistryException {
+        MethodHandle handle;
+
+        try {
+            handle = MethodHandles.publicLookup().unreflect(method);
+        } catch (IllegalAccessException exception) {
+            throw new RegistryException(
+                this,
+                RegistryException.Reason.SERVICE_METHOD_NOT_PUBLIC,
+                exception);
+        }
+
+        int count = method.getParameterTypes().length;
+
+        argumentTypeList = Collections.unmodifiableList(
+            Reflect.getArgumentTypeList(method));
+
+        methodHandle = handle
+            .asType(MethodType.genericMethodType(count))
+            .asSpreader(Object[].class, count);
+
+        serviceMethod = method;
+    }
+
     /**
      * Get service method.
      *
@@ -113,7 +185,7 @@ public class RegistryServiceMethod implements Invokable {
      */
     public Method getServiceMethod() throws RegistryException {
         if (serviceMethod == null) {
-            serviceMethod = loadServiceMethod();
+            compile(loadServiceMethod());
         }
 
         return serviceMethod;
@@ -126,7 +198,7 @@ public class RegistryServiceMethod implements Invokable {
     @Override
     public List<Type> getArgumentTypeList() throws Exception {
         if (argumentTypeList == null) {
-            argumentTypeList = Reflect.getArgumentTypeList(getServiceMethod());
+            getServiceMethod();
         }
 
         return argumentTypeList;
@@ -134,6 +206,18 @@ public class RegistryServiceMethod implements Invokable {
 
     @Override
     public Object invoke(Object... arguments) throws Exception {
-        return getServiceMethod().invoke(null, arguments);
+        if (methodHandle == null) {
+            getServiceMethod();
+        }
+
+        try {
+            return (Object) methodHandle.invokeExact(arguments);
+        } catch (Exception exception) {
+            throw exception;
+        } catch (Error error) {
+            throw error;
+        } catch (Throwable throwable) {
+            throw new Exception(throwable);
+        }
     }
-}
\ No newline at end of file
+}
@@ -64,12 +64,23 @@ public class CallRequest {
 
     /**
      * Description of a request message.
+     *
+     * Version 1 messages carry every argument as a serialized string.
+     * Version 2 messages embed arguments as raw values and end with the
+     * version number, which the server uses to reply in the same version.
      */
     public static class Message {
+        /*
+         * Message versions.
+         */
+        public static int VERSION_1 = 1;
+        public static int VERSION_2 = 2;
+
         /*
          * Size of the request array.
          */
         public static int SIZE = 4;
+        public static int SIZE_VERSION_2 = 5;
 
         /*
          * Positions of values in request array.
@@ -78,12 +89,15 @@ public class CallRequest {
         public static int POSITION_METHOD_NAME = 1;
         public static int POSITION_TOKEN = 2;
         public static int POSITION_ARGUMENTS = 3;
+        public static int POSITION_VERSION = 4;
     }
 
     private String className;
     private String methodName;
     private String token;
     private List<String> argumentPayloadList;
+    private List<Object> argumentTreeList;
+    private int version = Message.VERSION_1;
 
     /**
      * Initialize {@code CallRequest}.
@@ -117,6 +131,26 @@ public class CallRequest {
         this(className, methodName, argumentPayloadList, generateToken());
     }
 
+    /**
+     * Initialize a version 2 {@code CallRequest} with arguments that were
+     * parsed together with the message.
+     *
+     * @param className Service class name.
+     * @param methodName Service class method.
+     * @param token Unique token for request identification.
+     * @param argumentTreeList List of parsed arguments.
+     */
+    public CallRequest(
+            String className, String methodName,
+            String token, List<Object> argumentTreeList) {
+
+        this.className = className;
+        this.methodName = methodName;
+        this.token = token;
+        this.argumentTreeList = argumentTreeList;
+        this.version = Message.VERSION_2;
+    }
+
     /**
      * Get service class name.
      *
@@ -161,4 +195,23 @@ public class CallRequest {
     public List<String> getArgumentPayloadList() {
         return argumentPayloadList;
     }
+
+    /**
+     * Get list of arguments parsed together with the message, or
+     * {@code null} if arguments are only available as serialized strings.
+     *
+     * @return List of parsed arguments.
+     */
+    public List<Object> getArgumentTreeList() {
+        return argumentTreeList;
+    }
+
+    /**
+     * Get message version.
+     *
+     * @return Message version.
+     */
+    public int getVersion() {
+        return version;
+    }
 }
@@ -60,12 +60,17 @@ public class CallResponse {
 
     /**
      * Description of a response message.
+     *
+     * Version 1 messages carry the return value as a serialized string.
+     * Version 2 messages embed the return value of successful calls as a
+     * raw value and end with the version number.
      */
     public static class Message {
         /*
          * Size of the response array.
          */
         public static int SIZE = 3;
+        public static int SIZE_VERSION_2 = 4;
 
         /*
          * Positions of values in response array.
@@ -73,11 +78,14 @@ public class CallResponse {
         public static int POSITION_TOKEN = 0;
         public static int POSITION_SUCCESS = 1;
         public static int POSITION_RETURN_VALUE = 2;
+        public static int POSITION_VERSION = 3;
     }
 
     private String token;
     private boolean success;
     private String payload;
+    private Object tree;
+    private int version = CallRequest.Message.VERSION_1;
 
     /**
      * Initialize {@code CallResponse}.
@@ -92,6 +100,35 @@ public class CallResponse {
         this.payload = payload;
     }
 
+    /**
+     * Initialize {@code CallResponse} in the specified message version.
+     *
+     * @param token Identifier to be included in the response.
+     * @param success Whether the call was successful.
+     * @param payload Result payload.
+     * @param version Message version.
+     */
+    public CallResponse(
+            String token, boolean success, String payload, int version) {
+
+        this(token, success, payload);
+        this.version = version;
+    }
+
+    /**
+     * Initialize a version 2 {@code CallResponse} with a return value that
+     * was parsed together with the message.
+     *
+     * @param token Identifier to be included in the response.
+     * @param tree Parsed return value.
+     */
+    public CallResponse(String token, Object tree) {
+        this.token = token;
+        this.success = true;
+        this.tree = tree;
+        this.version = CallRequest.Message.VERSION_2;
+    }
+
     /**
      * Get response identifier.
      *
@@ -118,4 +155,23 @@ public class CallResponse {
     public String getPayload() {
         return payload;
     }
+
+    /**
+     * Get return value parsed together with the message, or {@code null}
+     * if the result is only available as a payload.
+     *
+     * @return Parsed return value.
+     */
+    public Object getTree() {
+        return tree;
+    }
+
+    /**
+     * Get message version.
+     *
+     * @return Message version.
+     */
+    public int getVersion() {
+        return version;
+    }
 }
\ No newline at end of file
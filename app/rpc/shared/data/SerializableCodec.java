@@ -0,0 +1,193 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rpc.shared.data;
+
+/**
+ * Index-based accessors of a specific type of {@link Serializable} object.
+ *
+ * Serializers use a registered {@code SerializableCodec} instead of the
+ * name-based {@link Serializable#get(String)} and
+ * {@link Serializable#set(String, Object)} methods, writing fields
+ * directly to an {@link Output} and setting numeric fields without boxing.
+ *
+ * @param <T> Type of {@code Serializable} object.
+ */
+public abstract class SerializableCodec<T extends Serializable> {
+    /**
+     * Destination of the fields written by a {@code SerializableCodec}.
+     */
+    public static interface Output {
+        /**
+         * Start the value of the specified field.
+         *
+         * @param field Field name.
+         * @throws SerializerException
+         */
+        void name(String field) throws SerializerException;
+
+        /**
+         * Write an {@code int} value.
+         *
+         * @param value Value.
+         * @throws SerializerException
+         */
+        void value(int value) throws SerializerException;
+
+        /**
+         * Write a {@code double} value.
+         *
+         * @param value Value.
+         * @throws SerializerException
+         */
+        void value(double value) throws SerializerException;
+
+        /**
+         * Write any other value using the serializer.
+         *
+         * @param value Value.
+         * @throws SerializerException
+         */
+        void value(Object value) throws SerializerException;
+
+        /**
+         * Start a list value.
+         *
+         * @throws SerializerException
+         */
+        void beginList() throws SerializerException;
+
+        /**
+         * End a list value.
+         *
+         * @throws SerializerException
+         */
+        void endList() throws SerializerException;
+
+        /**
+         * Start a {@code Serializable} value.
+         *
+         * @throws SerializerException
+         */
+        void beginObject() throws SerializerException;
+
+        /**
+         * End a {@code Serializable} value.
+         *
+         * @throws SerializerException
+         */
+        void endObject() throws SerializerException;
+    }
+
+    private String[] fields;
+    private Type[] types;
+
+    /**
+     * Initialize {@code SerializableCodec}.
+     *
+     * @param fields Names of all fields, in index order.
+     */
+    public SerializableCodec(String... fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Get number of fields.
+     *
+     * @return Number of fields.
+     */
+    public int size() {
+        return fields.length;
+    }
+
+    /**
+     * Get name of the field at the specified index.
+     *
+     * @param index Field index.
+     * @return Field name.
+     */
+    public String getField(int index) {
+        return fields[index];
+    }
+
+    /**
+     * Get type of the field at the specified index, as specified by the
+     * {@link Serializable#fields()} of the object.
+     *
+     * @param object Object.
+     * @param index Field index.
+     * @return Field type.
+     */
+    public Type getType(Serializable object, int index) {
+        if (types == null) {
+            Type[] fieldTypes = new Type[fields.length];
+
+            for (int i = 0; i < fields.length; i++) {
+                fieldTypes[i] = object.fields().get(fields[i]);
+            }
+
+            types = fieldTypes;
+        }
+
+        return types[index];
+    }
+
+    /**
+     * Write all fields of the specified object.
+     *
+     * @param object Object.
+     * @param output Output.
+     * @throws SerializerException
+     */
+    public abstract void write(T object, Output output)
+        throws SerializerException;
+
+    /**
+     * Set the value of the field at the specified index.
+     *
+     * @param object Object.
+     * @param index Field index.
+     * @param value Field value.
+     */
+    public abstract void set(T object, int index, Object value);
+
+    /**
+     * Set the value of the {@code Integer} field at the specified index.
+     *
+     * @param object Object.
+     * @param index Field index.
+     * @param value Field value.
+     */
+    public void setInt(T object, int index, int value) {
+        set(object, index, value);
+    }
+
+    /**
+     * Set the value of the {@code Double} field at the specified index.
+     *
+     * @param object Object.
+     * @param index Field index.
+     * @param value Field value.
+     */
+    public void setDouble(T object, int index, double value) {
+        set(object, index, value);
+    }
+}
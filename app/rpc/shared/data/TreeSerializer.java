@@ -0,0 +1,44 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rpc.shared.data;
+
+/**
+ * {@link Serializer} that can also deserialize values that were already
+ * parsed into the tree representation of its format.
+ *
+ * Used for arguments and return values embedded as raw values in a
+ * version 2 call envelope, which are parsed together with the envelope.
+ *
+ * @param <T> Tree node type.
+ */
+public interface TreeSerializer<T> extends Serializer {
+    /**
+     * Deserialize the specified parsed value.
+     *
+     * @param tree Parsed value.
+     * @param expected Expected object type.
+     * @return Deserialized object.
+     * @throws SerializerException
+     */
+    Object deserializeTree(T tree, Type expected)
+        throws SerializerException;
+}
@@ -21,100 +21,184 @@
 
 package rpc.shared.data;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class Utils {
-    public static Boolean isBoolean(Object object) {
-        try {
-            return (Boolean) object;
-        } catch (ClassCastException exception) {
-            return null;
+    /**
+     * Kind of a value as far as serialization is concerned.
+     */
+    public static enum Kind {
+        BOOLEAN,
+        INTEGER,
+        LONG,
+        FLOAT,
+        DOUBLE,
+        STRING,
+        ENUM,
+        SERIALIZABLE,
+        LIST,
+        MAP,
+        OTHER
+    }
+
+    /*
+     * Kinds by class. The map is replaced as a whole when a class is added,
+     * so lookups need no locking on the server and no concurrent collection
+     * in the client.
+     */
+    private static volatile Map<Class<?>, Kind> kinds =
+        new HashMap<Class<?>, Kind>();
+
+    /**
+     * Classify the specified non-null object.
+     *
+     * @param object Object.
+     * @return Kind of the object.
+     */
+    private static Kind classify(Object object) {
+        if (object instanceof Boolean) {
+            return Kind.BOOLEAN;
+        }
+
+        if (object instanceof Integer) {
+            return Kind.INTEGER;
+        }
+
+        if (object instanceof Long) {
+            return Kind.LONG;
+        }
+
+        if (object instanceof Float) {
+            return Kind.FLOAT;
+        }
+
+        if (object instanceof Double) {
+            return Kind.DOUBLE;
+        }
+
+        if (object instanceof String) {
+            return Kind.STRING;
         }
+
+        if (object instanceof Enum) {
+            return Kind.ENUM;
+        }
+
+        if (object instanceof Serializable) {
+            return Kind.SERIALIZABLE;
+        }
+
+        if (object instanceof List) {
+            return Kind.LIST;
+        }
+
+        if (object instanceof Map) {
+            return Kind.MAP;
+        }
+
+        return Kind.OTHER;
     }
 
-    public static Integer isInteger(Object object) {
-        try {
-            return (Integer) object;
-        } catch (ClassCastException exception) {
+    /**
+     * Get the kind of the specified object, classifying its class only the
+     * first time it is seen.
+     *
+     * @param object Object.
+     * @return Kind of the object, or {@code null} if the object is
+     *         {@code null}.
+     */
+    public static Kind getKind(Object object) {
+        if (object == null) {
             return null;
         }
+
+        Class<?> objectClass = object.getClass();
+
+        Kind kind = kinds.get(objectClass);
+
+        if (kind == null) {
+            kind = classify(object);
+
+            Map<Class<?>, Kind> updated = new HashMap<Class<?>, Kind>(kinds);
+            updated.put(objectClass, kind);
+            kinds = updated;
+        }
+
+        return kind;
+    }
+
+    public static Boolean isBoolean(Object object) {
+        return getKind(object) == Kind.BOOLEAN ? (Boolean) object : null;
+    }
+
+    public static Integer isInteger(Object object) {
+        return getKind(object) == Kind.INTEGER ? (Integer) object : null;
     }
 
     public static Long isLong(Object object) {
-        try {
-            return (Long) object;
-        } catch (ClassCastException exception) {
-            return null;
-        }
+        return getKind(object) == Kind.LONG ? (Long) object : null;
     }
 
     public static Float isFloat(Object object) {
-        try {
-            return (Float) object;
-        } catch (ClassCastException exception) {
-            return null;
-        }
+        return getKind(object) == Kind.FLOAT ? (Float) object : null;
     }
 
     public static Double isDouble(Object object) {
-        try {
-            return (Double) object;
-        } catch (ClassCastException exception) {
-            return null;
-        }
+        return getKind(object) == Kind.DOUBLE ? (Double) object : null;
     }
 
     public static String isString(Object object) {
-        try {
-            return (String) object;
-        } catch (ClassCastException exception) {
-            return null;
-        }
+        return getKind(object) == Kind.STRING ? (String) object : null;
     }
 
     public static Enum isEnum(Object object) {
-        try {
-            return (Enum) object;
-        } catch (ClassCastException exception) {
-            return null;
-        }
+        return getKind(object) == Kind.ENUM ? (Enum) object : null;
     }
 
     public static Serializable isSerializable(Object object) {
-        try {
-            Serializable asSerializable = (Serializable) object;
+        if (getKind(object) != Kind.SERIALIZABLE) {
+            return null;
+        }
 
-            if (asSerializable != null && asSerializable.fields() != null) {
-                return asSerializable;
-            } else {
-                return null;
-            }
-        } catch (ClassCastException exception) {
+        Serializable asSerializable = (Serializable) object;
+
+        if (asSerializable.fields() != null) {
+            return asSerializable;
+        } else {
             return null;
         }
     }
 
     public static boolean isSerializableValue(Object object) {
-        return
-            object == null ||
-            isBoolean(object) != null ||
-            isInteger(object) != null ||
-            isLong(object) != null ||
-            isFloat(object) != null ||
-            isDouble(object) != null ||
-            isString(object) != null ||
-            isEnum(object) != null ||
-            isSerializable(object) != null;
+        Kind kind = getKind(object);
+
+        if (kind == null) {
+            return true;
+        }
+
+        switch (kind) {
+            case LIST:
+            case MAP:
+            case OTHER:
+                return false;
+
+            case SERIALIZABLE:
+                return isSerializable(object) != null;
+
+            default:
+                return true;
+        }
     }
 
     public static List<Object> isList(Object object) {
-        try {
-            return (List<Object>) object;
-        } catch (ClassCastException exception) {
+        if (getKind(object) != Kind.LIST) {
             return null;
         }
+
+        return (List<Object>) object;
     }
 
     public static List<Object> isSerializableList(Object object) {
@@ -134,11 +218,11 @@ public class Utils {
     }
 
     public static Map<Object, Object> isMap(Object object) {
-        try {
-            return (Map<Object, Object>) object;
-        } catch (ClassCastException exception) {
+        if (getKind(object) != Kind.MAP) {
             return null;
         }
+
+        return (Map<Object, Object>) object;
     }
 
     public static Map<Object, Object> isSerializableMap(Object object) {
@@ -151,7 +235,9 @@ public class Utils {
                 Object mapKey = map.keySet().iterator().next();
                 Object mapValue = map.values().iterator().next();
 
-                if ((isString(mapKey) != null || isEnum(mapKey) != null) &&
+                Kind keyKind = getKind(mapKey);
+
+                if ((keyKind == Kind.STRING || keyKind == Kind.ENUM) &&
                         isSerializableValue(mapValue)) {
                     return map;
                 }
@@ -167,4 +253,4 @@ public class Utils {
             isSerializableList(object) != null ||
             isSerializableMap(object) != null;
     }
-}
\ No newline at end of file
+}
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import rpc.shared.data.Serializable;
+import rpc.shared.data.SerializableCodec;
 import rpc.shared.data.Type;
 
 /**
@@ -37,6 +38,12 @@ public class SerializableFactoryProvider {
     private Map<Type, SerializableFactory> factoryMap =
         new HashMap<Type, SerializableFactory>();
 
+    /**
+     * Registered {@code SerializableCodec} objects.
+     */
+    private Map<Class<?>, SerializableCodec<?>> codecMap =
+        new HashMap<Class<?>, SerializableCodec<?>>();
+
     /**
      * {@code DefaultSerializableFactory} used when no
      * {@code SerializableFactory} is found.
@@ -69,6 +76,26 @@ public class SerializableFactoryProvider {
         factoryMap.put(type, factory);
     }
 
+    /**
+     * Register the specified {@link SerializableCodec}.
+     *
+     * @param typeClass Class of objects handled by the codec.
+     * @param codec Codec to register.
+     */
+    public void addCodec(Class<?> typeClass, SerializableCodec<?> codec) {
+        codecMap.put(typeClass, codec);
+    }
+
+    /**
+     * Get the {@link SerializableCodec} registered for the specified class.
+     *
+     * @param typeClass Class of objects.
+     * @return Codec, or {@code null} if none is registered.
+     */
+    public SerializableCodec<?> getCodec(Class<?> typeClass) {
+        return codecMap.get(typeClass);
+    }
+
     /**
      * Replace the current {@link DefaultSerializableFactory}.
      *
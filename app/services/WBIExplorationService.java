@@ -22,16 +22,37 @@
 package services;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import com.avaje.ebean.ExpressionList;
 
 import rpc.server.Service;
 
+import models.CorrelationSearch;
 import models.Country;
 import models.Indicator;
-import models.Point;
+import models.RegionAggregate;
 import models.Series;
+import models.SeriesFilter;
+import models.SeriesMatrix;
+import models.Source;
+import models.Statistics;
+import models.Topic;
+
+import data.analysis.CorrelationEngine;
+import data.store.CatalogIndex;
+import data.store.ReferenceCatalog;
+import data.store.RegionCube;
+import data.store.SearchIndex;
+import data.store.SeriesStore;
+import data.store.StatisticsStore;
 
 import client.managers.history.HistoryState;
 import client.managers.history.HistoryStateData;
@@ -45,6 +66,11 @@ public class WBIExplorationService implements Service {
      */
     private static int LIMIT = 10;
 
+    /**
+     * Maximum number of values of a series matrix.
+     */
+    private static int MATRIX_LIMIT = 1 << 20;
+
     /**
      * Search indicators.
      *
@@ -52,9 +78,41 @@ public class WBIExplorationService implements Service {
      * @return List of indicators.
      */
     public static List<Indicator> queryIndicatorList(String query) {
-        return Indicator.objects
+        return queryIndicatorListByFacets(query, null, null);
+    }
+
+    /**
+     * Search indicators of a topic and/or source.
+     *
+     * @param query Search terms.
+     * @param topicId ID of {@link Topic}, or {@code null} for any topic.
+     * @param sourceId ID of {@link Source}, or {@code null} for any source.
+     * @return List of indicators.
+     */
+    public static List<Indicator> queryIndicatorListByFacets(
+            String query, Long topicId, Long sourceId) {
+
+        SearchIndex<Indicator> index = CatalogIndex.getIndicatorIndex();
+
+        if (index != null) {
+            return index.search(
+                query, LIMIT,
+                CatalogIndex.getIndicatorFilter(topicId, sourceId));
+        }
+
+        ExpressionList<Indicator> expressionList = Indicator.objects
             .where()
-                .icontains("name", query)
+                .icontains("name", query);
+
+        if (topicId != null) {
+            expressionList.eq("topics.id", topicId);
+        }
+
+        if (sourceId != null) {
+            expressionList.eq("source.id", sourceId);
+        }
+
+        return expressionList
                 .orderBy("name")
             .setMaxRows(LIMIT)
             .fetch("source")
@@ -69,6 +127,12 @@ public class WBIExplorationService implements Service {
      * @return List of countries.
      */
     public static List<Country> queryCountryList(String query) {
+        SearchIndex<Country> index = CatalogIndex.getCountryIndex();
+
+        if (index != null) {
+            return index.search(query, LIMIT, null);
+        }
+
         return Country.objects
             .where()
                 .icontains("name", query)
@@ -89,42 +153,241 @@ public class WBIExplorationService implements Service {
     public static List<Series> querySeriesList(
             Long indicatorId, Integer startYear, Integer endYear) {
 
-        List<Point> points = Point.objects
-            .where()
-                .eq("series.indicator.id", indicatorId)
-                .ge("year", startYear)
-                .le("year", endYear)
-            .query()
-            .fetch("series")
-            .fetch("series.country")
-            .fetch("series.country.region")
-            .findList();
+        return SeriesStore.get(indicatorId, startYear, endYear);
+    }
+
+    /**
+     * Query series selected, ordered and limited by a {@link SeriesFilter}.
+     *
+     * @param indicatorId ID of {@link Indicator}.
+     * @param startYear Start year of the query interval.
+     * @param endYear End year of the query interval.
+     * @param filter Filter criteria.
+     * @return List of series.
+     */
+    public static List<Series> queryFilteredSeriesList(
+            Long indicatorId, Integer startYear, Integer endYear,
+            SeriesFilter filter) {
 
-        Map<Series, List<Point>> pointsBySeries =
-            new HashMap<Series, List<Point>>();
+        List<Series> allSeries =
+            querySeriesList(indicatorId, startYear, endYear);
 
-        for (Point point : points) {
-            Series series = point.getSeries();
+        if (allSeries == null) {
+            return null;
+        }
 
-            List<Point> seriesPoints = pointsBySeries.get(series);
-            if (seriesPoints == null) {
-                seriesPoints = new ArrayList<Point>();
-                pointsBySeries.put(series, seriesPoints);
+        return filter.apply(allSeries);
+    }
+
+    /**
+     * Query the values of several indicators as a single matrix.
+     *
+     * @param indicatorIds IDs of {@link Indicator} objects.
+     * @param countryISOList ISO codes of the countries to include, or an
+     *                       empty list or {@code null} for every country
+     *                       with values.
+     * @param startYear Start year of the query interval.
+     * @param endYear End year of the query interval.
+     * @return Matrix of values within the years that have values, leaving
+     *         out the last countries and flagged as truncated if it would
+     *         exceed the matrix size limit.
+     */
+    public static SeriesMatrix querySeriesMatrix(
+            List<Long> indicatorIds, List<String> countryISOList,
+            Integer startYear, Integer endYear) {
+
+        if (indicatorIds == null || startYear == null || endYear == null ||
+                startYear > endYear) {
+            return null;
+        }
+
+        List<List<Series>> seriesLists = new ArrayList<List<Series>>();
+
+        for (Long indicatorId : indicatorIds) {
+            List<Series> seriesList =
+                querySeriesList(indicatorId, startYear, endYear);
+
+            if (seriesList == null) {
+                return null;
             }
 
-            seriesPoints.add(point);
+            seriesLists.add(seriesList);
         }
 
-        List<Series> allSeries = new ArrayList<Series>();
+        // Clamp the interval to the years with values
+        int dataStartYear = Integer.MAX_VALUE;
+        int dataEndYear = Integer.MIN_VALUE;
+
+        for (List<Series> seriesList : seriesLists) {
+            for (Series series : seriesList) {
+                double[] seriesValues = series.getValues();
+                if (seriesValues == null || seriesValues.length == 0) {
+                    continue;
+                }
+
+                dataStartYear = Math.min(
+                    dataStartYear, series.getBaseYear());
+                dataEndYear = Math.max(
+                    dataEndYear,
+                    series.getBaseYear() + seriesValues.length - 1);
+            }
+        }
 
-        for (Map.Entry<Series, List<Point>> entry :
-                pointsBySeries.entrySet()) {
-            Series series = entry.getKey();
-            series.setPoints(entry.getValue());
-            allSeries.add(series);
+        if (dataStartYear > dataEndYear) {
+            return new SeriesMatrix(
+                indicatorIds, new ArrayList<Country>(), startYear, endYear,
+                new ArrayList<Double>());
         }
 
-        return allSeries;
+        startYear = Math.max(startYear, dataStartYear);
+        endYear = Math.min(endYear, dataEndYear);
+
+        List<Country> countries;
+
+        if (countryISOList == null || countryISOList.isEmpty()) {
+            Set<Country> countrySet = new HashSet<Country>();
+
+            for (List<Series> seriesList : seriesLists) {
+                for (Series series : seriesList) {
+                    if (series.getCountry() != null) {
+                        countrySet.add(series.getCountry());
+                    }
+                }
+            }
+
+            countries = new ArrayList<Country>(countrySet);
+            Collections.sort(countries, new Comparator<Country>() {
+                @Override
+                public int compare(Country a, Country b) {
+                    return a.getName().compareTo(b.getName());
+                }
+            });
+        } else {
+            countries = ReferenceCatalog.get().getCountriesByISO(
+                countryISOList);
+        }
+
+        int years = endYear - startYear + 1;
+        int indicators = indicatorIds.size();
+
+        // Keep the leading countries that fit within the size limit
+        boolean truncated = false;
+        long countryLimit = MATRIX_LIMIT / ((long) years * indicators);
+
+        if (countries.size() > countryLimit) {
+            countries = new ArrayList<Country>(
+                countries.subList(0, (int) countryLimit));
+            truncated = true;
+        }
+
+        Map<Long, Integer> countryRows = new HashMap<Long, Integer>();
+        for (int i = 0; i < countries.size(); i++) {
+            countryRows.put(countries.get(i).getId(), i);
+        }
+
+        Double[] values = new Double[countries.size() * years * indicators];
+
+        for (int k = 0; k < indicators; k++) {
+            for (Series series : seriesLists.get(k)) {
+                if (series.getCountry() == null) {
+                    continue;
+                }
+
+                Integer row = countryRows.get(series.getCountry().getId());
+                if (row == null) {
+                    continue;
+                }
+
+                double[] seriesValues = series.getValues();
+                if (seriesValues == null) {
+                    continue;
+                }
+
+                int offset = series.getBaseYear() - startYear;
+
+                for (int i = 0; i < seriesValues.length; i++) {
+                    if (!Double.isNaN(seriesValues[i])) {
+                        values[(row * years + offset + i) * indicators + k] =
+                            seriesValues[i];
+                    }
+                }
+            }
+        }
+
+        return new SeriesMatrix(
+            indicatorIds, countries, startYear, endYear,
+            Arrays.asList(values), truncated);
+    }
+
+    /**
+     * Query per-region aggregates of an indicator.
+     *
+     * @param indicatorId ID of {@link Indicator}.
+     * @param startYear Start year of the query interval.
+     * @param endYear End year of the query interval.
+     * @return List of aggregates ordered by region, then year.
+     */
+    public static List<RegionAggregate> queryRegionAggregateList(
+            Long indicatorId, Integer startYear, Integer endYear) {
+
+        RegionCube cube = RegionCube.get(indicatorId);
+
+        if (cube == null) {
+            return null;
+        }
+
+        return cube.getAggregates(startYear, endYear);
+    }
+
+    /**
+     * Start searching for indicators correlated with an indicator.
+     *
+     * @param indicatorId ID of {@link Indicator}.
+     * @param startYear Start year of the compared interval.
+     * @param endYear End year of the compared interval.
+     * @param limit Maximum number of results, or {@code null} for every
+     *              result.
+     * @return Initial state of the search.
+     */
+    public static CorrelationSearch startCorrelationSearch(
+            Long indicatorId, Integer startYear, Integer endYear,
+            Integer limit) {
+
+        return CorrelationEngine.start(indicatorId, startYear, endYear, limit);
+    }
+
+    /**
+     * Get the progress or result of a correlation search.
+     *
+     * @param ident Identifier of the search.
+     * @return State of the search.
+     */
+    public static CorrelationSearch getCorrelationSearch(String ident) {
+        return CorrelationEngine.get(ident);
+    }
+
+    /**
+     * Cancel a correlation search.
+     *
+     * @param ident Identifier of the search.
+     * @return State of the search.
+     */
+    public static CorrelationSearch cancelCorrelationSearch(String ident) {
+        return CorrelationEngine.cancel(ident);
+    }
+
+    /**
+     * Query per-year statistics of an indicator.
+     *
+     * @param indicatorId ID of {@link Indicator}.
+     * @param startYear Start year of the query interval.
+     * @param endYear End year of the query interval.
+     * @return List of statistics ordered by year.
+     */
+    public static List<Statistics> queryStatisticsList(
+            Long indicatorId, Integer startYear, Integer endYear) {
+
+        return StatisticsStore.get(indicatorId, startYear, endYear);
     }
 
     /**
@@ -147,10 +410,8 @@ public class WBIExplorationService implements Service {
         List<Country> countries = null;
         List<String> countryISOList = state.getCountryISOList();
         if (countryISOList != null) {
-            countries = Country.objects
-                .where()
-                    .in("iso", countryISOList)
-                .findList();
+            countries = ReferenceCatalog.get().getCountriesByISO(
+                countryISOList);
         }
 
         return new HistoryStateData(indicator, countries);
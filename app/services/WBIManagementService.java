@@ -21,6 +21,7 @@
 
 package services;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.avaje.ebean.Ebean;
@@ -30,9 +31,13 @@ import rpc.server.Service;
 
 import models.Indicator;
 
+import data.store.CatalogIndex;
+import data.store.RegionCube;
+import data.store.SearchIndex;
+import data.tasks.BulkImportTask;
 import data.tasks.IndicatorLoadTask;
 import data.tasks.IndicatorUnloadTask;
-import data.tasks.TaskUtils;
+import data.tasks.TaskScheduler;
 
 /**
  * Service for loading and unloading indicators.
@@ -57,6 +62,8 @@ public class WBIManagementService implements Service {
         updateIndicator.execute();
 
         indicator.setStatus(status);
+
+        CatalogIndex.updateIndicatorStatus(indicator.getId(), status);
     }
 
     /**
@@ -66,20 +73,35 @@ public class WBIManagementService implements Service {
     private static class IndicatorLoadAndUpdateTask
         extends IndicatorLoadTask {
 
+        /**
+         * Status to restore if loading fails.
+         */
+        private Indicator.Status previousStatus;
+
         /**
          * Initialize task.
          *
          * @param indicator {@code Indicator} to load.
+         * @param previousStatus Status to restore if loading fails.
          */
-        public IndicatorLoadAndUpdateTask(Indicator indicator) {
+        public IndicatorLoadAndUpdateTask(
+                Indicator indicator, Indicator.Status previousStatus) {
+
             super(indicator);
+
+            this.previousStatus = previousStatus;
         }
 
         @Override
         public void run() {
-            super.run();
-
-            updateIndicatorStatus(indicator, Indicator.Status.READY);
+            if (load()) {
+                updateIndicatorStatus(indicator, Indicator.Status.READY);
+
+                // Cubes are only built for ready indicators
+                RegionCube.get(indicator.getId());
+            } else {
+                updateIndicatorStatus(indicator, previousStatus);
+            }
         }
     }
 
@@ -101,9 +123,11 @@ public class WBIManagementService implements Service {
 
         @Override
         public void run() {
-            super.run();
-
-            updateIndicatorStatus(indicator, Indicator.Status.AVAILABLE);
+            if (unload()) {
+                updateIndicatorStatus(indicator, Indicator.Status.AVAILABLE);
+            } else {
+                updateIndicatorStatus(indicator, Indicator.Status.READY);
+            }
         }
     }
 
@@ -118,13 +142,40 @@ public class WBIManagementService implements Service {
             return null;
         }
 
-        return Indicator.objects
+        // Read current statuses only and take the rest from the index
+        List<Indicator> statuses = Indicator.objects
+            .select("status")
             .where()
                 .idIn(indicatorIds)
-            .query()
-            .fetch("source")
-            .fetch("topics")
             .findList();
+
+        List<Indicator> indicators = new ArrayList<Indicator>();
+
+        SearchIndex<Indicator> index = CatalogIndex.getIndicatorIndex();
+
+        for (Indicator status : statuses) {
+            Indicator indexed = index == null ?
+                null : index.get(status.getId());
+
+            if (indexed == null) {
+                return Indicator.objects
+                    .where()
+                        .idIn(indicatorIds)
+                    .query()
+                    .fetch("source")
+                    .fetch("topics")
+                    .findList();
+            }
+
+            Indicator indicator = new Indicator(
+                indexed.getIdent(), indexed.getName(), status.getStatus(),
+                indexed.getTopics(), indexed.getSource());
+            indicator.set(Indicator.FIELD_ID, indexed.getId());
+
+            indicators.add(indicator);
+        }
+
+        return indicators;
     }
 
     /**
@@ -137,9 +188,19 @@ public class WBIManagementService implements Service {
         Indicator indicator = Indicator.objects.byId(indicatorId);
 
         if (indicator.isAvailable()) {
+            Indicator.Status previousStatus = indicator.getStatus();
+
             updateIndicatorStatus(indicator, Indicator.Status.LOADING);
 
-            TaskUtils.runTask(new IndicatorLoadAndUpdateTask(indicator));
+            boolean submitted = TaskScheduler.submit(
+                TaskScheduler.getIndicatorKey(indicator),
+                new IndicatorLoadAndUpdateTask(indicator, previousStatus),
+                TaskScheduler.Priority.INTERACTIVE);
+
+            // Another task (such as a refresh) is modifying this indicator
+            if (!submitted) {
+                updateIndicatorStatus(indicator, previousStatus);
+            }
         }
 
         return indicator;
@@ -157,9 +218,30 @@ public class WBIManagementService implements Service {
         if (indicator.isReady()) {
             updateIndicatorStatus(indicator, Indicator.Status.LOADING);
 
-            TaskUtils.runTask(new IndicatorUnloadAndUpdateTask(indicator));
+            boolean submitted = TaskScheduler.submit(
+                TaskScheduler.getIndicatorKey(indicator),
+                new IndicatorUnloadAndUpdateTask(indicator),
+                TaskScheduler.Priority.INTERACTIVE);
+
+            // Another task (such as a refresh) is modifying this indicator
+            if (!submitted) {
+                updateIndicatorStatus(indicator, Indicator.Status.READY);
+            }
         }
 
         return indicator;
     }
+
+    /**
+     * Import every available {@link Indicator} from the configured World
+     * Development Indicators bulk archive.
+     *
+     * @return Whether the import was started.
+     */
+    public static Boolean importArchive() {
+        return TaskScheduler.submit(
+            BulkImportTask.KEY,
+            new BulkImportTask(),
+            TaskScheduler.Priority.BACKGROUND);
+    }
 }
@@ -0,0 +1,58 @@
+# --- !Ups
+
+alter table point drop constraint fk_point_series_3;
+drop index ix_point_series_3;
+alter table point rename to point_old;
+alter table point_old rename constraint pk_point to pk_point_old;
+
+create table point (
+  id                        bigint not null,
+  indicator_id              bigint not null,
+  series_id                 bigint,
+  year                      integer,
+  value                     float,
+  constraint pk_point primary key (indicator_id, id)
+) partition by list (indicator_id);
+
+alter table point add constraint fk_point_indicator_6 foreign key (indicator_id) references indicator (id);
+create index ix_point_indicator_6 on point (indicator_id);
+alter table point add constraint fk_point_series_3 foreign key (series_id) references series (id);
+create index ix_point_series_3 on point (series_id);
+
+do $$
+declare
+  partition_id bigint;;
+begin
+  for partition_id in select distinct s.indicator_id from series s where s.indicator_id is not null loop
+    execute format('create table point_%s partition of point for values in (%s)', partition_id, partition_id);;
+  end loop;;
+end
+$$;
+
+insert into point (id, indicator_id, series_id, year, value)
+  select p.id, s.indicator_id, p.series_id, p.year, p.value
+  from point_old p
+  join series s on s.id = p.series_id
+  where s.indicator_id is not null;
+
+drop table point_old;
+
+# --- !Downs
+
+create table point_flat (
+  id                        bigint not null,
+  series_id                 bigint,
+  year                      integer,
+  value                     float
+);
+
+insert into point_flat (id, series_id, year, value)
+  select id, series_id, year, value
+  from point;
+
+drop table if exists point cascade;
+
+alter table point_flat rename to point;
+alter table point add constraint pk_point primary key (id);
+alter table point add constraint fk_point_series_3 foreign key (series_id) references series (id);
+create index ix_point_series_3 on point (series_id);
@@ -0,0 +1,24 @@
+# --- !Ups
+
+alter table series add column base_year integer;
+alter table series add column point_values double precision[];
+
+update series s
+  set base_year = d.base_year,
+      point_values = (
+        select array_agg(coalesce(p.value, 'NaN'::float8) order by y.year)
+        from generate_series(d.base_year, d.end_year) as y(year)
+        left join point p
+          on p.indicator_id = s.indicator_id
+          and p.series_id = s.id
+          and p.year = y.year)
+  from (
+    select series_id, min(year) as base_year, max(year) as end_year
+    from point
+    group by series_id) d
+  where s.id = d.series_id;
+
+# --- !Downs
+
+alter table series drop column if exists point_values;
+alter table series drop column if exists base_year;
@@ -0,0 +1,40 @@
+# --- !Ups
+
+create table statistics (
+  id                        bigint not null,
+  indicator_id              bigint,
+  year                      integer,
+  count                     integer,
+  min                       float,
+  max                       float,
+  sum                       float,
+  mean                      float,
+  p10                       float,
+  p25                       float,
+  median                    float,
+  p75                       float,
+  p90                       float,
+  constraint pk_statistics primary key (id)
+);
+
+create sequence statistics_seq;
+
+alter table statistics add constraint fk_statistics_indicator_7 foreign key (indicator_id) references indicator (id);
+create index ix_statistics_indicator_7 on statistics (indicator_id);
+
+insert into statistics (id, indicator_id, year, count, min, max, sum, mean, p10, p25, median, p75, p90)
+  select nextval('statistics_seq'), indicator_id, year,
+    count(*), min(value), max(value), sum(value), avg(value),
+    percentile_cont(0.10) within group (order by value),
+    percentile_cont(0.25) within group (order by value),
+    percentile_cont(0.50) within group (order by value),
+    percentile_cont(0.75) within group (order by value),
+    percentile_cont(0.90) within group (order by value)
+  from point
+  group by indicator_id, year;
+
+# --- !Downs
+
+drop table if exists statistics cascade;
+
+drop sequence if exists statistics_seq;
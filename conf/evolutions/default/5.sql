@@ -0,0 +1,7 @@
+# --- !Ups
+
+drop index if exists ix_point_indicator_6;
+
+# --- !Downs
+
+create index ix_point_indicator_6 on point (indicator_id);
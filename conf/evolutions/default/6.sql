@@ -0,0 +1,15 @@
+# --- !Ups
+
+delete from statistics a
+  using statistics b
+  where a.indicator_id = b.indicator_id
+    and a.year = b.year
+    and a.id < b.id;
+
+drop index if exists ix_statistics_indicator_7;
+alter table statistics add constraint uq_statistics_indicator_year unique (indicator_id, year);
+
+# --- !Downs
+
+alter table statistics drop constraint if exists uq_statistics_indicator_year;
+create index ix_statistics_indicator_7 on statistics (indicator_id);
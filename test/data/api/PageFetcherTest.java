@@ -0,0 +1,335 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import models.Country;
+import models.Indicator;
+import models.Point;
+import models.Region;
+import models.Topic;
+
+/**
+ * Runs the World Bank client against a local server that serves paged
+ * responses, failing the first attempts at each page as configured.
+ */
+public class PageFetcherTest {
+    private static final int PAGES = 3;
+    private static final int COUNTRIES_PER_PAGE = 4;
+
+    private static final String DATA_OPEN =
+        "<wb:data xmlns:wb=\"http://www.worldbank.org\" " +
+        "page=\"%d\" pages=\"%d\">";
+    private static final String DATA_CLOSE = "</wb:data>";
+
+    private static final String ERROR =
+        "<?xml version=\"1.0\" encoding=\"utf-8\"?>" +
+        "<wb:error xmlns:wb=\"http://www.worldbank.org\">" +
+        "<wb:message id=\"199\" key=\"Rate limited\">" +
+        "Too many requests</wb:message></wb:error>";
+
+    private static final String FAULT =
+        "<?xml version=\"1.0\" encoding=\"utf-8\"?>" +
+        "<fault><faultstring>Service unavailable</faultstring></fault>";
+
+    private enum Failure {
+        STATUS, ERROR, FAULT
+    }
+
+    private HttpServer server;
+
+    private String base;
+    private int maxAttempts;
+    private long backoff;
+    private boolean cacheEnabled;
+
+    private Failure failure;
+    private int failures;
+
+    private Map<Integer, AtomicInteger> requests =
+        new ConcurrentHashMap<Integer, AtomicInteger>();
+
+    private static int getPage(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getQuery();
+
+        for (String param : query.split("&")) {
+            String[] pair = param.split("=");
+            if (pair[0].equals(PageFetcher.Settings.PAGE)) {
+                return Integer.valueOf(pair[1]);
+            }
+        }
+
+        return 1;
+    }
+
+    private static String getCountries(int page) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(String.format(DATA_OPEN, page, PAGES));
+
+        for (int i = 0; i < COUNTRIES_PER_PAGE; i++) {
+            String iso = "C" + page + i;
+
+            builder.append("<wb:country id=\"").append(iso).append("\">");
+            builder.append("<wb:iso2Code>").append(iso);
+            builder.append("</wb:iso2Code>");
+            builder.append("<wb:name>Country ").append(iso);
+            builder.append("</wb:name>");
+            builder.append("<wb:region id=\"WLD\">World</wb:region>");
+            builder.append("</wb:country>");
+        }
+
+        builder.append(DATA_CLOSE);
+
+        return builder.toString();
+    }
+
+    private static String getSeries(int page) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(String.format(DATA_OPEN, page, PAGES));
+
+        builder.append("<wb:data>");
+        builder.append("<wb:indicator id=\"TEST\">Test</wb:indicator>");
+        builder.append("<wb:country id=\"C1\">Country C1</wb:country>");
+        builder.append("<wb:date>").append(2000 + page).append("</wb:date>");
+        builder.append("<wb:value>").append(page).append("</wb:value>");
+        builder.append("<wb:decimal>0</wb:decimal>");
+        builder.append("</wb:data>");
+
+        builder.append(DATA_CLOSE);
+
+        return builder.toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String body)
+        throws IOException {
+
+        byte[] bytes = body.getBytes("UTF-8");
+
+        exchange.getResponseHeaders().set("Content-Type", "text/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        OutputStream output = exchange.getResponseBody();
+        try {
+            output.write(bytes);
+        } finally {
+            output.close();
+        }
+    }
+
+    private void handle(HttpExchange exchange, String body)
+        throws IOException {
+
+        int page = getPage(exchange);
+
+        requests.putIfAbsent(page, new AtomicInteger());
+        int attempt = requests.get(page).incrementAndGet();
+
+        if (attempt > failures) {
+            send(exchange, 200, body);
+        } else if (failure == Failure.STATUS) {
+            send(exchange, 503, "<html>Service Unavailable</html>");
+        } else if (failure == Failure.ERROR) {
+            send(exchange, 200, ERROR);
+        } else {
+            send(exchange, 200, FAULT);
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+        server.createContext("/countries/indicators", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                PageFetcherTest.this.handle(
+                    exchange, getSeries(getPage(exchange)));
+            }
+        });
+
+        server.createContext("/countries", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                PageFetcherTest.this.handle(
+                    exchange, getCountries(getPage(exchange)));
+            }
+        });
+
+        server.start();
+
+        base = WorldBank.API.BASE;
+        maxAttempts = PageFetcher.Settings.MAX_ATTEMPTS;
+        backoff = PageFetcher.Settings.BACKOFF;
+        cacheEnabled = ResponseCache.Settings.ENABLED;
+
+        WorldBank.API.BASE =
+            "http://127.0.0.1:" + server.getAddress().getPort();
+        PageFetcher.Settings.MAX_ATTEMPTS = 3;
+        PageFetcher.Settings.BACKOFF = 1;
+        ResponseCache.Settings.ENABLED = false;
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+
+        WorldBank.API.BASE = base;
+        PageFetcher.Settings.MAX_ATTEMPTS = maxAttempts;
+        PageFetcher.Settings.BACKOFF = backoff;
+        ResponseCache.Settings.ENABLED = cacheEnabled;
+
+        PageFetcher.shutdown();
+        HTTP.shutdown();
+    }
+
+    private void assertAttempts(int attempts) {
+        assertEquals(PAGES, requests.size());
+
+        for (int page = 1; page <= PAGES; page++) {
+            assertEquals(attempts, requests.get(page).get());
+        }
+    }
+
+    @Test
+    public void fetchesEveryPage() {
+        WorldBank worldBank = new WorldBank().fetchCountryList();
+
+        assertNotNull(worldBank.getCountryMap());
+        assertEquals(
+            PAGES * COUNTRIES_PER_PAGE, worldBank.getCountryMap().size());
+        assertAttempts(1);
+    }
+
+    @Test
+    public void retriesErrorStatus() {
+        failure = Failure.STATUS;
+        failures = 2;
+
+        WorldBank worldBank = new WorldBank().fetchCountryList();
+
+        assertNotNull(worldBank.getCountryMap());
+        assertEquals(
+            PAGES * COUNTRIES_PER_PAGE, worldBank.getCountryMap().size());
+        assertAttempts(3);
+    }
+
+    @Test
+    public void retriesErrorMessage() {
+        failure = Failure.ERROR;
+        failures = 1;
+
+        WorldBank worldBank = new WorldBank().fetchCountryList();
+
+        assertNotNull(worldBank.getCountryMap());
+        assertEquals(
+            PAGES * COUNTRIES_PER_PAGE, worldBank.getCountryMap().size());
+        assertAttempts(2);
+    }
+
+    @Test
+    public void retriesCachedErrorMessage() throws IOException {
+        failure = Failure.ERROR;
+        failures = 1;
+
+        Path directory = Files.createTempDirectory("wbi-cache");
+        String cacheDirectory = ResponseCache.Settings.DIRECTORY;
+
+        ResponseCache.Settings.ENABLED = true;
+        ResponseCache.Settings.DIRECTORY = directory.toString();
+        ResponseCache.reset();
+
+        try {
+            WorldBank worldBank = new WorldBank().fetchCountryList();
+
+            assertNotNull(worldBank.getCountryMap());
+            assertEquals(
+                PAGES * COUNTRIES_PER_PAGE,
+                worldBank.getCountryMap().size());
+            assertAttempts(2);
+
+            // Only the successful responses remain cached
+            ResponseCache.Metrics metrics = ResponseCache.getMetrics();
+            assertEquals(PAGES, metrics.getEntries());
+
+        } finally {
+            ResponseCache.Settings.DIRECTORY = cacheDirectory;
+            ResponseCache.reset();
+        }
+    }
+
+    @Test
+    public void retriesSeriesFault() {
+        failure = Failure.FAULT;
+        failures = 2;
+
+        Indicator indicator = new Indicator(
+            "TEST", "Test", new ArrayList<Topic>(), null);
+
+        List<Country> countryList = new ArrayList<Country>();
+        countryList.add(
+            new Country("C1", "Country C1", new Region("WLD", "World")));
+
+        WorldBank worldBank =
+            new WorldBank().fetchSeries(indicator, countryList);
+
+        assertNotNull(worldBank.getSeriesMap());
+
+        List<Point> pointList = worldBank.getPointList();
+        assertEquals(PAGES, pointList.size());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        failure = Failure.STATUS;
+        failures = PageFetcher.Settings.MAX_ATTEMPTS;
+
+        WorldBank worldBank = new WorldBank().fetchCountryList();
+
+        assertNull(worldBank.getCountryMap());
+        assertEquals(
+            PageFetcher.Settings.MAX_ATTEMPTS, requests.get(1).get());
+    }
+}
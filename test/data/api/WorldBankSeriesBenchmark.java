@@ -0,0 +1,73 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package data.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import models.Country;
+import models.Indicator;
+import models.Topic;
+
+/**
+ * Measures the time taken by the StAX series reader and the DOM reader it
+ * replaced on the synthetic page of {@link WorldBankSeriesReaderTest}.
+ *
+ * Not run as part of the tests, run it with its {@code main} method.
+ */
+public class WorldBankSeriesBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        List<Country> countryList =
+            WorldBankSeriesReaderTest.getCountryList();
+        Indicator indicator = new Indicator(
+            "TEST", "Test", new ArrayList<Topic>(), null);
+
+        byte[] page = WorldBankSeriesReaderTest.getPage(countryList);
+
+        long domTime = 0;
+        long staxTime = 0;
+
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            WorldBankSeriesReaderTest.readDOM(
+                new ByteArrayInputStream(page));
+            domTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            WorldBankSeriesReaderTest.readStAX(
+                countryList, indicator, page);
+            staxTime += System.nanoTime() - start;
+        }
+
+        System.out.println(String.format(
+            "Series page of %d rows (%d KB): DOM %.1f ms, StAX %.1f ms",
+            WorldBankSeriesReaderTest.COUNTRIES *
+                WorldBankSeriesReaderTest.YEARS,
+            page.length / 1024,
+            domTime / 1e6 / ROUNDS, staxTime / 1e6 / ROUNDS));
+    }
+}
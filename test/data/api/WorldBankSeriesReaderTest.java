@@ -0,0 +1,175 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package data.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import models.Country;
+import models.Indicator;
+import models.Point;
+import models.Region;
+import models.Topic;
+
+/**
+ * Compares the StAX series reader with the DOM reader it replaced on a
+ * synthetic page, checking that both produce the same points. The time
+ * taken by each is measured by {@link WorldBankSeriesBenchmark}.
+ */
+public class WorldBankSeriesReaderTest {
+    static final int COUNTRIES = 200;
+    static final int YEARS = 55;
+
+    static List<Country> getCountryList() {
+        Region region = new Region("WLD", "World");
+
+        List<Country> countryList = new ArrayList<Country>();
+        for (int i = 0; i < COUNTRIES; i++) {
+            countryList.add(new Country("C" + i, "Country " + i, region));
+        }
+
+        return countryList;
+    }
+
+    static byte[] getPage(List<Country> countryList) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>");
+        builder.append("<wb:data page=\"1\" pages=\"1\" ");
+        builder.append("xmlns:wb=\"").append(WorldBank.Schema.NAMESPACE);
+        builder.append("\">");
+
+        for (Country country : countryList) {
+            for (int year = 1960; year < 1960 + YEARS; year++) {
+                builder.append("<wb:data>");
+                builder.append(
+                    "<wb:indicator id=\"TEST\">Test</wb:indicator>");
+                builder.append("<wb:country id=\"").append(country.getISO());
+                builder.append("\">").append(country.getName());
+                builder.append("</wb:country>");
+                builder.append("<wb:date>").append(year);
+                builder.append("</wb:date>");
+
+                // Leave some years without data, as the API does
+                if (year % 7 == 0) {
+                    builder.append("<wb:value />");
+                } else {
+                    builder.append("<wb:value>").append(year * 1.5);
+                    builder.append("</wb:value>");
+                }
+
+                builder.append("<wb:decimal>1</wb:decimal>");
+                builder.append("</wb:data>");
+            }
+        }
+
+        builder.append("</wb:data>");
+
+        return builder.toString().getBytes();
+    }
+
+    /**
+     * Read points the way {@code WorldBank} did before reading with StAX.
+     */
+    static List<double[]> readDOM(InputStream stream) {
+        Document document = XML.getDocument(stream);
+
+        NodeList nodeList = document.getElementsByTagNameNS(
+            WorldBank.Schema.NAMESPACE, WorldBank.Schema.DATA);
+        int nodeListLength = nodeList.getLength();
+
+        List<double[]> points = new ArrayList<double[]>();
+
+        for (int i = 0; i < nodeListLength; i++) {
+            Element dataElement = (Element) nodeList.item(i);
+
+            Element dateElement =
+                (Element) dataElement.getElementsByTagNameNS(
+                    WorldBank.Schema.NAMESPACE,
+                    WorldBank.Schema.DATE).item(0);
+            Element valueElement =
+                (Element) dataElement.getElementsByTagNameNS(
+                    WorldBank.Schema.NAMESPACE,
+                    WorldBank.Schema.VALUE).item(0);
+
+            if (dateElement == null || valueElement == null) {
+                continue;
+            }
+
+            try {
+                points.add(new double[] {
+                    Integer.valueOf(dateElement.getTextContent()),
+                    Double.valueOf(valueElement.getTextContent())
+                });
+            } catch (NumberFormatException exception) {
+                continue;
+            }
+        }
+
+        return points;
+    }
+
+    static List<Point> readStAX(
+            List<Country> countryList, Indicator indicator, byte[] page)
+        throws IOException {
+
+        WorldBank worldBank = new WorldBank();
+        worldBank.prepareSeries(countryList);
+
+        return worldBank.readSeries(
+            new ByteArrayInputStream(page), indicator).getContent();
+    }
+
+    @Test
+    public void compareReaders() throws IOException {
+        List<Country> countryList = getCountryList();
+        Indicator indicator = new Indicator(
+            "TEST", "Test", new ArrayList<Topic>(), null);
+
+        byte[] page = getPage(countryList);
+
+        List<double[]> domPoints =
+            readDOM(new ByteArrayInputStream(page));
+        List<Point> staxPoints = readStAX(countryList, indicator, page);
+
+        assertEquals(domPoints.size(), staxPoints.size());
+
+        for (int i = 0; i < domPoints.size(); i++) {
+            Point point = staxPoints.get(i);
+            assertNotNull(point.getSeries().getCountry());
+            assertEquals(domPoints.get(i)[0], point.getYear(), 0.0);
+            assertEquals(domPoints.get(i)[1], point.getValue(), 0.0);
+        }
+    }
+}
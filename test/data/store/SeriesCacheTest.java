@@ -0,0 +1,176 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package data.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import models.Point;
+import models.Series;
+
+/**
+ * Checks the weighting, eviction order and generation guard of the
+ * {@link SeriesCache}.
+ */
+public class SeriesCacheTest {
+    private long maxWeight;
+
+    @Before
+    public void setUp() {
+        maxWeight = SeriesCache.Settings.MAX_WEIGHT;
+        SeriesCache.reset();
+    }
+
+    @After
+    public void tearDown() {
+        SeriesCache.Settings.MAX_WEIGHT = maxWeight;
+        SeriesCache.reset();
+    }
+
+    /**
+     * Get a result of packed series holding the specified number of values
+     * each.
+     */
+    private static List<Series> getSeriesList(int... sizes) {
+        List<Series> seriesList = new ArrayList<Series>();
+
+        for (int size : sizes) {
+            seriesList.add(new Series(null, null, 2000, new double[size]));
+        }
+
+        return seriesList;
+    }
+
+    private static void put(Long indicatorId, List<Series> seriesList) {
+        SeriesCache.put(
+            indicatorId, 2000, 2010, seriesList,
+            SeriesCache.getGeneration(indicatorId));
+    }
+
+    private static List<Series> get(Long indicatorId) {
+        return SeriesCache.get(indicatorId, 2000, 2010);
+    }
+
+    @Test
+    public void weighsByValues() {
+        put(1L, getSeriesList(10, 5));
+
+        Series series = new Series(null, null, new ArrayList<Point>());
+        series.getPoints().add(new Point(series, 2000, 1.0));
+        series.getPoints().add(new Point(series, 2001, 2.0));
+
+        List<Series> pointSeriesList = new ArrayList<Series>();
+        pointSeriesList.add(series);
+        put(2L, pointSeriesList);
+
+        assertEquals(17, SeriesCache.getMetrics().getWeight());
+        assertEquals(2, SeriesCache.getMetrics().getEntries());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        SeriesCache.Settings.MAX_WEIGHT = 20;
+
+        put(1L, getSeriesList(10));
+        put(2L, getSeriesList(10));
+
+        // Use the first result so that the second is the eldest
+        assertNotNull(get(1L));
+
+        put(3L, getSeriesList(10));
+
+        assertNotNull(get(1L));
+        assertNull(get(2L));
+        assertNotNull(get(3L));
+
+        assertEquals(1, SeriesCache.getMetrics().getEvictions());
+        assertEquals(20, SeriesCache.getMetrics().getWeight());
+    }
+
+    @Test
+    public void skipsResultsOverMaxWeight() {
+        SeriesCache.Settings.MAX_WEIGHT = 20;
+
+        put(1L, getSeriesList(15, 10));
+
+        assertNull(get(1L));
+        assertEquals(0, SeriesCache.getMetrics().getWeight());
+    }
+
+    @Test
+    public void replacesResultWeight() {
+        put(1L, getSeriesList(10));
+        put(1L, getSeriesList(4));
+
+        assertEquals(4, SeriesCache.getMetrics().getWeight());
+        assertEquals(1, SeriesCache.getMetrics().getEntries());
+    }
+
+    @Test
+    public void discardsResultsOfPreviousGeneration() {
+        long generation = SeriesCache.getGeneration(1L);
+
+        // Data changes while the query runs
+        SeriesCache.invalidate(1L);
+
+        SeriesCache.put(1L, 2000, 2010, getSeriesList(10), generation);
+
+        assertNull(get(1L));
+        assertEquals(0, SeriesCache.getMetrics().getWeight());
+    }
+
+    @Test
+    public void invalidatesOnlyIndicator() {
+        List<Series> seriesList = getSeriesList(6);
+
+        put(1L, getSeriesList(10));
+        put(2L, seriesList);
+
+        SeriesCache.invalidate(1L);
+
+        assertNull(get(1L));
+        assertSame(seriesList, get(2L));
+        assertEquals(6, SeriesCache.getMetrics().getWeight());
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        put(1L, getSeriesList(1));
+
+        get(1L);
+        get(1L);
+        get(2L);
+
+        assertEquals(2, SeriesCache.getMetrics().getHits());
+        assertEquals(1, SeriesCache.getMetrics().getMisses());
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.JsonParser;
+
+import rpc.server.data.JSONSerializer;
+import rpc.shared.data.Serializable;
+import rpc.shared.data.Type;
+import rpc.shared.data.factory.SerializableFactory;
+import rpc.shared.data.factory.SerializableFactoryProvider;
+
+/**
+ * Checks that the {@link Series.Codec} and {@link Point.Codec} produce and
+ * read the same values as the name-based {@code fields()} path.
+ */
+public class SeriesCodecTest {
+    private static JsonParser parser = new JsonParser();
+
+    /**
+     * Provider of the models found in a series, with or without codecs.
+     */
+    private static class Provider extends SerializableFactoryProvider {
+        public Provider(boolean codecs) {
+            super();
+
+            addFactory(Type.get(Series.class), new SerializableFactory() {
+                @Override
+                public Serializable make() {
+                    return new Series();
+                }
+            });
+
+            addFactory(Type.get(Point.class), new SerializableFactory() {
+                @Override
+                public Serializable make() {
+                    return new Point();
+                }
+            });
+
+            addFactory(Type.get(Country.class), new SerializableFactory() {
+                @Override
+                public Serializable make() {
+                    return new Country();
+                }
+            });
+
+            addFactory(Type.get(Region.class), new SerializableFactory() {
+                @Override
+                public Serializable make() {
+                    return new Region();
+                }
+            });
+
+            if (codecs) {
+                addCodec(Point.class, new Point.Codec());
+                addCodec(Series.class, new Series.Codec());
+            }
+        }
+    }
+
+    private static Series getPackedSeries() {
+        Country country = new Country(
+            "ARG", "Argentina", new Region("LCN", "Latin America"));
+
+        return new Series(
+            null, country, 1999,
+            new double[] { Double.NaN, 1.5, Double.NaN, 3.0, -2.25 });
+    }
+
+    private JSONSerializer codecSerializer =
+        new JSONSerializer(new Provider(true));
+    private JSONSerializer fieldsSerializer =
+        new JSONSerializer(new Provider(false));
+
+    @Test
+    public void writesPackedSeriesAsPoints() throws Exception {
+        Series packed = getPackedSeries();
+        Series unpacked = new Series(
+            null, packed.getCountry(), packed.getPoints());
+
+        String codecPayload = codecSerializer.serialize(getPackedSeries());
+        String fieldsPayload = fieldsSerializer.serialize(unpacked);
+
+        assertEquals(parser.parse(fieldsPayload), parser.parse(codecPayload));
+    }
+
+    @Test
+    public void readsPointsWithoutBoxing() throws Exception {
+        String payload = fieldsSerializer.serialize(getPackedSeries());
+
+        Series codecSeries = (Series) codecSerializer.deserialize(
+            payload, Type.get(Series.class));
+        Series fieldsSeries = (Series) fieldsSerializer.deserialize(
+            payload, Type.get(Series.class));
+
+        List<Point> codecPoints = codecSeries.getPoints();
+        List<Point> fieldsPoints = fieldsSeries.getPoints();
+
+        assertEquals(3, codecPoints.size());
+        assertEquals(fieldsPoints.size(), codecPoints.size());
+
+        for (int i = 0; i < codecPoints.size(); i++) {
+            assertEquals(
+                fieldsPoints.get(i).getYear(), codecPoints.get(i).getYear());
+            assertEquals(
+                fieldsPoints.get(i).getValue(),
+                codecPoints.get(i).getValue(), 0.0);
+        }
+
+        assertEquals("ARG", codecSeries.getCountry().getISO());
+    }
+
+    @Test
+    public void setsNumericFields() {
+        Point.Codec codec = new Point.Codec();
+        Point point = new Point();
+
+        for (int i = 0; i < codec.size(); i++) {
+            String field = codec.getField(i);
+
+            if (field.equals(Point.FIELD_YEAR)) {
+                assertTrue(codec.getType(point, i).isInteger());
+                codec.setInt(point, i, 2004);
+            }
+
+            if (field.equals(Point.FIELD_VALUE)) {
+                assertTrue(codec.getType(point, i).isDouble());
+                codec.setDouble(point, i, 7.5);
+            }
+
+            if (field.equals(Point.FIELD_ID)) {
+                codec.set(point, i, 42L);
+            }
+        }
+
+        assertEquals(2004, point.getYear());
+        assertEquals(7.5, point.getValue(), 0.0);
+        assertEquals(Long.valueOf(42), point.getId());
+        assertEquals(2004, point.get(Point.FIELD_YEAR));
+        assertEquals(7.5, point.get(Point.FIELD_VALUE));
+    }
+}
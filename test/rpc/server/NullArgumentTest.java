@@ -0,0 +1,102 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rpc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rpc.server.call.DefaultCallRequestServerSerializer;
+import rpc.server.call.DefaultCallResponseServerSerializer;
+import rpc.server.data.JSONSerializer;
+import rpc.server.invoke.Invoker;
+import rpc.shared.call.CallRequest;
+import rpc.shared.call.CallResponse;
+
+/**
+ * Sends calls with {@code null} arguments through the request parser, the
+ * invoker and the response serializer.
+ */
+public class NullArgumentTest {
+    /**
+     * Service describing its arguments.
+     */
+    public static class EchoService implements Service {
+        public static String describe(String query, Long id) {
+            return query + ":" + id;
+        }
+
+        public static String count(int count) {
+            return "count:" + count;
+        }
+    }
+
+    private static final String CLASS_NAME = EchoService.class.getName();
+
+    private CallRequest.ServerSerializer requestSerializer =
+        new DefaultCallRequestServerSerializer();
+    private CallResponse.ServerSerializer responseSerializer =
+        new DefaultCallResponseServerSerializer();
+
+    @Before
+    public void setUp() {
+        GlobalHandler.setDefaultInvoker(new Invoker(new JSONSerializer()));
+    }
+
+    private String call(String payload) throws Exception {
+        CallRequest request = requestSerializer.deserialize(payload);
+        CallResponse response = GlobalHandler.handleValue(request);
+
+        return responseSerializer.serialize(response);
+    }
+
+    @Test
+    public void passesNullVersion1() throws Exception {
+        String response = call(
+            "[\"" + CLASS_NAME + "\",\"describe\",\"t\"," +
+            "[\"\\\"a\\\"\",\"null\"]]");
+
+        assertEquals("[\"t\",true,\"\\\"a:null\\\"\"]", response);
+    }
+
+    @Test
+    public void passesNullVersion2() throws Exception {
+        String response = call(
+            "[\"" + CLASS_NAME + "\",\"describe\",\"t\",[null,7],2]");
+
+        assertEquals("[\"t\",true,\"null:7\",2]", response);
+    }
+
+    @Test
+    public void rejectsNullPrimitive() throws Exception {
+        CallRequest request = requestSerializer.deserialize(
+            "[\"" + CLASS_NAME + "\",\"count\",\"t\",[null],2]");
+        CallResponse response = GlobalHandler.handleValue(request);
+
+        assertFalse(response.isSuccess());
+        assertTrue(response.getPayload().contains("Incompatible arguments"));
+    }
+}
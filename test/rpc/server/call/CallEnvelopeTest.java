@@ -0,0 +1,197 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rpc.server.call;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import rpc.server.data.JSONSerializer;
+import rpc.shared.call.CallRequest;
+import rpc.shared.call.CallResponse;
+import rpc.shared.call.InvalidPayload;
+
+/**
+ * Reads version 1 and version 2 request envelopes and writes version 1 and
+ * version 2 response envelopes.
+ */
+public class CallEnvelopeTest {
+    private static JsonParser parser = new JsonParser();
+
+    private DefaultCallRequestServerSerializer requestSerializer =
+        new DefaultCallRequestServerSerializer();
+    private DefaultCallResponseServerSerializer responseSerializer =
+        new DefaultCallResponseServerSerializer();
+
+    private static List<Integer> getValue() {
+        return new ArrayList<Integer>(Arrays.asList(1, 2, 3));
+    }
+
+    private String write(CallResponse response) throws Exception {
+        StringWriter writer = new StringWriter();
+        responseSerializer.serialize(response, writer);
+        return writer.toString();
+    }
+
+    @Test
+    public void readsVersion1Request() throws InvalidPayload {
+        CallRequest request = requestSerializer.deserialize(
+            "[\"Service\",\"method\",\"token\",[\"1\",\"\\\"a\\\"\"]]");
+
+        assertEquals(CallRequest.Message.VERSION_1, request.getVersion());
+        assertEquals("Service", request.getClassName());
+        assertEquals("method", request.getMethodName());
+        assertEquals("token", request.getToken());
+        assertEquals(
+            Arrays.asList("1", "\"a\""), request.getArgumentPayloadList());
+        assertNull(request.getArgumentTreeList());
+    }
+
+    @Test
+    public void readsVersion2Request() throws InvalidPayload {
+        CallRequest request = requestSerializer.deserialize(
+            "[\"Service\",\"method\",\"token\",[1,\"a\",{\"b\":[2]}],2]");
+
+        assertEquals(CallRequest.Message.VERSION_2, request.getVersion());
+        assertEquals("token", request.getToken());
+
+        List<Object> trees = request.getArgumentTreeList();
+
+        assertEquals(3, trees.size());
+        assertEquals(parser.parse("1"), trees.get(0));
+        assertEquals(parser.parse("\"a\""), trees.get(1));
+        assertEquals(parser.parse("{\"b\":[2]}"), trees.get(2));
+    }
+
+    @Test(expected = InvalidPayload.class)
+    public void rejectsUnknownVersion() throws InvalidPayload {
+        requestSerializer.deserialize(
+            "[\"Service\",\"method\",\"token\",[],3]");
+    }
+
+    @Test
+    public void rejectsMalformedRequests() {
+        String[] payloads = {
+            "[",
+            "{}",
+            "[\"Service\",\"method\",\"token\",[],\"2\"]",
+            "[\"Service\",\"method\",\"token\",[],{}]",
+            "[\"Service\",\"method\",\"token\",{}]",
+            "[[],\"method\",\"token\",[]]",
+            "[\"Service\",\"method\",\"token\",[[]]]"
+        };
+
+        for (String payload : payloads) {
+            try {
+                requestSerializer.deserialize(payload);
+                fail("Accepted " + payload);
+            } catch (InvalidPayload exception) {
+                continue;
+            }
+        }
+    }
+
+    @Test
+    public void writesVersion1Response() throws Exception {
+        CallResponse response = new CallResponse("token", true, "[1,2,3]");
+
+        String payload = responseSerializer.serialize(response);
+
+        assertEquals(
+            parser.parse("[\"token\",true,\"[1,2,3]\"]"),
+            parser.parse(payload));
+        assertEquals(payload, write(response));
+    }
+
+    @Test
+    public void writesVersion2Response() throws Exception {
+        CallResponse response = new CallResponse(
+            "token", true, "[1,2,3]", CallRequest.Message.VERSION_2);
+
+        String payload = responseSerializer.serialize(response);
+
+        assertEquals(
+            parser.parse("[\"token\",true,[1,2,3],2]"),
+            parser.parse(payload));
+        assertEquals(parser.parse(payload), parser.parse(write(response)));
+    }
+
+    @Test
+    public void writesVersion2Error() throws Exception {
+        CallResponse response = new CallResponse(
+            "token", false, "Invalid payload",
+            CallRequest.Message.VERSION_2);
+
+        assertEquals(
+            parser.parse("[\"token\",false,\"Invalid payload\",2]"),
+            parser.parse(responseSerializer.serialize(response)));
+    }
+
+    @Test
+    public void writesValueResponses() throws Exception {
+        JSONSerializer serializer = new JSONSerializer();
+
+        CallResponse version1 = new ValueCallResponse(
+            "token", getValue(), serializer, CallRequest.Message.VERSION_1);
+        CallResponse version2 = new ValueCallResponse(
+            "token", getValue(), serializer, CallRequest.Message.VERSION_2);
+
+        // Version 1 clients receive the value as a serialized string
+        JsonElement expected1 = parser.parse("[\"token\",true,\"[1,2,3]\"]");
+        JsonElement expected2 = parser.parse("[\"token\",true,[1,2,3],2]");
+
+        assertEquals(expected1, parser.parse(write(version1)));
+        assertEquals(
+            expected1, parser.parse(responseSerializer.serialize(version1)));
+        assertEquals(expected2, parser.parse(write(version2)));
+        assertEquals(
+            expected2, parser.parse(responseSerializer.serialize(version2)));
+    }
+
+    @Test
+    public void reportsUnserializableValue() throws Exception {
+        CallResponse response = new ValueCallResponse(
+            "token", new Object(), new JSONSerializer(),
+            CallRequest.Message.VERSION_2);
+
+        JsonArray envelope = parser.parse(
+            responseSerializer.serialize(response)).getAsJsonArray();
+
+        assertEquals(CallResponse.Message.SIZE_VERSION_2, envelope.size());
+        assertEquals("token", envelope.get(0).getAsString());
+        assertFalse(envelope.get(1).getAsBoolean());
+        assertEquals(2, envelope.get(3).getAsInt());
+    }
+}
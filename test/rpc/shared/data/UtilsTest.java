@@ -0,0 +1,193 @@
+/*
+ * WBI Indicator Explorer
+ *
+ * Copyright 2015 Sebastian Nogara <snogaraleal@gmail.com>
+ *
+ * This file is part of WBI.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rpc.shared.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Checks the classification of values by {@link Utils#getKind} and the
+ * checks built on it.
+ */
+public class UtilsTest {
+    private static enum Plain {
+        A
+    }
+
+    /**
+     * Enum whose constant has a body, so its class is a subclass of the
+     * enum class.
+     */
+    private static enum WithBody {
+        A {
+            @Override
+            public String toString() {
+                return "a";
+            }
+        }
+    }
+
+    /**
+     * {@code Serializable} with or without fields.
+     */
+    private static class Value implements Serializable {
+        private Map<String, Type> fields;
+
+        public Value(boolean hasFields) {
+            if (hasFields) {
+                fields = new HashMap<String, Type>();
+            }
+        }
+
+        @Override
+        public Object get(String field) {
+            return null;
+        }
+
+        @Override
+        public void set(String field, Object value) {}
+
+        @Override
+        public Map<String, Type> fields() {
+            return fields;
+        }
+    }
+
+    @Test
+    public void classifiesValues() {
+        assertNull(Utils.getKind(null));
+
+        assertEquals(Utils.Kind.BOOLEAN, Utils.getKind(true));
+        assertEquals(Utils.Kind.INTEGER, Utils.getKind(1));
+        assertEquals(Utils.Kind.LONG, Utils.getKind(1L));
+        assertEquals(Utils.Kind.FLOAT, Utils.getKind(1f));
+        assertEquals(Utils.Kind.DOUBLE, Utils.getKind(1d));
+        assertEquals(Utils.Kind.STRING, Utils.getKind("a"));
+        assertEquals(Utils.Kind.ENUM, Utils.getKind(Plain.A));
+        assertEquals(Utils.Kind.ENUM, Utils.getKind(WithBody.A));
+        assertEquals(
+            Utils.Kind.SERIALIZABLE, Utils.getKind(new Value(true)));
+        assertEquals(Utils.Kind.LIST, Utils.getKind(new ArrayList<Object>()));
+        assertEquals(Utils.Kind.LIST, Utils.getKind(new LinkedList<Object>()));
+        assertEquals(
+            Utils.Kind.MAP, Utils.getKind(new TreeMap<String, Object>()));
+        assertEquals(Utils.Kind.OTHER, Utils.getKind(new Object()));
+        assertEquals(Utils.Kind.OTHER, Utils.getKind('a'));
+    }
+
+    @Test
+    public void classifiesFromManyThreads() throws Exception {
+        final Object[] values = {
+            true, 1, 1L, 1f, 1d, "a", Plain.A, WithBody.A,
+            new Value(true), new LinkedList<Object>(),
+            new TreeMap<String, Object>(), new StringBuilder()
+        };
+        final Utils.Kind[] kinds = {
+            Utils.Kind.BOOLEAN, Utils.Kind.INTEGER, Utils.Kind.LONG,
+            Utils.Kind.FLOAT, Utils.Kind.DOUBLE, Utils.Kind.STRING,
+            Utils.Kind.ENUM, Utils.Kind.ENUM, Utils.Kind.SERIALIZABLE,
+            Utils.Kind.LIST, Utils.Kind.MAP, Utils.Kind.OTHER
+        };
+
+        final AtomicInteger mismatches = new AtomicInteger();
+
+        Thread[] threads = new Thread[8];
+
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        int index = (i + offset) % values.length;
+
+                        if (Utils.getKind(values[index]) != kinds[index]) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, mismatches.get());
+    }
+
+    @Test
+    public void castsOnlyMatchingKinds() {
+        assertEquals(Integer.valueOf(1), Utils.isInteger(1));
+        assertNull(Utils.isInteger(1L));
+        assertEquals(Long.valueOf(1), Utils.isLong(1L));
+        assertNull(Utils.isLong(1));
+        assertNull(Utils.isDouble(1f));
+        assertEquals("a", Utils.isString("a"));
+        assertNull(Utils.isString(null));
+        assertSame(Plain.A, Utils.isEnum(Plain.A));
+        assertNull(Utils.isSerializable(new Value(false)));
+    }
+
+    @Test
+    public void checksSerializationCapability() {
+        assertTrue(Utils.isSerializationCapable(null));
+        assertTrue(Utils.isSerializationCapable(1));
+        assertTrue(Utils.isSerializationCapable(new Value(true)));
+        assertFalse(Utils.isSerializationCapable(new Value(false)));
+        assertFalse(Utils.isSerializationCapable(new Object()));
+
+        assertTrue(Utils.isSerializationCapable(new ArrayList<Object>()));
+        assertTrue(Utils.isSerializationCapable(Arrays.asList("a", "b")));
+        assertFalse(Utils.isSerializationCapable(
+            Arrays.asList(new Object())));
+
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        assertTrue(Utils.isSerializationCapable(map));
+
+        map.put(Plain.A, 1.5);
+        assertTrue(Utils.isSerializationCapable(map));
+
+        map.clear();
+        map.put(1, "a");
+        assertFalse(Utils.isSerializationCapable(map));
+    }
+}